@@ -0,0 +1,181 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench;
+
+import net.daporkchop.savesearcher.output.csv.CSVRowSerializer;
+import net.daporkchop.savesearcher.output.csv.CSVUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares serializing rows with {@link CSVRowSerializer} against the reflective implementation it replaced, which read every field through
+ * reflection and converted it to a {@link String} before appending it.
+ * <p>
+ * The rows have the same shape as the output of the {@code --count} modules: a position, a block ID and a count.
+ *
+ * @author DaPorkchop_
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CSVRowBenchmark {
+    private static final int ROWS = 1024;
+
+    protected Row[] rows;
+    protected StringBuilder builder;
+
+    protected CSVRowSerializer serializer;
+    protected Function<Object, String>[] mappers;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(12345L);
+        this.rows = new Row[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            this.rows[i] = new Row(random.nextInt(-30_000_000, 30_000_000), random.nextInt(256), random.nextInt(-30_000_000, 30_000_000),
+                    random.nextBoolean() ? "minecraft:stone" : "minecraft:chest", random.nextLong(1L << 40L));
+        }
+        this.builder = new StringBuilder();
+
+        this.serializer = CSVRowSerializer.of(Row.class);
+
+        List<Function<Object, String>> mappers = new ArrayList<>();
+        for (Class<?> clazz = Row.class; clazz != Object.class; clazz = clazz.getSuperclass()) {
+            int i = 0;
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isTransient(field.getModifiers()) && !field.isSynthetic()) {
+                    field.setAccessible(true);
+                    mappers.add(i++, mapper(field));
+                }
+            }
+        }
+        this.mappers = mappers.toArray(new Function[0]);
+    }
+
+    private static Function<Object, String> mapper(Field field) {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            return o -> {
+                try {
+                    return Integer.toString(field.getInt(o));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } else if (type == long.class) {
+            return o -> {
+                try {
+                    return Long.toString(field.getLong(o));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } else {
+            return o -> {
+                try {
+                    return CSVUtil.escape(Objects.toString(field.get(o)));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    public int reflection() {
+        final StringBuilder builder = this.builder;
+        final Function<Object, String>[] mappers = this.mappers;
+
+        int length = 0;
+        for (Row row : this.rows) {
+            builder.setLength(0);
+            for (Function<Object, String> mapper : mappers) {
+                builder.append(mapper.apply(row)).append(',');
+            }
+            length += builder.length() - 1;
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int serializer() {
+        final StringBuilder builder = this.builder;
+        final CSVRowSerializer serializer = this.serializer;
+
+        int length = 0;
+        for (Row row : this.rows) {
+            builder.setLength(0);
+            serializer.append(row, builder);
+            length += builder.length();
+        }
+        return length;
+    }
+
+    /**
+     * @author DaPorkchop_
+     */
+    protected static class Position {
+        public final int x;
+        public final int y;
+        public final int z;
+
+        public Position(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    /**
+     * @author DaPorkchop_
+     */
+    protected static final class Row extends Position {
+        public final String id;
+        public final long count;
+
+        public Row(int x, int y, int z, String id, long count) {
+            super(x, y, z);
+            this.id = id;
+            this.count = count;
+        }
+    }
+}
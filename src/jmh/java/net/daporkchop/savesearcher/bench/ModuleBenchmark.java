@@ -0,0 +1,162 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench;
+
+import net.daporkchop.lib.common.function.io.IOConsumer;
+import net.daporkchop.lib.minecraft.region.WorldScanner;
+import net.daporkchop.lib.minecraft.region.util.NeighboringChunkProcessor;
+import net.daporkchop.lib.minecraft.world.MinecraftSave;
+import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.Main;
+import net.daporkchop.savesearcher.bench.world.BenchmarkWorlds;
+import net.daporkchop.savesearcher.bench.world.SyntheticWorldGenerator;
+import net.daporkchop.savesearcher.module.SearchModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to scan a single synthetic region (1024 chunks) with a given combination of modules.
+ * <p>
+ * Modules are given in the same format as on the command line, multiple modules are separated by {@code ';'}. Combinations of several modules
+ * of the same family exercise the merged variants created by {@link SearchModule#merge(List, java.util.function.Consumer)}. The
+ * {@code baseline} combination runs the scanner without any modules, and gives the cost of reading and decoding the chunks, which may be
+ * subtracted from the other results to get the cost of the modules' {@code processChunk}/{@code processChunkSection} implementations alone.
+ * <p>
+ * Note that JMH splits parameter values given on the command line at commas, so custom combinations should be given by editing the
+ * {@link Param} values instead.
+ *
+ * @author DaPorkchop_
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModuleBenchmark {
+    @Param({
+            "baseline",
+            //block
+            "--block,id=minecraft:diamond_ore",
+            "--block,id=minecraft:diamond_ore,min=0,max=15",
+            "--block,id=minecraft:stone,invert=true",
+            "--block,id=minecraft:stone,min=0,max=15,invert=true",
+            "--block,id=minecraft:diamond_ore,chunkinvert=true",
+            "--block,id=minecraft:diamond_ore,min=0,max=15,chunkinvert=true",
+            //count
+            "--count,type=block,id=minecraft:coal_ore",
+            "--count,type=block,id=minecraft:stone,meta=0",
+            "--count,type=tileentity",
+            "--count,type=tileentity,id=minecraft:chest",
+            //chest
+            "--chest",
+            "--chest,above=true",
+            "--chest,double=true",
+            "--chest,double=true,above=true",
+            //misc
+            "--emptychunks",
+            "--netherchunks",
+            "--brokenportals",
+            "--brokenlighting",
+            "--biomes",
+            "--biomes,1",
+            //entities and tile entities
+            "--entity",
+            "--entity,minecraft:zombie",
+            "--tileentity",
+            "--tileentity,minecraft:chest",
+            "--sign",
+            "--spawner",
+            "--spawner,minecraft:zombie",
+            "--command_block",
+            //merged
+            "--block,id=minecraft:coal_ore;--block,id=minecraft:iron_ore;--block,id=minecraft:gold_ore;--block,id=minecraft:diamond_ore",
+            "--block,id=minecraft:diamond_ore;--chest",
+            "--entity,minecraft:zombie;--entity,minecraft:cow",
+            "--tileentity,minecraft:chest;--tileentity,minecraft:mob_spawner",
+            "--sign;--spawner;--command_block",
+    })
+    public String modules;
+
+    @Param({ "TERRAIN", "TILE_ENTITIES", "ENTITIES", "EMPTY" })
+    public SyntheticWorldGenerator.Profile profile;
+
+    protected MinecraftSave save;
+    protected World world;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.save = Main.openSave(BenchmarkWorlds.get(this.profile, 0L, 1));
+        this.world = this.save.world(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.save.close();
+    }
+
+    @Benchmark
+    public long scan() throws IOException {
+        List<SearchModule> modules = new ArrayList<>();
+        if (!"baseline".equals(this.modules)) {
+            for (String arg : this.modules.split(";")) {
+                modules.add(Main.parseModule(arg));
+            }
+        }
+
+        NullOutputHandle handle = new NullOutputHandle();
+        for (SearchModule module : modules) {
+            module.init(this.world, handle);
+        }
+        List<SearchModule> mergedModules = SearchModule.merge(modules, SearchModule::merge);
+
+        WorldScanner scanner = new WorldScanner(this.world);
+        scanner.addProcessor((current, estimatedTotal, chunk) -> {
+        });
+        for (SearchModule module : mergedModules) {
+            if (module instanceof NeighboringChunkProcessor) {
+                scanner.addProcessor((NeighboringChunkProcessor) module);
+            } else {
+                scanner.addProcessor(module);
+            }
+        }
+        scanner.run(false);
+
+        mergedModules.forEach((IOConsumer<SearchModule>) SearchModule::close);
+        return handle.rows();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench;
+
+import lombok.NonNull;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.output.OutputHandle;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link OutputHandle} which discards all data, only counting the number of rows it was given.
+ *
+ * @author DaPorkchop_
+ */
+public final class NullOutputHandle implements OutputHandle {
+    private final LongAdder rows = new LongAdder();
+
+    @Override
+    public void init(@NonNull SearchModule module) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void accept(@NonNull Object data) {
+        this.rows.increment();
+    }
+
+    /**
+     * @return the number of rows that have been given to this handle
+     */
+    public long rows() {
+        return this.rows.sum();
+    }
+}
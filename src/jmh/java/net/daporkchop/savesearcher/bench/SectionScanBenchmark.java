@@ -0,0 +1,211 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench;
+
+import net.daporkchop.savesearcher.util.SectionBlocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scanning a section through per-voxel accessors with scanning it through {@link SectionBlocks}, both reading from the section directly
+ * and after {@link SectionBlocks#pack() packing} it.
+ * <p>
+ * All variants operate on the same randomly generated section data, and the packed variants include the cost of packing the section. Each
+ * benchmark searches the section once per consumer, to show how many modules have to share a section before packing it pays off.
+ *
+ * @author DaPorkchop_
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SectionScanBenchmark {
+    /**
+     * The number of distinct block IDs in the section. Low values are typical of natural terrain, high values of player-built areas.
+     */
+    @Param({ "4", "64" })
+    public int paletteSize;
+
+    /**
+     * The probability (in parts per thousand) of any given block being the one that is searched for.
+     */
+    @Param({ "0", "1", "50" })
+    public int targetPermille;
+
+    /**
+     * The number of modules which search the same section.
+     */
+    @Param({ "1", "4" })
+    public int consumers;
+
+    protected AnvilSection section;
+    protected SectionBlocks blocks;
+    protected int targetId;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(12345L);
+        this.section = new AnvilSection();
+        this.blocks = new SectionBlocks();
+        this.targetId = 56; //minecraft:diamond_ore
+
+        for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+            int id = random.nextInt(1000) < this.targetPermille ? this.targetId : 1 + random.nextInt(this.paletteSize) * 3;
+            int meta = random.nextInt(4);
+            this.section.setBlock(i, id, meta);
+        }
+    }
+
+    @Benchmark
+    public void findPerVoxel(Blackhole bh) {
+        final AnvilSection section = this.section;
+        final int id = this.targetId;
+
+        for (int consumer = 0; consumer < this.consumers; consumer++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (section.getBlockId(x, y, z) == id) {
+                            bh.consume(SectionBlocks.index(x, y, z));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void findDirect(Blackhole bh) {
+        final SectionBlocks blocks = this.blocks.bind(this.section);
+        this.find(blocks, bh);
+    }
+
+    @Benchmark
+    public void findPacked(Blackhole bh) {
+        final SectionBlocks blocks = this.blocks.bind(this.section).pack();
+        this.find(blocks, bh);
+    }
+
+    private void find(SectionBlocks blocks, Blackhole bh) {
+        final int id = this.targetId;
+
+        for (int consumer = 0; consumer < this.consumers; consumer++) {
+            if (blocks.mayContain(id)) {
+                for (int i = blocks.nextIndexOf(id, -1, 0); i >= 0; i = blocks.nextIndexOf(id, -1, i + 1)) {
+                    bh.consume(i);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int countWithMetaPerVoxel() {
+        final AnvilSection section = this.section;
+        final int id = this.targetId;
+
+        int count = 0;
+        for (int consumer = 0; consumer < this.consumers; consumer++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (section.getBlockId(x, y, z) == id && section.getBlockMeta(x, y, z) == 2) {
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countWithMetaDirect() {
+        return this.count(this.blocks.bind(this.section));
+    }
+
+    @Benchmark
+    public int countWithMetaPacked() {
+        return this.count(this.blocks.bind(this.section).pack());
+    }
+
+    private int count(SectionBlocks blocks) {
+        int count = 0;
+        for (int consumer = 0; consumer < this.consumers; consumer++) {
+            if (blocks.mayContain(this.targetId)) {
+                count += blocks.count(this.targetId, 2);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A section stored the same way as in an Anvil chunk: 8 bits of block ID, plus nibble arrays for the additional 4 bits of block ID and the
+     * block meta, which have to be unpacked on every access.
+     *
+     * @author DaPorkchop_
+     */
+    protected static final class AnvilSection implements SectionBlocks.Source {
+        protected final byte[] blocks = new byte[SectionBlocks.BLOCKS];
+        protected final byte[] add = new byte[SectionBlocks.BLOCKS >>> 1];
+        protected final byte[] meta = new byte[SectionBlocks.BLOCKS >>> 1];
+
+        public void setBlock(int index, int id, int meta) {
+            this.blocks[index] = (byte) id;
+            setNibble(this.add, index, id >>> 8);
+            setNibble(this.meta, index, meta);
+        }
+
+        @Override
+        public int getBlockId(int x, int y, int z) {
+            int index = SectionBlocks.index(x, y, z);
+            return (this.blocks[index] & 0xFF) | (getNibble(this.add, index) << 8);
+        }
+
+        @Override
+        public int getBlockMeta(int x, int y, int z) {
+            return getNibble(this.meta, SectionBlocks.index(x, y, z));
+        }
+
+        private static int getNibble(byte[] arr, int index) {
+            return (arr[index >>> 1] >>> ((index & 1) << 2)) & 0xF;
+        }
+
+        private static void setNibble(byte[] arr, int index, int value) {
+            int shift = (index & 1) << 2;
+            arr[index >>> 1] = (byte) ((arr[index >>> 1] & ~(0xF << shift)) | ((value & 0xF) << shift));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import lombok.NonNull;
+import net.daporkchop.lib.common.misc.file.PFiles;
+import net.daporkchop.savesearcher.Main;
+import net.daporkchop.savesearcher.bench.world.BenchmarkWorlds;
+import net.daporkchop.savesearcher.bench.world.SyntheticWorldGenerator;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * Runs the complete {@link Main} pipeline over a generated world and reports end-to-end throughput for each combination of modules.
+ * <p>
+ * Usage: {@code ThroughputHarness [--profile=<profile>] [--seed=<seed>] [--regions=<n>] [--runs=<n>] [--json=<file>] [--combo=<modules>]...}
+ * <p>
+ * Each {@code --combo} is a list of module arguments separated by {@code ';'}, e.g. {@code --combo=--block,id=minecraft:stone;--chest}.
+ * Additional arguments (such as {@code --format=csv_gz}) may be passed through to {@link Main} using {@code --main=<arg>}.
+ *
+ * @author DaPorkchop_
+ */
+public final class ThroughputHarness {
+    private static final List<String> DEFAULT_COMBOS = Arrays.asList(
+            "--block,id=minecraft:diamond_ore",
+            "--block,id=minecraft:coal_ore;--block,id=minecraft:iron_ore;--block,id=minecraft:gold_ore;--block,id=minecraft:diamond_ore",
+            "--chest;--spawner;--sign;--command_block",
+            "--entity;--tileentity",
+            "--biomes",
+            "--count,type=block,id=minecraft:coal_ore;--emptychunks;--netherchunks;--brokenlighting");
+
+    public static void main(String... args) throws IOException {
+        SyntheticWorldGenerator.Profile profile = SyntheticWorldGenerator.Profile.TERRAIN;
+        long seed = 0L;
+        int regions = 2;
+        int runs = 3;
+        File jsonFile = new File("throughput.json");
+        List<String> combos = new ArrayList<>();
+        List<String> mainArgs = new ArrayList<>();
+
+        for (String arg : args) {
+            String[] split = arg.split("=", 2);
+            switch (split[0]) {
+                case "--profile":
+                    profile = SyntheticWorldGenerator.Profile.valueOf(split[1].toUpperCase());
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(split[1]);
+                    break;
+                case "--regions":
+                    regions = Integer.parseInt(split[1]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(split[1]);
+                    break;
+                case "--json":
+                    jsonFile = new File(split[1]);
+                    break;
+                case "--combo":
+                    combos.add(split[1]);
+                    break;
+                case "--main":
+                    mainArgs.add(split[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Invalid argument: %s", arg));
+            }
+        }
+        if (combos.isEmpty()) {
+            combos.addAll(DEFAULT_COMBOS);
+        }
+
+        File world = BenchmarkWorlds.get(profile, seed, regions);
+        File regionDir = new File(world, "region");
+        long chunks = 0L;
+        long regionBytes = 0L;
+        for (File regionFile : PFiles.ensureDirectoryExists(regionDir).listFiles()) {
+            chunks += countChunks(regionFile);
+            regionBytes += regionFile.length();
+        }
+
+        JsonObject root = new JsonObject();
+        root.addProperty("profile", profile.name());
+        root.addProperty("seed", seed);
+        root.addProperty("regions", regions * regions);
+        root.addProperty("chunks", chunks);
+        root.addProperty("regionBytes", regionBytes);
+        root.addProperty("availableProcessors", Runtime.getRuntime().availableProcessors());
+        root.addProperty("maxHeap", Runtime.getRuntime().maxMemory());
+        JsonArray results = new JsonArray();
+        root.add("results", results);
+
+        File outDir = Files.createTempDirectory("savesearcher-throughput").toFile();
+        for (String combo : combos) {
+            JsonObject result = new JsonObject();
+            result.addProperty("modules", combo);
+            JsonArray runResults = new JsonArray();
+            result.add("runs", runResults);
+
+            for (int run = 0; run < runs; run++) {
+                List<String> argv = new ArrayList<>();
+                argv.add("--input=" + world.getAbsolutePath());
+                argv.add("--output=" + outDir.getAbsolutePath());
+                argv.add("-o");
+                argv.addAll(mainArgs);
+                argv.addAll(Arrays.asList(combo.split(";")));
+
+                System.gc();
+                List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType() == MemoryType.HEAP) {
+                        pool.resetPeakUsage();
+                        heapPools.add(pool);
+                    }
+                }
+
+                long start = System.nanoTime();
+                Main.main(argv.toArray(new String[0]));
+                long nanos = System.nanoTime() - start;
+
+                long peakHeap = 0L;
+                for (MemoryPoolMXBean pool : heapPools) {
+                    peakHeap += pool.getPeakUsage().getUsed();
+                }
+                long rows = countRows(outDir);
+                double seconds = nanos / 1_000_000_000.0d;
+
+                JsonObject runResult = new JsonObject();
+                runResult.addProperty("seconds", seconds);
+                runResult.addProperty("chunksPerSecond", chunks / seconds);
+                runResult.addProperty("regionMegabytesPerSecond", regionBytes / (1024.0d * 1024.0d) / seconds);
+                runResult.addProperty("rows", rows);
+                runResult.addProperty("rowsPerSecond", rows / seconds);
+                runResult.addProperty("peakHeap", peakHeap);
+                runResults.add(runResult);
+
+                logger.info("%s (run %d/%d): %.1f chunks/s, %.1f MB/s, %.1f rows/s, peak heap %d MiB",
+                        combo, run + 1, runs, chunks / seconds, regionBytes / (1024.0d * 1024.0d) / seconds, rows / seconds, peakHeap >> 20L);
+            }
+            results.add(result);
+        }
+        PFiles.rmContents(outDir);
+        outDir.delete();
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = Files.newBufferedWriter(PFiles.ensureFileExists(jsonFile).toPath())) {
+            gson.toJson(root, writer);
+        }
+        logger.success("Results written to %s", jsonFile.getAbsolutePath());
+    }
+
+    /**
+     * Counts the number of chunks present in a region file by reading its location table.
+     */
+    private static long countChunks(@NonNull File regionFile) throws IOException {
+        long count = 0L;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(regionFile))) {
+            for (int i = 0; i < 1024; i++) {
+                if (in.readInt() != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the number of rows written to all plain CSV files in the given directory, excluding headers.
+     */
+    private static long countRows(@NonNull File dir) throws IOException {
+        long rows = 0L;
+        for (File file : dir.listFiles()) {
+            if (file.getName().endsWith(".csv")) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                    rows += Math.max(0L, reader.lines().count() - 1L);
+                }
+            }
+        }
+        return rows;
+    }
+}
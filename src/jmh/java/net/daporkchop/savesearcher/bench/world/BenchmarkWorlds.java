@@ -0,0 +1,62 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench.world;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.common.misc.file.PFiles;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Keeps generated benchmark worlds around between runs, so that they only have to be generated once.
+ * <p>
+ * Worlds are stored in {@code ${java.io.tmpdir}/savesearcher-bench} by default, this can be changed using the {@code savesearcher.bench.dir}
+ * system property.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class BenchmarkWorlds {
+    private final File ROOT = new File(System.getProperty("savesearcher.bench.dir", new File(System.getProperty("java.io.tmpdir"), "savesearcher-bench").getPath()));
+
+    /**
+     * Gets a generated world with the given settings, generating it if necessary.
+     *
+     * @param profile the world profile
+     * @param seed    the world seed
+     * @param regions the number of regions along each horizontal axis
+     * @return the root directory of the world
+     */
+    public synchronized File get(@NonNull SyntheticWorldGenerator.Profile profile, long seed, int regions) throws IOException {
+        File dir = new File(ROOT, String.format("%s-%d-%d", profile.name().toLowerCase(), seed, regions));
+        File marker = new File(dir, "generated");
+        if (!marker.exists()) {
+            if (PFiles.checkDirectoryExists(dir)) { //partially generated, probably interrupted
+                PFiles.rmContents(dir);
+            }
+            new SyntheticWorldGenerator().profile(profile).seed(seed).regions(regions).generate(dir);
+            PFiles.ensureFileExists(marker);
+        }
+        return dir;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench.world;
+
+import lombok.NonNull;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A minimal streaming writer for the NBT format, used to write synthetic worlds without going through an in-memory tag tree.
+ *
+ * @author DaPorkchop_
+ */
+final class NBTOutput implements AutoCloseable {
+    static final int TAG_END = 0;
+    static final int TAG_BYTE = 1;
+    static final int TAG_SHORT = 2;
+    static final int TAG_INT = 3;
+    static final int TAG_LONG = 4;
+    static final int TAG_FLOAT = 5;
+    static final int TAG_DOUBLE = 6;
+    static final int TAG_BYTE_ARRAY = 7;
+    static final int TAG_STRING = 8;
+    static final int TAG_LIST = 9;
+    static final int TAG_COMPOUND = 10;
+    static final int TAG_INT_ARRAY = 11;
+
+    private final DataOutputStream out;
+
+    public NBTOutput(@NonNull OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    private NBTOutput header(int type, @NonNull String name) throws IOException {
+        this.out.writeByte(type);
+        this.out.writeUTF(name);
+        return this;
+    }
+
+    public NBTOutput beginCompound(@NonNull String name) throws IOException {
+        return this.header(TAG_COMPOUND, name);
+    }
+
+    public NBTOutput endCompound() throws IOException {
+        this.out.writeByte(TAG_END);
+        return this;
+    }
+
+    /**
+     * Begins a list tag. The given number of elements must be written using the {@code element*} methods before the enclosing compound is ended.
+     */
+    public NBTOutput beginList(@NonNull String name, int elementType, int size) throws IOException {
+        this.header(TAG_LIST, name);
+        this.out.writeByte(size == 0 ? TAG_END : elementType);
+        this.out.writeInt(size);
+        return this;
+    }
+
+    public NBTOutput putByte(@NonNull String name, int value) throws IOException {
+        this.header(TAG_BYTE, name).out.writeByte(value);
+        return this;
+    }
+
+    public NBTOutput putShort(@NonNull String name, int value) throws IOException {
+        this.header(TAG_SHORT, name).out.writeShort(value);
+        return this;
+    }
+
+    public NBTOutput putInt(@NonNull String name, int value) throws IOException {
+        this.header(TAG_INT, name).out.writeInt(value);
+        return this;
+    }
+
+    public NBTOutput putLong(@NonNull String name, long value) throws IOException {
+        this.header(TAG_LONG, name).out.writeLong(value);
+        return this;
+    }
+
+    public NBTOutput putString(@NonNull String name, @NonNull String value) throws IOException {
+        this.header(TAG_STRING, name).out.writeUTF(value);
+        return this;
+    }
+
+    public NBTOutput putByteArray(@NonNull String name, @NonNull byte[] value) throws IOException {
+        this.header(TAG_BYTE_ARRAY, name).out.writeInt(value.length);
+        this.out.write(value);
+        return this;
+    }
+
+    public NBTOutput putIntArray(@NonNull String name, @NonNull int[] value) throws IOException {
+        this.header(TAG_INT_ARRAY, name).out.writeInt(value.length);
+        for (int i : value) {
+            this.out.writeInt(i);
+        }
+        return this;
+    }
+
+    public NBTOutput elementFloat(float value) throws IOException {
+        this.out.writeFloat(value);
+        return this;
+    }
+
+    public NBTOutput elementDouble(double value) throws IOException {
+        this.out.writeDouble(value);
+        return this;
+    }
+
+    public NBTOutput elementString(@NonNull String value) throws IOException {
+        this.out.writeUTF(value);
+        return this;
+    }
+
+    /**
+     * Ends a compound element of a list of compounds. Compound elements have no header, so there is no corresponding {@code begin} method.
+     */
+    public NBTOutput endElementCompound() throws IOException {
+        return this.endCompound();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+}
@@ -0,0 +1,551 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.bench.world;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.common.misc.file.PFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates reproducible synthetic 1.12 Anvil worlds for benchmarking.
+ * <p>
+ * The same seed, size and profile will always produce byte-identical region files.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public final class SyntheticWorldGenerator {
+    public static final int AIR = 0;
+    public static final int STONE = 1;
+    public static final int GRASS = 2;
+    public static final int DIRT = 3;
+    public static final int BEDROCK = 7;
+    public static final int WATER = 9;
+    public static final int GOLD_ORE = 14;
+    public static final int IRON_ORE = 15;
+    public static final int COAL_ORE = 16;
+    public static final int OBSIDIAN = 49;
+    public static final int MOB_SPAWNER = 52;
+    public static final int CHEST = 54;
+    public static final int DIAMOND_ORE = 56;
+    public static final int STANDING_SIGN = 63;
+    public static final int PORTAL = 90;
+    public static final int COMMAND_BLOCK = 137;
+    public static final int TRAPPED_CHEST = 146;
+
+    private static final int SEA_LEVEL = 62;
+    private static final int DATA_VERSION = 1343; //1.12.2
+
+    private static final String[] ENTITY_IDS = { "minecraft:zombie", "minecraft:skeleton", "minecraft:cow", "minecraft:item", "minecraft:armor_stand" };
+    private static final String[] ITEM_IDS = { "minecraft:diamond", "minecraft:iron_ingot", "minecraft:cobblestone", "minecraft:written_book", "minecraft:shulker_box" };
+
+    /**
+     * The seed used for all random decisions.
+     */
+    private long seed = 0L;
+
+    /**
+     * The number of regions along each horizontal axis. The generated world will contain {@code regions * regions} region files, centered
+     * around the origin.
+     */
+    private int regions = 1;
+
+    /**
+     * The fraction of chunks in each region which will actually be generated.
+     */
+    private double chunkFill = 1.0d;
+
+    @NonNull
+    private Profile profile = Profile.TERRAIN;
+
+    /**
+     * Generates the world.
+     *
+     * @param root the root directory of the world. Will be created if it doesn't exist
+     * @return the number of chunks that were generated
+     */
+    public long generate(@NonNull File root) throws IOException {
+        PFiles.ensureDirectoryExists(root);
+        this.writeLevelDat(new File(root, "level.dat"));
+
+        File regionDir = PFiles.ensureDirectoryExists(new File(root, "region"));
+        int min = -(this.regions >> 1);
+        long chunks = 0L;
+        for (int regionX = min; regionX < min + this.regions; regionX++) {
+            for (int regionZ = min; regionZ < min + this.regions; regionZ++) {
+                chunks += this.writeRegion(new File(regionDir, String.format("r.%d.%d.mca", regionX, regionZ)), regionX, regionZ);
+            }
+        }
+        return chunks;
+    }
+
+    private void writeLevelDat(@NonNull File file) throws IOException {
+        try (NBTOutput out = new NBTOutput(new GZIPOutputStream(new FileOutputStream(file)))) {
+            out.beginCompound("").beginCompound("Data")
+                    .putInt("version", 19133)
+                    .putInt("DataVersion", DATA_VERSION)
+                    .putString("LevelName", String.format("synthetic-%s-%d", this.profile.name().toLowerCase(), this.seed))
+                    .putString("generatorName", "default")
+                    .putLong("RandomSeed", this.seed)
+                    .putInt("SpawnX", 0).putInt("SpawnY", 64).putInt("SpawnZ", 0)
+                    .putLong("Time", 0L).putLong("LastPlayed", 0L)
+                    .putInt("GameType", 0).putByte("Difficulty", 2).putByte("hardcore", 0)
+                    .putByte("initialized", 1).putByte("allowCommands", 1)
+                    .endCompound().endCompound();
+        }
+    }
+
+    private long writeRegion(@NonNull File file, int regionX, int regionZ) throws IOException {
+        SplittableRandom random = this.random(regionX, regionZ, 0x5EC7085L);
+
+        byte[][] chunks = new byte[1024][];
+        for (int i = 0; i < 1024; i++) {
+            if (random.nextDouble() < this.chunkFill) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try (OutputStream out = new DeflaterOutputStream(baos)) {
+                    this.writeChunk(out, (regionX << 5) + (i & 0x1F), (regionZ << 5) + (i >> 5));
+                }
+                chunks[i] = baos.toByteArray();
+            }
+        }
+
+        //lay out the chunks on disk in a shuffled order, the same as a real world which has been explored in no particular order
+        int[] order = new int[1024];
+        for (int i = 0; i < 1024; i++) {
+            order[i] = i;
+        }
+        for (int i = 1023; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        long count = 0L;
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0L);
+            byte[] header = new byte[8192];
+            int sector = 2;
+            out.seek(sector << 12);
+            for (int i : order) {
+                byte[] data = chunks[i];
+                if (data == null) {
+                    continue;
+                }
+                count++;
+
+                int sectors = (data.length + 5 + 4095) >> 12;
+                header[i << 2] = (byte) (sector >> 16);
+                header[(i << 2) + 1] = (byte) (sector >> 8);
+                header[(i << 2) + 2] = (byte) sector;
+                header[(i << 2) + 3] = (byte) sectors;
+                int timestamp = 1500000000 + random.nextInt(100000000);
+                header[4096 + (i << 2)] = (byte) (timestamp >> 24);
+                header[4096 + (i << 2) + 1] = (byte) (timestamp >> 16);
+                header[4096 + (i << 2) + 2] = (byte) (timestamp >> 8);
+                header[4096 + (i << 2) + 3] = (byte) timestamp;
+
+                out.writeInt(data.length + 1);
+                out.writeByte(2); //zlib
+                out.write(data);
+                out.write(new byte[(sectors << 12) - data.length - 5]); //pad to sector boundary
+                sector += sectors;
+            }
+            out.seek(0L);
+            out.write(header);
+        }
+        return count;
+    }
+
+    private void writeChunk(@NonNull OutputStream stream, int chunkX, int chunkZ) throws IOException {
+        SplittableRandom random = this.random(chunkX, chunkZ, 0xC4A9C5L);
+        ChunkData chunk = new ChunkData();
+        this.profile.populate(this, chunk, random, chunkX, chunkZ);
+
+        try (NBTOutput out = new NBTOutput(stream)) {
+            out.beginCompound("").putInt("DataVersion", DATA_VERSION).beginCompound("Level")
+                    .putInt("xPos", chunkX).putInt("zPos", chunkZ)
+                    .putLong("LastUpdate", 0L).putLong("InhabitedTime", random.nextInt(100000))
+                    .putByte("TerrainPopulated", 1).putByte("LightPopulated", 1).putByte("V", 1)
+                    .putByteArray("Biomes", chunk.biomes)
+                    .putIntArray("HeightMap", chunk.heightMap);
+
+            int sectionCount = 0;
+            for (byte[] blocks : chunk.blocks) {
+                if (blocks != null) {
+                    sectionCount++;
+                }
+            }
+            out.beginList("Sections", NBTOutput.TAG_COMPOUND, sectionCount);
+            for (int y = 0; y < 16; y++) {
+                if (chunk.blocks[y] != null) {
+                    out.putByte("Y", y)
+                            .putByteArray("Blocks", chunk.blocks[y])
+                            .putByteArray("Data", chunk.meta[y])
+                            .putByteArray("BlockLight", new byte[2048])
+                            .putByteArray("SkyLight", chunk.skyLight[y])
+                            .endElementCompound();
+                }
+            }
+
+            out.beginList("TileEntities", NBTOutput.TAG_COMPOUND, chunk.tileEntities.size());
+            for (NBTWriter writer : chunk.tileEntities) {
+                writer.write(out);
+                out.endElementCompound();
+            }
+
+            out.beginList("Entities", NBTOutput.TAG_COMPOUND, chunk.entities.size());
+            for (NBTWriter writer : chunk.entities) {
+                writer.write(out);
+                out.endElementCompound();
+            }
+
+            out.endCompound().endCompound();
+        }
+    }
+
+    private SplittableRandom random(int x, int z, long salt) {
+        return new SplittableRandom(this.seed ^ salt ^ (x * 0x9E3779B97F4A7C15L) ^ (z * 0xC2B2AE3D27D4EB4FL));
+    }
+
+    private int height(int blockX, int blockZ) {
+        double phase = (this.seed & 0xFFFF) / 1000.0d;
+        return 64 + (int) (8.0d * Math.sin(blockX / 23.0d + phase) + 6.0d * Math.cos(blockZ / 17.0d - phase) + 3.0d * Math.sin((blockX + blockZ) / 7.0d));
+    }
+
+    private void generateTerrain(@NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ) {
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int height = this.height((chunkX << 4) + x, (chunkZ << 4) + z);
+                chunk.setBlock(x, 0, z, BEDROCK, 0);
+                for (int y = 1; y < height - 3; y++) {
+                    chunk.setBlock(x, y, z, STONE, 0);
+                }
+                for (int y = height - 3; y < height; y++) {
+                    chunk.setBlock(x, y, z, DIRT, 0);
+                }
+                chunk.setBlock(x, height, z, height < SEA_LEVEL ? DIRT : GRASS, 0);
+                for (int y = height + 1; y <= SEA_LEVEL; y++) {
+                    chunk.setBlock(x, y, z, WATER, 0);
+                }
+                chunk.heightMap[(z << 4) | x] = Math.max(height, SEA_LEVEL) + 1;
+                chunk.biomes[(z << 4) | x] = (byte) (height < SEA_LEVEL ? 0 : 1 + random.nextInt(3));
+            }
+        }
+
+        this.generateOres(chunk, random, COAL_ORE, 20, 128);
+        this.generateOres(chunk, random, IRON_ORE, 10, 64);
+        this.generateOres(chunk, random, GOLD_ORE, 2, 32);
+        this.generateOres(chunk, random, DIAMOND_ORE, 1, 16);
+
+        if (random.nextInt(64) == 0) { //nether chunk
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    chunk.setBlock(x, 127, z, BEDROCK, 0);
+                }
+            }
+        }
+        chunk.computeSkyLight(random.nextInt(32) == 0);
+    }
+
+    private void generateOres(@NonNull ChunkData chunk, @NonNull SplittableRandom random, int id, int veins, int maxY) {
+        for (int i = 0; i < veins; i++) {
+            int x = random.nextInt(16);
+            int y = 1 + random.nextInt(maxY - 1);
+            int z = random.nextInt(16);
+            for (int j = random.nextInt(8); j >= 0; j--) {
+                if (chunk.getBlockId(x, y, z) == STONE) {
+                    chunk.setBlock(x, y, z, id, 0);
+                }
+                x = Math.max(0, Math.min(15, x + random.nextInt(3) - 1));
+                y = Math.max(1, Math.min(maxY, y + random.nextInt(3) - 1));
+                z = Math.max(0, Math.min(15, z + random.nextInt(3) - 1));
+            }
+        }
+    }
+
+    private void generateStructures(@NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ, int scale) {
+        for (int i = random.nextInt(scale * 2); i > 0; i--) { //chests, some of them double
+            int x = random.nextInt(15);
+            int z = random.nextInt(16);
+            int y = chunk.surface(x, z);
+            int id = random.nextInt(4) == 0 ? TRAPPED_CHEST : CHEST;
+            this.placeChest(chunk, random, chunkX, chunkZ, x, y, z, id);
+            if (random.nextBoolean()) {
+                this.placeChest(chunk, random, chunkX, chunkZ, x + 1, y, z, id);
+            }
+        }
+        for (int i = random.nextInt(scale); i > 0; i--) { //spawners
+            int x = random.nextInt(16);
+            int y = 10 + random.nextInt(30);
+            int z = random.nextInt(16);
+            String entity = ENTITY_IDS[random.nextInt(3)];
+            chunk.setBlock(x, y, z, MOB_SPAWNER, 0);
+            chunk.tileEntities.add(out -> out.putString("id", "minecraft:mob_spawner")
+                    .putInt("x", (chunkX << 4) + x).putInt("y", y).putInt("z", (chunkZ << 4) + z)
+                    .putShort("Delay", 20)
+                    .beginCompound("SpawnData").putString("id", entity).endCompound()
+                    .beginList("SpawnPotentials", NBTOutput.TAG_COMPOUND, 1)
+                    .beginCompound("Entity").putString("id", entity).endCompound().putInt("Weight", 1).endElementCompound());
+        }
+        for (int i = random.nextInt(scale); i > 0; i--) { //signs
+            int x = random.nextInt(16);
+            int z = random.nextInt(16);
+            int y = chunk.surface(x, z);
+            int rotation = random.nextInt(16);
+            chunk.setBlock(x, y, z, STANDING_SIGN, rotation);
+            chunk.tileEntities.add(out -> out.putString("id", "minecraft:sign")
+                    .putInt("x", (chunkX << 4) + x).putInt("y", y).putInt("z", (chunkZ << 4) + z)
+                    .putString("Text1", "{\"text\":\"synthetic\"}").putString("Text2", String.format("{\"text\":\"%d\"}", rotation))
+                    .putString("Text3", "{\"text\":\"\"}").putString("Text4", "{\"text\":\"\\u00a7cformatted\"}"));
+        }
+        if (random.nextInt(Math.max(1, 64 / scale)) == 0) { //command block
+            int x = random.nextInt(16);
+            int z = random.nextInt(16);
+            int y = 5;
+            chunk.setBlock(x, y, z, COMMAND_BLOCK, 0);
+            chunk.tileEntities.add(out -> out.putString("id", "minecraft:command_block")
+                    .putInt("x", (chunkX << 4) + x).putInt("y", y).putInt("z", (chunkZ << 4) + z)
+                    .putString("Command", "/say hello").putString("LastOutput", "{\"text\":\"[00:00:00] hello\"}"));
+        }
+        if (random.nextInt(Math.max(1, 128 / scale)) == 0) { //nether portal, possibly broken
+            int x0 = random.nextInt(12);
+            int z = random.nextInt(16);
+            int y0 = chunk.surface(x0, z);
+            for (int x = x0; x < x0 + 4; x++) {
+                for (int y = y0; y < y0 + 5; y++) {
+                    boolean frame = x == x0 || x == x0 + 3 || y == y0 || y == y0 + 4;
+                    chunk.setBlock(x, y, z, frame ? OBSIDIAN : PORTAL, frame ? 0 : 1);
+                }
+            }
+            if (random.nextBoolean()) {
+                chunk.setBlock(x0, y0 + 2, z, AIR, 0);
+            }
+        }
+    }
+
+    private void placeChest(@NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ, int x, int y, int z, int id) {
+        int items = random.nextInt(27);
+        long itemSeed = random.nextLong();
+        chunk.setBlock(x, y, z, id, 2);
+        chunk.tileEntities.add(out -> {
+            SplittableRandom itemRandom = new SplittableRandom(itemSeed);
+            out.putString("id", id == TRAPPED_CHEST ? "minecraft:trapped_chest" : "minecraft:chest")
+                    .putInt("x", (chunkX << 4) + x).putInt("y", y).putInt("z", (chunkZ << 4) + z)
+                    .beginList("Items", NBTOutput.TAG_COMPOUND, items);
+            for (int slot = 0; slot < items; slot++) {
+                out.putByte("Slot", slot)
+                        .putString("id", ITEM_IDS[itemRandom.nextInt(ITEM_IDS.length)])
+                        .putByte("Count", 1 + itemRandom.nextInt(64))
+                        .putShort("Damage", 0)
+                        .endElementCompound();
+            }
+        });
+    }
+
+    private void generateEntities(@NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ, int count) {
+        for (int i = 0; i < count; i++) {
+            String id = ENTITY_IDS[random.nextInt(ENTITY_IDS.length)];
+            double x = (chunkX << 4) + random.nextDouble() * 16.0d;
+            double z = (chunkZ << 4) + random.nextDouble() * 16.0d;
+            double y = chunk.surface((int) x & 0xF, (int) z & 0xF);
+            long uuidMost = random.nextLong();
+            long uuidLeast = random.nextLong();
+            String item = ITEM_IDS[random.nextInt(ITEM_IDS.length)];
+            chunk.entities.add(out -> {
+                out.putString("id", id)
+                        .beginList("Pos", NBTOutput.TAG_DOUBLE, 3).elementDouble(x).elementDouble(y).elementDouble(z)
+                        .beginList("Motion", NBTOutput.TAG_DOUBLE, 3).elementDouble(0.0d).elementDouble(0.0d).elementDouble(0.0d)
+                        .beginList("Rotation", NBTOutput.TAG_FLOAT, 2).elementFloat(0.0f).elementFloat(0.0f)
+                        .putLong("UUIDMost", uuidMost).putLong("UUIDLeast", uuidLeast)
+                        .putShort("Fire", -1).putShort("Air", 300).putByte("OnGround", 1);
+                if ("minecraft:item".equals(id)) {
+                    out.beginCompound("Item").putString("id", item).putByte("Count", 1).putShort("Damage", 0).endCompound();
+                }
+            });
+        }
+    }
+
+    /**
+     * The kinds of worlds that can be generated.
+     *
+     * @author DaPorkchop_
+     */
+    public enum Profile {
+        /**
+         * Random terrain with ores and the occasional chest, spawner, sign, portal or command block.
+         */
+        TERRAIN {
+            @Override
+            protected void populate(@NonNull SyntheticWorldGenerator generator, @NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ) {
+                generator.generateTerrain(chunk, random, chunkX, chunkZ);
+                generator.generateStructures(chunk, random, chunkX, chunkZ, 1);
+                generator.generateEntities(chunk, random, chunkX, chunkZ, random.nextInt(3));
+            }
+        },
+        /**
+         * Random terrain densely packed with tile entities.
+         */
+        TILE_ENTITIES {
+            @Override
+            protected void populate(@NonNull SyntheticWorldGenerator generator, @NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ) {
+                generator.generateTerrain(chunk, random, chunkX, chunkZ);
+                generator.generateStructures(chunk, random, chunkX, chunkZ, 16);
+            }
+        },
+        /**
+         * Random terrain with lots of entities.
+         */
+        ENTITIES {
+            @Override
+            protected void populate(@NonNull SyntheticWorldGenerator generator, @NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ) {
+                generator.generateTerrain(chunk, random, chunkX, chunkZ);
+                generator.generateEntities(chunk, random, chunkX, chunkZ, 64);
+            }
+        },
+        /**
+         * Mostly empty chunks: some have no sections at all, some have sections consisting entirely of air, and the rest contain regular terrain.
+         */
+        EMPTY {
+            @Override
+            protected void populate(@NonNull SyntheticWorldGenerator generator, @NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ) {
+                switch (random.nextInt(4)) {
+                    case 0: //no sections at all
+                        break;
+                    case 1: //air-only sections
+                        for (int y = random.nextInt(4); y >= 0; y--) {
+                            chunk.section(y);
+                        }
+                        chunk.computeSkyLight(false);
+                        break;
+                    case 2: //bedrock only
+                        for (int x = 0; x < 16; x++) {
+                            for (int z = 0; z < 16; z++) {
+                                chunk.setBlock(x, 0, z, BEDROCK, 0);
+                            }
+                        }
+                        chunk.computeSkyLight(false);
+                        break;
+                    default:
+                        generator.generateTerrain(chunk, random, chunkX, chunkZ);
+                }
+            }
+        };
+
+        protected abstract void populate(@NonNull SyntheticWorldGenerator generator, @NonNull ChunkData chunk, @NonNull SplittableRandom random, int chunkX, int chunkZ);
+    }
+
+    /**
+     * Writes some NBT data.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    private interface NBTWriter {
+        void write(@NonNull NBTOutput out) throws IOException;
+    }
+
+    /**
+     * The contents of a single chunk while it's being generated.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class ChunkData {
+        private final byte[][] blocks = new byte[16][];
+        private final byte[][] meta = new byte[16][];
+        private final byte[][] skyLight = new byte[16][];
+        private final byte[] biomes = new byte[256];
+        private final int[] heightMap = new int[256];
+        private final List<NBTWriter> tileEntities = new ArrayList<>();
+        private final List<NBTWriter> entities = new ArrayList<>();
+
+        private int section(int sectionY) {
+            if (this.blocks[sectionY] == null) {
+                this.blocks[sectionY] = new byte[4096];
+                this.meta[sectionY] = new byte[2048];
+                this.skyLight[sectionY] = new byte[2048];
+            }
+            return sectionY;
+        }
+
+        private int getBlockId(int x, int y, int z) {
+            byte[] blocks = this.blocks[y >> 4];
+            return blocks != null ? blocks[((y & 0xF) << 8) | (z << 4) | x] & 0xFF : AIR;
+        }
+
+        private void setBlock(int x, int y, int z, int id, int meta) {
+            int sectionY = this.section(y >> 4);
+            int index = ((y & 0xF) << 8) | (z << 4) | x;
+            this.blocks[sectionY][index] = (byte) id;
+            setNibble(this.meta[sectionY], index, meta);
+        }
+
+        private int surface(int x, int z) {
+            for (int y = 254; y > 0; y--) {
+                if (this.getBlockId(x, y, z) != AIR) {
+                    return y + 1;
+                }
+            }
+            return 1;
+        }
+
+        /**
+         * Fills in sky light: full brightness above the highest non-air block in each column, darkness below it.
+         *
+         * @param broken if {@code true}, the sky light will be left dark everywhere
+         */
+        private void computeSkyLight(boolean broken) {
+            if (broken) {
+                return;
+            }
+            for (int x = 0; x < 16; x++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int y = 255; y >= 0 && this.getBlockId(x, y, z) == AIR; y--) {
+                        if (this.skyLight[y >> 4] != null) {
+                            setNibble(this.skyLight[y >> 4], ((y & 0xF) << 8) | (z << 4) | x, 15);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void setNibble(byte[] arr, int index, int value) {
+            int shift = (index & 1) << 2;
+            arr[index >> 1] = (byte) ((arr[index >> 1] & ~(0xF << shift)) | ((value & 0xF) << shift));
+        }
+    }
+}
@@ -19,6 +19,8 @@
 
 package net.daporkchop.savesearcher;
 
+import lombok.NonNull;
+import lombok.ToString;
 import net.daporkchop.lib.common.function.io.IOConsumer;
 import net.daporkchop.lib.common.misc.file.PFiles;
 import net.daporkchop.lib.common.system.OperatingSystem;
@@ -38,7 +40,14 @@ import net.daporkchop.lib.minecraft.world.format.anvil.region.RegionFile;
 import net.daporkchop.lib.minecraft.world.format.anvil.region.RegionOpenOptions;
 import net.daporkchop.lib.minecraft.world.impl.MinecraftSaveConfig;
 import net.daporkchop.lib.minecraft.world.impl.SaveBuilder;
+import net.daporkchop.savesearcher.checkpoint.Checkpointer;
+import net.daporkchop.savesearcher.incremental.IncrementalScan;
+import net.daporkchop.savesearcher.index.BlockIndex;
+import net.daporkchop.savesearcher.index.IndexFilter;
+import net.daporkchop.savesearcher.io.RegionReadAhead;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.module.merging.AbstractNeighboringSearchModule;
 import net.daporkchop.savesearcher.module.impl.chest.ChestModule;
 import net.daporkchop.savesearcher.module.impl.entity.EntityModule;
 import net.daporkchop.savesearcher.module.impl.BrokenLightingModule;
@@ -52,11 +61,21 @@ import net.daporkchop.savesearcher.module.impl.SpawnerModule;
 import net.daporkchop.savesearcher.module.impl.block.BlockModule;
 import net.daporkchop.savesearcher.module.impl.count.CountBlocksModule;
 import net.daporkchop.savesearcher.module.impl.tileentity.TileEntityModule;
+import net.daporkchop.savesearcher.neighbor.NeighborChunkCache;
+import net.daporkchop.savesearcher.output.AsyncOutputHandle;
+import net.daporkchop.savesearcher.output.FlushableOutputHandle;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.output.columnar.ColumnarOutputHandle;
 import net.daporkchop.savesearcher.output.csv.CSVOutputHandle;
 import net.daporkchop.savesearcher.output.csv.CompressedCSVOutputHandle;
+import net.daporkchop.savesearcher.output.csv.SpatialCSVOutputHandle;
+import net.daporkchop.savesearcher.spatial.SpatialQuery;
+import net.daporkchop.savesearcher.stats.ScanStats;
 import net.daporkchop.savesearcher.tileentity.TileEntityCommandBlock;
 import net.daporkchop.savesearcher.tileentity.TileEntitySpawner;
+import net.daporkchop.savesearcher.util.ChunkSkimmer;
+import net.daporkchop.savesearcher.util.RegionHeader;
+import net.daporkchop.savesearcher.util.RegionScheduler;
 import net.daporkchop.savesearcher.util.Version;
 
 import java.io.File;
@@ -99,6 +118,15 @@ public class Main {
         {
             this.put("csv", CSVOutputHandle::new);
             this.put("csv_gz", CompressedCSVOutputHandle::new);
+            this.put("columnar", ColumnarOutputHandle::new);
+            this.put("csv_spatial", SpatialCSVOutputHandle::new);
+        }
+    };
+
+    private static final Map<String, Function<File, FlushableOutputHandle>> RESUMABLE_OUTPUTS = new HashMap<String, Function<File, FlushableOutputHandle>>() {
+        {
+            this.put("csv", parent -> new CSVOutputHandle(parent, true));
+            this.put("csv_gz", parent -> new CompressedCSVOutputHandle(parent, true));
         }
     };
 
@@ -110,6 +138,11 @@ public class Main {
             System.exit(1);
         });
 
+        if (args.length != 0 && "query".equals(args[0])) {
+            SpatialQuery.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         if (!Zlib.PROVIDER.isNative()) {
             logger.warn("Native zlib couldn't be loaded! Only supported on x86_64-linux-gnu, x86-linux-gnu and x86_64-w64-mingw32")
                     .warn("This could have significant performance implications!");
@@ -127,18 +160,41 @@ public class Main {
                     .info("--input=<path>                      Sets the input world path (required)")
                     .info("--dim=<dimension id>                Sets the dimension (world) id to scan. default=0")
                     .info("--verbose                           Print status updates to console")
-                    .info("--format=<format>                   Sets the format that the output data will be written in. valid formats=csv,csv_gz default=csv")
+                    .info("--format=<format>                   Sets the format that the output data will be written in. valid formats=csv,csv_gz,columnar,csv_spatial default=csv")
+                    .info("                                      csv_spatial additionally writes a spatial index of the rows which can be searched using the query subcommand.")
+                    .info("--threads=<count>                   Sets the number of threads to scan with. default=number of available processors")
+                    .info("--io=<mode>                         Sets how chunks are read from region files. valid modes=mmap,prefetch,sequential default=mmap")
+                    .info("                                      mmap reads chunks through page faults as they are decoded. prefetch and sequential read all chunks of a")
+                    .info("                                      region which will be visited ahead of time in on-disk order. prefetch faults in memory-mapped ranges on a")
+                    .info("                                      separate thread while the region is being scanned, sequential uses large positional reads before scanning")
+                    .info("                                      the region. Recommended for spinning disks and network storage.")
+                    .info("--neighborCache=<MiB>               Sets the amount of memory used to cache the borders of neighboring chunks for modules which need to access")
+                    .info("                                      them (--chest,double=true and --brokenportals). default=" + (NeighborChunkCache.DEFAULT_BUDGET >> 20L))
+                    .info("--syncOutput                        Write output data directly from the scanning threads instead of on a dedicated writer thread per module.")
                     .info("--output=<path>                     Set the root directory that output data will be written to. default=./scanresult/")
                     .info("--minChunkX=<value>                 Limits the area of the world to scan by setting the minimum/maximum X/Z coordinate to scan. Both minimum and")
                     .info("--maxChunkX=<value>                   maximum values are inclusive, and are measured in chunks. If unset, the minimum/maximum values default to")
                     .info("--minChunkZ=<value>                   negative/positive infinity, respectively.")
                     .info("--maxChunkZ=<value>")
+                    .info("--checkpoint                        Record each completed region in a journal in the output directory, allowing the scan to be resumed if it is")
+                    .info("                                      interrupted. Only supported by the csv and csv_gz formats.")
+                    .info("--resume                            Resume an interrupted scan which was started with --checkpoint. All other options must be the same as")
+                    .info("                                      for the original scan.")
+                    .info("--incremental                       Only scan chunks which have changed since the last scan into the same output directory, and merge the results")
+                    .info("                                      with the previous output. If any other options have changed since the last scan, everything is scanned again.")
+                    .info("                                      Only supported by the csv and csv_gz formats.")
+                    .info("--index=<path>                      Use the block index in the given directory to skip chunks which can't contain any results. Only supported by")
+                    .info("                                      the --block and --count,type=block modules, chunks are only skipped if all enabled modules support it.")
+                    .info("--buildIndex                        Build or update the block index given by --index for all scanned chunks. May be used without any modules.")
+                    .info("--stats=<path>                      Measures the time spent, chunks processed, memory allocated and rows output by each module, prints a summary once")
+                    .info("                                      the scan is complete and writes the full breakdown as JSON to the given file. Measuring adds some overhead.")
                     .info("")
                     .info("MODULES")
                     .info("--block,id=<id>(,meta=<meta>)       Scan for a certain block id+meta, saving coordinates. Block ids should be in format 'minecraft:stone'. Meta must be 0-15, by default")
                     .info("      (,min=<min>)(,max=<max>)        it's ignored. Both min and max values are inclusive, and default to min=0 and max=255 if not given. Adding the invert flag will cause")
                     .info("      (,invert=<true/false>)          a search for block coordinates where the given block id+meta does not occur. Adding the chunkinvert flag will cause a search for chunk")
-                    .info("      (,chunkinvert=<true/false>)     coordinates where the given block id+meta does not occur. invert and chunkinvert may not be used together.")
+                    .info("      (,chunkinvert=<true/false>)     coordinates where the given block id+meta does not occur. invert and chunkinvert may not be used together. Adding the runs flag")
+                    .info("      (,runs=<true/false>)            together with invert saves vertical runs of matching blocks (x, z, yStart, yEnd) instead of every single block.")
                     .info("--count,type=<type>(,id=<id>)       Counts the number of occurrences of the given type in each chunk, saving chunk coordinates and count. Valid types: block, tileentity. id")
                     .info("      (,meta=<meta>)                  is required for block, optional for tileentity. meta is optional for block, not allowed for tileentity.")
                     .info("--chest(,double=<true/false>)       Scan for (double) chests, saving coordinates and whether or not they're trapped, and optionally the ID+meta of the block above them.")
@@ -153,7 +209,9 @@ public class Main {
                     .info("--tileentity(,<id>)                 Scan for tile-entities, optionally filtering based on entity ID and saving coordinates and NBT data.")
                     .info("--command_block(,<command_regex>)   Scan for command blocks, optionally filtering based on commands that match a given regex and saving coordinates, command, and last output.")
                     .info("--brokenlighting                    Scan for chunks with broken sky lighting, saving chunk coordinates. Can optionally create a PendingLight.dat file compatible")
-                    .info("       (,lightcleaner=<path>)         with LightCleaner (Spigot plugin).");
+                    .info("       (,lightcleaner=<path>)         with LightCleaner (Spigot plugin).")
+                    .info("");
+            SpatialQuery.printHelp();
 
             return;
         } else {
@@ -175,7 +233,17 @@ public class Main {
         ScanRange range = new ScanRange();
         boolean verbose = false;
         boolean overwrite = false;
+        boolean syncOutput = false;
+        boolean checkpoint = false;
+        boolean resume = false;
+        boolean incremental = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File indexDir = null;
+        boolean buildIndex = false;
         String formatName = "csv";
+        File statsFile = null;
+        RegionReadAhead.Mode ioMode = RegionReadAhead.Mode.MMAP;
+        long neighborCacheBudget = NeighborChunkCache.DEFAULT_BUDGET;
         List<SearchModule> modules = new ArrayList<>();
         for (String s : args) {
             if (s.isEmpty()) {
@@ -198,6 +266,37 @@ public class Main {
                 case "-o":
                     overwrite = true;
                     continue;
+                case "--stats":
+                    statsFile = new File(split[1]);
+                    continue;
+                case "--checkpoint":
+                    checkpoint = true;
+                    continue;
+                case "--resume":
+                    resume = true;
+                    continue;
+                case "--threads":
+                case "-t":
+                    threads = Integer.parseInt(split[1]);
+                    continue;
+                case "--io":
+                    ioMode = RegionReadAhead.Mode.fromName(split[1]);
+                    continue;
+                case "--index":
+                    indexDir = new File(split[1]);
+                    continue;
+                case "--buildIndex":
+                    buildIndex = true;
+                    continue;
+                case "--incremental":
+                    incremental = true;
+                    continue;
+                case "--neighborCache":
+                    neighborCacheBudget = Long.parseLong(split[1]) << 20L;
+                    continue;
+                case "--syncOutput":
+                    syncOutput = true;
+                    continue;
                 case "--dim":
                     dim = Integer.parseInt(split[1]);
                     continue;
@@ -218,13 +317,11 @@ public class Main {
                     range.regionMaxZ = (range.chunkMaxZ = Integer.parseInt(split[1])) >> 5;
                     continue;
             }
-            split = s.split(",");
-            Function<String[], SearchModule> function = REGISTERED_MODULES.get(split[0]);
-            if (function == null) {
-                logger.error("Invalid module: %s", split[0]);
+            SearchModule module = parseModule(s);
+            if (module == null) {
+                logger.error("Invalid module: %s", s.split(",")[0]);
                 System.exit(1);
             }
-            SearchModule module = function.apply(Arrays.copyOfRange(split, 1, split.length));
             if (modules.contains(module)) {
                 logger.warn("Duplicate argument: \"%s\"!", s);
             } else {
@@ -235,12 +332,32 @@ public class Main {
         if (worldFile == null) {
             logger.error("World path not set!");
             System.exit(1);
-        } else if (modules.isEmpty()) {
+        } else if (threads <= 0) {
+            logger.error("Thread count must be positive!");
+            System.exit(1);
+        } else if (neighborCacheBudget < 0L) {
+            logger.error("Neighbor cache size must not be negative!");
+            System.exit(1);
+        } else if (buildIndex && indexDir == null) {
+            logger.error("--buildIndex requires an index path to be set using --index!");
+            System.exit(1);
+        } else if (modules.isEmpty() && !buildIndex) {
             logger.error("No modules enabled!");
             System.exit(1);
         }
 
-        if (PFiles.checkDirectoryExists(outDir)) {
+        if (resume) {
+            if (overwrite) {
+                logger.error("--resume and -o may not be used together!");
+                System.exit(1);
+            } else if (!Checkpointer.exists(outDir)) {
+                logger.error("Output directory \"%s\" does not contain a checkpoint to resume from!", outDir.getAbsolutePath())
+                        .error("Only scans started with --checkpoint can be resumed.");
+                System.exit(1);
+            }
+        } else if (incremental && !overwrite && IncrementalScan.hasManifest(outDir)) {
+            //the previous output will be updated
+        } else if (PFiles.checkDirectoryExists(outDir)) {
             if (overwrite) {
                 logger.warn("Deleting contents of \"%s\" as -o is enabled...", outDir.getAbsolutePath());
                 PFiles.rmContents(outDir);
@@ -256,6 +373,15 @@ public class Main {
                     .error("Valid output formats are:");
             REGISTERED_OUTPUTS.forEach((name, factory) -> logger.error("  %s", name));
             System.exit(1);
+        } else if ((checkpoint || resume) && !RESUMABLE_OUTPUTS.containsKey(formatName)) {
+            logger.error("Output format \"%s\" does not support checkpointing!", formatName);
+            System.exit(1);
+        } else if (incremental && !RESUMABLE_OUTPUTS.containsKey(formatName)) {
+            logger.error("Output format \"%s\" does not support incremental scans!", formatName);
+            System.exit(1);
+        } else if (incremental && (checkpoint || resume)) {
+            logger.error("--incremental may not be used together with --checkpoint or --resume!");
+            System.exit(1);
         }
 
         logger.info("Beginning scan of world %s with %d modules enabled.", worldFile.getAbsolutePath(), modules.size())
@@ -265,24 +391,81 @@ public class Main {
         long time = System.currentTimeMillis();
         LongAdder count = new LongAdder();
         Set<Vec2i> regionPositions = ConcurrentHashMap.newKeySet();
-        try (MinecraftSave save = new SaveBuilder()
-                .setInitFunctions(new MinecraftSaveConfig()
-                        .openOptions(new RegionOpenOptions().access(RegionFile.Access.READ_ONLY).mode(RegionFile.Mode.MMAP_FULL))
-                        .tileEntityFactory(TileEntityRegistry.builder(TileEntityRegistry.defaultRegistry())
-                                .add(TileEntityCommandBlock.ID, TileEntityCommandBlock::new)
-                                .add(TileEntitySpawner.ID, TileEntitySpawner::new)
-                                .build()))
-                .setFormat(new AnvilSaveFormat(worldFile)).build()) {
+        ScanStats stats = statsFile != null ? new ScanStats() : null;
+        String config = String.format("world=%s dim=%d format=%s range=%s modules=%s", worldFile.getAbsolutePath(), dim, formatName, range, modules);
+        IncrementalScan incrementalScan = incremental
+                ? IncrementalScan.prepare(outDir, RegionHeader.regionDirectory(worldFile, dim), config, modules.stream().anyMatch(NeighboringChunkProcessor.class::isInstance))
+                : null;
+        if (incrementalScan != null) {
+            if (incrementalScan.hasPrevious()) {
+                logger.info("Incremental scan: %d/%d chunks need to be rescanned since the last scan.", incrementalScan.dirtyChunks(), incrementalScan.totalChunks());
+            } else {
+                logger.info("Incremental scan: no previous scan with the same configuration found, scanning everything.");
+            }
+        }
+
+        try (MinecraftSave save = openSave(worldFile);
+             Checkpointer checkpointer = resume ? Checkpointer.resume(outDir, config) : checkpoint ? Checkpointer.create(outDir, config) : null) {
             World world = save.world(dim);
             if (world == null) {
                 throw new IllegalArgumentException(String.format("Invalid dimension: %d", dim));
             }
 
+            NeighborChunkCache neighborCache = new NeighborChunkCache(neighborCacheBudget);
+            boolean neighboring = false;
             for (SearchModule module : modules) {
-                module.init(world, REGISTERED_OUTPUTS.get(formatName).apply(outDir));
+                if (module instanceof AbstractNeighboringSearchModule) {
+                    ((AbstractNeighboringSearchModule<?>) module).neighborCache(neighborCache);
+                    neighboring = true;
+                }
+
+                OutputHandle handle;
+                if (checkpointer != null) { //output is already batched per region, so there's no need for an asynchronous handle
+                    handle = checkpointer.wrap(RESUMABLE_OUTPUTS.get(formatName).apply(outDir));
+                } else {
+                    handle = REGISTERED_OUTPUTS.get(formatName).apply(outDir);
+                    if (!syncOutput) {
+                        handle = new AsyncOutputHandle(handle);
+                    }
+                }
+                module.init(world, stats != null ? stats.countRows(module, handle) : handle);
+            }
+
+            BlockIndex blockIndex = indexDir != null ? new BlockIndex(indexDir, RegionHeader.regionDirectory(worldFile, dim)) : null;
+            BlockIndex.Builder indexBuilder = buildIndex ? blockIndex.builder() : null;
+            List<IndexFilter> indexFilters = new ArrayList<>();
+            if (blockIndex != null && !buildIndex) {
+                for (SearchModule module : modules) {
+                    IndexFilter filter = module.indexFilter();
+                    if (filter == null) {
+                        logger.warn("Module %s doesn't support the block index, all chunks will be scanned.", module);
+                        indexFilters = null;
+                        break;
+                    }
+                    indexFilters.add(filter);
+                }
+            } else {
+                indexFilters = null;
+            }
+            List<IndexFilter> finalIndexFilters = indexFilters;
+
+            //if no module needs data which every chunk has, chunks without any required data can be skipped before they are decoded
+            ChunkRequirements requirements = modules.stream().map(SearchModule::requirements).reduce(ChunkRequirements.NONE, ChunkRequirements::or);
+            ChunkSkimmer skimmer = indexBuilder == null && ChunkSkimmer.isApplicable(requirements) ? new ChunkSkimmer(requirements) : null;
+            File regionDir = RegionHeader.regionDirectory(worldFile, dim);
+            RegionReadAhead readAhead = new RegionReadAhead(ioMode, threads);
+            logger.debug("Chunk requirements: %s (skimming %s)", requirements, skimmer != null ? "enabled" : "disabled");
+
+            if (checkpointer != null) {
+                checkpointer.start();
+                if (resume) {
+                    logger.info("Resuming scan, %d regions were already completed.", checkpointer.completedRegionCount());
+                }
             }
 
             List<SearchModule> mergedModules = SearchModule.merge(modules, SearchModule::merge);
+            RegionScheduler scheduler = new RegionScheduler(threads, regionDir,
+                    mergedModules.stream().anyMatch(NeighboringChunkProcessor.class::isInstance));
 
             WorldScanner scanner = new WorldScanner(world) {
                 @Override
@@ -298,18 +481,29 @@ public class Main {
                 protected Collection<Vec2i> getRegionPositions(AnvilWorldManager anvilWorldManager) {
                     Collection<Vec2i> regions = super.getRegionPositions(anvilWorldManager);
                     regions.removeIf(range::excludesRegion);
-                    return regions;
+                    if (incrementalScan != null) {
+                        regions.removeIf(regionPos -> !incrementalScan.hasChanges(regionPos.getX(), regionPos.getY()));
+                    }
+                    if (checkpointer != null) {
+                        regions.removeIf(regionPos -> checkpointer.isCompleted(regionPos.getX(), regionPos.getY()));
+                    }
+                    return scheduler.schedule(regions);
                 }
 
                 @Override
                 protected void maskVisitableChunksInRegion(int regionX, int regionZ, int baseChunkX, int baseChunkZ, BitSet mask) {
                     super.maskVisitableChunksInRegion(regionX, regionZ, baseChunkX, baseChunkZ, mask);
 
-                    if (range.excludesRegion(regionX, regionZ)) { //the region isn't being processed, skip it entirely
+                    if (range.excludesRegion(regionX, regionZ) //the region isn't being processed, skip it entirely
+                        || (checkpointer != null && checkpointer.isCompleted(regionX, regionZ))) { //the region was completed by a previous run
                         mask.clear();
                         return;
                     }
 
+                    if (checkpointer != null) { //rows emitted for skipped chunks belong to this region
+                        checkpointer.beginRegionMask(regionX, regionZ);
+                    }
+
                     //skip chunks outside the configured range
                     for (int x = 0; x < 32; x++) {
                         for (int z = 0; z < 32; z++) {
@@ -318,8 +512,28 @@ public class Main {
                             }
                         }
                     }
+
+                    if (incrementalScan != null) {
+                        incrementalScan.mask(regionX, regionZ, mask);
+                    }
+                    if (finalIndexFilters != null) {
+                        blockIndex.mask(regionX, regionZ, baseChunkX, baseChunkZ, mask, finalIndexFilters);
+                    }
+                    if (skimmer != null) {
+                        skimmer.mask(RegionHeader.regionFile(regionDir, regionX, regionZ), mask);
+                    }
+                    if (indexBuilder != null) {
+                        indexBuilder.regionMasked(regionX, regionZ, mask);
+                    }
+                    if (checkpointer != null) {
+                        checkpointer.regionMasked(regionX, regionZ, mask.cardinality());
+                    }
+                    readAhead.regionMasked(RegionHeader.regionFile(regionDir, regionX, regionZ), mask);
                 }
             };
+            if (checkpointer != null) {
+                scanner.addProcessor(checkpointer.beginChunkProcessor());
+            }
             if (verbose) {
                 scanner.addProcessor((current, estimatedTotal, column) -> {
                     if (regionPositions.add(new Vec2i(column.getX() >> 5, column.getZ() >> 5))) {
@@ -333,11 +547,43 @@ public class Main {
                     count.increment();
                 });
             }
-            mergedModules.forEach(scanner::addProcessor);
-            scanner.run(true);
+            if (indexBuilder != null) {
+                scanner.addProcessor(indexBuilder);
+            }
+            if (stats != null) {
+                mergedModules.stream().map(stats::instrument).forEach(scanner::addProcessor);
+            } else {
+                mergedModules.forEach(scanner::addProcessor);
+            }
+            if (checkpointer != null) {
+                scanner.addProcessor(checkpointer.endChunkProcessor(mergedModules.stream().anyMatch(NeighboringChunkProcessor.class::isInstance)));
+            }
+            scheduler.run(scanner);
 
             logger.info("Finishing...");
+            if (skimmer != null) {
+                skimmer.printStats();
+            }
+            if (neighboring) {
+                neighborCache.printStats();
+            }
+            readAhead.close();
+            if (readAhead.mode() != RegionReadAhead.Mode.MMAP) {
+                readAhead.printStats();
+            }
+            if (indexBuilder != null) {
+                indexBuilder.finish();
+            } else if (finalIndexFilters != null) {
+                blockIndex.printStats();
+            }
+            if (checkpointer != null) {
+                checkpointer.finish();
+            }
             mergedModules.forEach((IOConsumer<SearchModule>) SearchModule::close);
+
+            if (incrementalScan != null) {
+                incrementalScan.finish(modules);
+            }
         }
         time = System.currentTimeMillis() - time;
         logger.success("Done!").success(
@@ -348,6 +594,41 @@ public class Main {
                 time / (1000L * 60L) % 60,
                 time / (1000L) % 60
         );
+
+        if (stats != null) {
+            stats.print();
+            stats.writeJson(statsFile);
+            logger.info("Wrote module statistics to %s", statsFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Parses a module from its command-line argument (e.g. {@code --block,id=minecraft:stone}).
+     *
+     * @param arg the argument
+     * @return the module, or {@code null} if there is no module with the given name
+     */
+    public static SearchModule parseModule(@NonNull String arg) {
+        String[] split = arg.split(",");
+        Function<String[], SearchModule> function = REGISTERED_MODULES.get(split[0]);
+        return function != null ? function.apply(Arrays.copyOfRange(split, 1, split.length)) : null;
+    }
+
+    /**
+     * Opens the save at the given path for scanning.
+     *
+     * @param worldFile the root directory of the save
+     * @return the opened save
+     */
+    public static MinecraftSave openSave(@NonNull File worldFile) throws IOException {
+        return new SaveBuilder()
+                .setInitFunctions(new MinecraftSaveConfig()
+                        .openOptions(new RegionOpenOptions().access(RegionFile.Access.READ_ONLY).mode(RegionFile.Mode.MMAP_FULL))
+                        .tileEntityFactory(TileEntityRegistry.builder(TileEntityRegistry.defaultRegistry())
+                                .add(TileEntityCommandBlock.ID, TileEntityCommandBlock::new)
+                                .add(TileEntitySpawner.ID, TileEntitySpawner::new)
+                                .build()))
+                .setFormat(new AnvilSaveFormat(worldFile)).build();
     }
 
     private static boolean contains(String[] arr, String s) {
@@ -360,6 +641,7 @@ public class Main {
         return false;
     }
 
+    @ToString
     private static final class ScanRange {
         public int chunkMinX = Integer.MIN_VALUE;
         public int chunkMaxX = Integer.MAX_VALUE;
@@ -0,0 +1,207 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.checkpoint;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.math.vector.i.Vec2i;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An append-only journal recording the progress of a scan.
+ * <p>
+ * The journal is a UTF-8 text file with one tab-separated record per line:
+ * <pre>
+ * savesearcher-checkpoint 1
+ * config  &lt;configuration string&gt;
+ * start   (&lt;output file name&gt; &lt;length&gt;)...
+ * region  &lt;x&gt; &lt;z&gt; (&lt;output file name&gt; &lt;length&gt;)...
+ * </pre>
+ * Every {@code start} and {@code region} record contains the lengths of all output files at the time it was written. When resuming, the output files
+ * are truncated back to the lengths in the last complete record, which discards any output written after it. Incomplete trailing lines (e.g. if
+ * the process was killed while writing a record) are ignored.
+ *
+ * @author DaPorkchop_
+ */
+@Accessors(fluent = true)
+final class CheckpointJournal implements AutoCloseable {
+    static final String FILE_NAME = "savesearcher-checkpoint.journal";
+
+    private static final String HEADER = "savesearcher-checkpoint 1";
+
+    /**
+     * Creates a new journal in the given output directory.
+     *
+     * @param dir    the output directory
+     * @param config a string describing the scan configuration
+     */
+    static CheckpointJournal create(@NonNull File dir, @NonNull String config) throws IOException {
+        CheckpointJournal journal = new CheckpointJournal(new File(dir, FILE_NAME), false, Collections.emptySet());
+        journal.writeLine(HEADER);
+        journal.writeLine("config\t" + sanitize(config));
+        return journal;
+    }
+
+    /**
+     * Opens the existing journal in the given output directory in order to resume the scan, truncating all output files to their lengths at the
+     * last checkpoint.
+     *
+     * @param dir    the output directory
+     * @param config a string describing the scan configuration, which must match the one that the journal was created with
+     */
+    static CheckpointJournal resume(@NonNull File dir, @NonNull String config) throws IOException {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) {
+            throw new IOException(String.format("No checkpoint journal found in \"%s\"!", dir.getAbsolutePath()));
+        }
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        int completeLength = 0;
+        for (int i = data.length - 1; i >= 0; i--) {
+            if (data[i] == '\n') {
+                completeLength = i + 1;
+                break;
+            }
+        }
+
+        String[] lines = new String(data, 0, completeLength, StandardCharsets.UTF_8).split("\n");
+        if (!HEADER.equals(lines[0])) {
+            throw new IOException("Invalid checkpoint journal header: " + lines[0]);
+        } else if (lines.length < 2 || !lines[1].equals("config\t" + sanitize(config))) {
+            throw new IOException("The scan configuration has changed since the checkpoint was created, it may not be resumed!");
+        }
+
+        Set<Vec2i> completedRegions = new HashSet<>();
+        Map<String, Long> lengths = null;
+        for (int i = 2; i < lines.length; i++) {
+            String[] split = lines[i].split("\t", -1);
+            int offset;
+            switch (split[0]) {
+                case "start":
+                    offset = 1;
+                    break;
+                case "region":
+                    completedRegions.add(new Vec2i(Integer.parseInt(split[1]), Integer.parseInt(split[2])));
+                    offset = 3;
+                    break;
+                default:
+                    throw new IOException("Invalid checkpoint journal record: " + lines[i]);
+            }
+
+            lengths = new LinkedHashMap<>();
+            for (int j = offset; j + 1 < split.length; j += 2) {
+                lengths.put(split[j], Long.parseLong(split[j + 1]));
+            }
+        }
+
+        if (lengths == null) { //the scan was stopped before any output was checkpointed, start again from scratch
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File output : files) {
+                    if (output.isFile() && !FILE_NAME.equals(output.getName()) && !output.delete()) {
+                        throw new IOException("Unable to delete " + output);
+                    }
+                }
+            }
+        } else {
+            for (Map.Entry<String, Long> entry : lengths.entrySet()) {
+                truncate(new File(dir, entry.getKey()), entry.getValue());
+            }
+        }
+
+        truncate(file, completeLength);
+        return new CheckpointJournal(file, true, completedRegions);
+    }
+
+    private static void truncate(@NonNull File file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < length) {
+                throw new IOException(String.format("%s is shorter than recorded in the checkpoint journal (%d < %d bytes)", file, raf.length(), length));
+            }
+            raf.setLength(length);
+        }
+    }
+
+    private static String sanitize(@NonNull String text) {
+        return text.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private final FileOutputStream output;
+    private final StringBuilder builder = new StringBuilder();
+
+    @Getter
+    private final Set<Vec2i> completedRegions;
+
+    private CheckpointJournal(@NonNull File file, boolean append, @NonNull Set<Vec2i> completedRegions) throws IOException {
+        this.output = new FileOutputStream(file, append);
+        this.completedRegions = Collections.unmodifiableSet(completedRegions);
+    }
+
+    /**
+     * Records that the output files have been fully initialized.
+     *
+     * @param lengths the current length of each output file
+     */
+    synchronized void recordStart(@NonNull Map<String, Long> lengths) throws IOException {
+        this.builder.setLength(0);
+        this.builder.append("start");
+        this.writeRecord(lengths);
+    }
+
+    /**
+     * Records that the given region has been completed, and all of its output has been written.
+     *
+     * @param region  the region
+     * @param lengths the current length of each output file
+     */
+    synchronized void recordRegion(@NonNull Vec2i region, @NonNull Map<String, Long> lengths) throws IOException {
+        this.builder.setLength(0);
+        this.builder.append("region\t").append(region.getX()).append('\t').append(region.getY());
+        this.writeRecord(lengths);
+    }
+
+    private void writeRecord(@NonNull Map<String, Long> lengths) throws IOException {
+        lengths.forEach((name, length) -> this.builder.append('\t').append(sanitize(name)).append('\t').append((long) length));
+        this.writeLine(this.builder);
+    }
+
+    private void writeLine(@NonNull CharSequence line) throws IOException {
+        this.output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        this.output.getFD().sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.output.close();
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.checkpoint;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.daporkchop.lib.math.vector.i.Vec2i;
+import net.daporkchop.lib.minecraft.region.util.ChunkProcessor;
+import net.daporkchop.lib.minecraft.region.util.NeighboringChunkProcessor;
+import net.daporkchop.lib.minecraft.util.BlockAccess;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.output.FlushableOutputHandle;
+import net.daporkchop.savesearcher.output.OutputHandle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Makes scans resumable by periodically checkpointing their progress to disk.
+ * <p>
+ * Output data is held back in memory until all chunks in the region it was found in have been processed by every module. Once a region is complete,
+ * its data is written, all outputs are flushed and the region is recorded in a {@link CheckpointJournal}. If the scan is interrupted, it can then be
+ * resumed by discarding any output written after the last completed region and skipping all completed regions.
+ * <p>
+ * To associate output data with a region, {@link #beginChunkProcessor()} and {@link #endChunkProcessor(boolean)} must be added to the scanner as the
+ * first and last chunk processors, respectively, and {@link #regionMasked(int, int, int)} must be called with the number of chunks that will be
+ * visited in each region. Output data emitted while the chunks to visit in a region are being determined (e.g. for chunks which are skipped using
+ * the block index) is associated with the region by calling {@link #beginRegionMask(int, int)} beforehand.
+ *
+ * @author DaPorkchop_
+ */
+public final class Checkpointer implements AutoCloseable {
+    /**
+     * Checks whether or not the given output directory contains a checkpoint journal.
+     *
+     * @param outDir the output directory
+     */
+    public static boolean exists(@NonNull File outDir) {
+        return new File(outDir, CheckpointJournal.FILE_NAME).isFile();
+    }
+
+    /**
+     * Starts checkpointing a new scan.
+     *
+     * @param outDir the output directory
+     * @param config a string describing the scan configuration. Resuming is only allowed with an identical configuration
+     */
+    public static Checkpointer create(@NonNull File outDir, @NonNull String config) throws IOException {
+        return new Checkpointer(outDir, CheckpointJournal.create(outDir, config));
+    }
+
+    /**
+     * Resumes an interrupted scan.
+     * <p>
+     * This must be called before any output handles are opened, as it truncates all output files to their lengths at the last checkpoint.
+     *
+     * @param outDir the output directory
+     * @param config a string describing the scan configuration, which must match the original scan
+     */
+    public static Checkpointer resume(@NonNull File outDir, @NonNull String config) throws IOException {
+        return new Checkpointer(outDir, CheckpointJournal.resume(outDir, config));
+    }
+
+    private final File outDir;
+    private final CheckpointJournal journal;
+
+    private final List<CheckpointOutputHandle> handles = new ArrayList<>();
+    private final Set<String> outputFiles = new HashSet<>();
+
+    private final Set<Vec2i> completedRegions = ConcurrentHashMap.newKeySet();
+    private final Map<Vec2i, AtomicInteger> remainingChunks = new ConcurrentHashMap<>();
+    private final ThreadLocal<Vec2i> currentRegion = new ThreadLocal<>();
+
+    private Checkpointer(@NonNull File outDir, @NonNull CheckpointJournal journal) {
+        this.outDir = outDir;
+        this.journal = journal;
+        this.completedRegions.addAll(journal.completedRegions());
+    }
+
+    /**
+     * @return the number of regions which have been completed so far, including those completed by previous runs
+     */
+    public int completedRegionCount() {
+        return this.completedRegions.size();
+    }
+
+    /**
+     * Wraps the given {@link OutputHandle} so that its data is only written once the region it belongs to is complete.
+     *
+     * @param handle the {@link FlushableOutputHandle}, which is flushed every time a region is completed
+     * @return the wrapped {@link OutputHandle}
+     */
+    public synchronized OutputHandle wrap(@NonNull FlushableOutputHandle handle) {
+        CheckpointOutputHandle wrapped = new CheckpointOutputHandle(handle);
+        this.handles.add(wrapped);
+        return wrapped;
+    }
+
+    /**
+     * Writes the initial checkpoint once all output handles have been initialized.
+     * <p>
+     * Every file which exists in the output directory at this point is considered to be an output file.
+     */
+    public synchronized void start() throws IOException {
+        File[] files = this.outDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && !CheckpointJournal.FILE_NAME.equals(file.getName())) {
+                    this.outputFiles.add(file.getName());
+                }
+            }
+        }
+
+        for (CheckpointOutputHandle handle : this.handles) {
+            handle.delegate.flush();
+        }
+        this.journal.recordStart(this.outputLengths());
+    }
+
+    /**
+     * Checks whether or not the given region was already completed.
+     *
+     * @param regionX the region's X coordinate
+     * @param regionZ the region's Z coordinate
+     */
+    public boolean isCompleted(int regionX, int regionZ) {
+        return this.completedRegions.contains(new Vec2i(regionX, regionZ));
+    }
+
+    /**
+     * Notifies this checkpointer that the chunks to visit in the given region are about to be determined on the current thread.
+     * <p>
+     * Until {@link #regionMasked(int, int, int)} is called, all output data emitted on the current thread is associated with the given region.
+     *
+     * @param regionX the region's X coordinate
+     * @param regionZ the region's Z coordinate
+     */
+    public void beginRegionMask(int regionX, int regionZ) {
+        this.currentRegion.set(new Vec2i(regionX, regionZ));
+    }
+
+    /**
+     * Notifies this checkpointer of the number of chunks which will be visited in the given region.
+     *
+     * @param regionX the region's X coordinate
+     * @param regionZ the region's Z coordinate
+     * @param chunks  the number of chunks which will be visited
+     */
+    public void regionMasked(int regionX, int regionZ, int chunks) {
+        this.currentRegion.remove();
+
+        Vec2i region = new Vec2i(regionX, regionZ);
+        if (chunks == 0) {
+            this.completeRegion(region);
+        } else {
+            this.remainingChunks.put(region, new AtomicInteger(chunks));
+        }
+    }
+
+    /**
+     * @return a {@link ChunkProcessor} which must be added to the scanner before all other processors
+     */
+    public ChunkProcessor beginChunkProcessor() {
+        return (current, estimatedTotal, chunk) -> this.currentRegion.set(new Vec2i(chunk.getX() >> 5, chunk.getZ() >> 5));
+    }
+
+    /**
+     * @param neighboring whether or not any of the scanner's processors are {@link NeighboringChunkProcessor}s. If so, the returned processor will
+     *                    also be one, to ensure that it is run after them
+     * @return a {@link ChunkProcessor} which must be added to the scanner after all other processors
+     */
+    public ChunkProcessor endChunkProcessor(boolean neighboring) {
+        return neighboring ? new NeighboringEndChunkProcessor() : new EndChunkProcessor();
+    }
+
+    private void endChunk(@NonNull Chunk chunk) {
+        Vec2i region = this.currentRegion.get();
+        this.currentRegion.remove();
+        if (region == null) {
+            region = new Vec2i(chunk.getX() >> 5, chunk.getZ() >> 5);
+        }
+
+        AtomicInteger remaining = this.remainingChunks.get(region);
+        if (remaining != null && remaining.decrementAndGet() == 0) {
+            this.remainingChunks.remove(region);
+            this.completeRegion(region);
+        }
+    }
+
+    private synchronized void completeRegion(@NonNull Vec2i region) {
+        try {
+            for (CheckpointOutputHandle handle : this.handles) {
+                handle.release(region);
+            }
+            for (CheckpointOutputHandle handle : this.handles) {
+                handle.delegate.flush();
+            }
+            this.journal.recordRegion(region, this.outputLengths());
+            this.completedRegions.add(region);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Completes all remaining regions once the scan has finished.
+     * <p>
+     * This handles regions in which fewer chunks were visited than expected (e.g. due to corrupt chunks).
+     */
+    public synchronized void finish() {
+        Set<Vec2i> regions = new HashSet<>(this.remainingChunks.keySet());
+        for (CheckpointOutputHandle handle : this.handles) {
+            regions.addAll(handle.pending.keySet());
+        }
+        this.remainingChunks.clear();
+
+        regions.forEach(this::completeRegion);
+    }
+
+    private Map<String, Long> outputLengths() {
+        Map<String, Long> lengths = new LinkedHashMap<>();
+        for (String name : this.outputFiles) {
+            lengths.put(name, new File(this.outDir, name).length());
+        }
+        return lengths;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.journal.close();
+    }
+
+    /**
+     * Buffers output data per region.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    private final class CheckpointOutputHandle implements OutputHandle {
+        @NonNull
+        private final FlushableOutputHandle delegate;
+
+        private final Map<Vec2i, Queue<Object>> pending = new ConcurrentHashMap<>();
+
+        @Override
+        public void init(@NonNull SearchModule module) {
+            this.delegate.init(module);
+        }
+
+        @Override
+        public void accept(@NonNull Object data) {
+            Vec2i region = Checkpointer.this.currentRegion.get();
+            if (region != null) {
+                this.pending.computeIfAbsent(region, r -> new ConcurrentLinkedQueue<>()).add(data);
+            } else { //data wasn't emitted while processing a chunk, so it can't be associated with any region
+                synchronized (Checkpointer.this) {
+                    this.delegate.accept(data);
+                }
+            }
+        }
+
+        void release(@NonNull Vec2i region) {
+            Queue<Object> queue = this.pending.remove(region);
+            if (queue != null) {
+                queue.forEach(this.delegate::accept);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            checkState(this.pending.isEmpty(), "closed with pending data, was finish() called?");
+            this.delegate.close();
+        }
+    }
+
+    /**
+     * @author DaPorkchop_
+     */
+    private class EndChunkProcessor implements ChunkProcessor {
+        @Override
+        public void handle(long current, long estimatedTotal, @NonNull Chunk chunk) {
+            Checkpointer.this.endChunk(chunk);
+        }
+    }
+
+    /**
+     * @author DaPorkchop_
+     */
+    private final class NeighboringEndChunkProcessor extends EndChunkProcessor implements NeighboringChunkProcessor {
+        @Override
+        public void handle(long current, long estimatedTotal, @NonNull Chunk chunk, @NonNull BlockAccess access) {
+            Checkpointer.this.endChunk(chunk);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.incremental;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.common.misc.file.PFiles;
+import net.daporkchop.lib.common.system.PlatformInfo;
+import net.daporkchop.lib.math.vector.i.Vec2i;
+import net.daporkchop.savesearcher.module.PositionDataXZ;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.output.DataLayout;
+import net.daporkchop.savesearcher.output.csv.CSVOutputHandle;
+import net.daporkchop.savesearcher.output.csv.CSVUtil;
+import net.daporkchop.savesearcher.util.ParallelGZIPOutputStream;
+import net.daporkchop.savesearcher.util.RegionHeader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * Allows rescanning only the chunks which have changed since the previous scan.
+ * <p>
+ * After every scan, a {@link RegionManifest} is stored in the output directory. When scanning again, a new manifest is read from the world and
+ * compared against the stored one: regions whose region file has the same modification time and size are skipped entirely, and in all other regions
+ * only chunks whose Anvil header timestamp has changed are visited. If modules which access neighboring chunks are enabled, the horizontal neighbors
+ * of every changed chunk are visited as well. The previous scan is only built upon if it was run with exactly the same configuration, otherwise the
+ * whole world is scanned again.
+ * <p>
+ * The previous output files are moved aside before the scan starts. Once it completes, all rows from the previous output which don't belong to a
+ * rescanned or deleted chunk are appended to the new output files. Rows are assigned to chunks using their {@code x}/{@code z} (or {@code x0}/{@code
+ * z0}) fields, which are interpreted as chunk coordinates for data types extending {@link PositionDataXZ} and as block coordinates otherwise.
+ * <p>
+ * Only the CSV output formats are supported.
+ *
+ * @author DaPorkchop_
+ */
+@Accessors(fluent = true)
+public final class IncrementalScan {
+    public static final String MANIFEST_NAME = "savesearcher-manifest.dat";
+    private static final String PREVIOUS_DIR_NAME = "savesearcher-previous";
+
+    private static final String[] CSV_SUFFIXES = { ".csv", ".csv.gz" };
+
+    /**
+     * Checks whether or not the given output directory contains the manifest of a previous scan.
+     *
+     * @param outDir the output directory
+     */
+    public static boolean hasManifest(@NonNull File outDir) {
+        return new File(outDir, MANIFEST_NAME).isFile();
+    }
+
+    /**
+     * Prepares an incremental scan, moving any previous output out of the way.
+     *
+     * @param outDir    the output directory
+     * @param regionDir the directory containing the world's region files
+     * @param config    a string describing the scan configuration. The previous output is discarded if it was produced with a different configuration
+     * @param neighbors whether or not any modules access neighboring chunks
+     */
+    public static IncrementalScan prepare(@NonNull File outDir, @NonNull File regionDir, @NonNull String config, boolean neighbors) throws IOException {
+        File previousDir = new File(outDir, PREVIOUS_DIR_NAME);
+        File manifestFile = new File(outDir, MANIFEST_NAME);
+
+        if (PFiles.checkDirectoryExists(previousDir)) { //a previous incremental scan didn't finish, restore its original output
+            logger.warn("Restoring output of the last complete scan from \"%s\"...", previousDir.getAbsolutePath());
+            for (File file : outDir.listFiles()) {
+                if (file.isFile() && !file.getName().equals(MANIFEST_NAME)) {
+                    delete(file);
+                }
+            }
+            for (File file : previousDir.listFiles()) {
+                move(file, new File(outDir, file.getName()));
+            }
+            delete(previousDir);
+        }
+
+        if (manifestFile.isFile()) {
+            PFiles.ensureDirectoryExists(previousDir);
+            for (File file : outDir.listFiles()) {
+                if (file.isFile() && !file.getName().equals(MANIFEST_NAME)) {
+                    move(file, new File(previousDir, file.getName()));
+                }
+            }
+        }
+
+        long configHash = RegionManifest.configHash(config);
+        RegionManifest previous = RegionManifest.load(manifestFile);
+        RegionManifest current = RegionManifest.read(regionDir, configHash, previous);
+        if (previous != null && previous.configHash() != configHash) {
+            logger.warn("The scan configuration has changed since the last scan, its output will be discarded.");
+            previous = null;
+        } else if (previous == null && manifestFile.isFile()) {
+            logger.warn("The manifest of the last scan was written by an older version, its output will be discarded.");
+        }
+
+        return new IncrementalScan(outDir, previousDir, manifestFile, previous, current, neighbors);
+    }
+
+    private static void delete(@NonNull File file) throws IOException {
+        if (!file.delete()) {
+            throw new IOException("Unable to delete " + file);
+        }
+    }
+
+    private static void move(@NonNull File src, @NonNull File dst) throws IOException {
+        if (!src.renameTo(dst)) {
+            throw new IOException(String.format("Unable to move %s to %s", src, dst));
+        }
+    }
+
+    private final File outDir;
+    private final File previousDir;
+    private final File manifestFile;
+
+    private final RegionManifest previous;
+    private final RegionManifest current;
+
+    /**
+     * The chunks to visit in each region, indexed as in the Anvil header. Regions with no chunks to visit are absent.
+     */
+    private final Map<Vec2i, BitSet> dirty = new HashMap<>();
+
+    /**
+     * The chunks in each region whose previous output is no longer valid, indexed as in the Anvil header.
+     */
+    private final Map<Vec2i, BitSet> stale = new HashMap<>();
+
+    @Getter
+    private final int dirtyChunks;
+    @Getter
+    private final int totalChunks;
+
+    private IncrementalScan(@NonNull File outDir, @NonNull File previousDir, @NonNull File manifestFile, RegionManifest previous, @NonNull RegionManifest current,
+                            boolean neighbors) {
+        this.outDir = outDir;
+        this.previousDir = previousDir;
+        this.manifestFile = manifestFile;
+        this.previous = previous;
+        this.current = current;
+
+        int totalChunks = 0;
+        for (Map.Entry<Vec2i, RegionManifest.Region> entry : current.regions().entrySet()) {
+            RegionManifest.Region region = entry.getValue();
+            RegionManifest.Region old = previous != null ? previous.regions().get(entry.getKey()) : null;
+            totalChunks += region.present.cardinality();
+            if (old == region) { //the region file hasn't changed at all
+                continue;
+            }
+
+            BitSet dirty = (BitSet) region.present.clone();
+            if (old != null) {
+                for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+                    if (old.present.get(i) && old.timestamps[i] == region.timestamps[i]) {
+                        dirty.clear(i);
+                    }
+                }
+            }
+
+            BitSet stale = (BitSet) dirty.clone();
+            if (old != null) { //chunks which have been deleted since the last scan
+                BitSet deleted = (BitSet) old.present.clone();
+                deleted.andNot(region.present);
+                stale.or(deleted);
+            }
+
+            if (!dirty.isEmpty()) {
+                this.dirty.put(entry.getKey(), dirty);
+            }
+            if (!stale.isEmpty()) {
+                this.stale.put(entry.getKey(), stale);
+            }
+        }
+
+        if (previous != null) { //regions which have been deleted entirely
+            previous.regions().forEach((pos, old) -> {
+                if (!current.regions().containsKey(pos)) {
+                    this.stale.put(pos, (BitSet) old.present.clone());
+                }
+            });
+
+            if (neighbors) {
+                this.markNeighborsDirty();
+            }
+        }
+
+        int dirtyChunks = 0;
+        for (BitSet dirty : this.dirty.values()) {
+            dirtyChunks += dirty.cardinality();
+        }
+        this.dirtyChunks = dirtyChunks;
+        this.totalChunks = totalChunks;
+    }
+
+    /**
+     * Marks the horizontal neighbors of every changed or deleted chunk as dirty, as the output of modules which access neighboring chunks depends on
+     * them as well.
+     */
+    private void markNeighborsDirty() {
+        Map<Vec2i, BitSet> changed = new HashMap<>();
+        this.stale.forEach((pos, stale) -> changed.put(pos, (BitSet) stale.clone()));
+
+        changed.forEach((pos, stale) -> {
+            for (int i = stale.nextSetBit(0); i >= 0; i = stale.nextSetBit(i + 1)) {
+                int chunkX = (pos.getX() << 5) + (i & 31);
+                int chunkZ = (pos.getY() << 5) + (i >> 5);
+                this.markDirty(chunkX - 1, chunkZ);
+                this.markDirty(chunkX + 1, chunkZ);
+                this.markDirty(chunkX, chunkZ - 1);
+                this.markDirty(chunkX, chunkZ + 1);
+            }
+        });
+    }
+
+    private void markDirty(int chunkX, int chunkZ) {
+        Vec2i pos = new Vec2i(chunkX >> 5, chunkZ >> 5);
+        RegionManifest.Region region = this.current.regions().get(pos);
+        int i = (chunkX & 31) | (chunkZ & 31) << 5;
+        if (region != null && region.present.get(i)) {
+            this.dirty.computeIfAbsent(pos, p -> new BitSet(RegionHeader.CHUNKS)).set(i);
+            this.stale.computeIfAbsent(pos, p -> new BitSet(RegionHeader.CHUNKS)).set(i);
+        }
+    }
+
+    /**
+     * @return whether or not there was a previous scan to build upon. If {@code false}, the whole world will be scanned
+     */
+    public boolean hasPrevious() {
+        return this.previous != null;
+    }
+
+    /**
+     * Checks whether or not any chunks in the given region need to be visited.
+     *
+     * @param regionX the region's X coordinate
+     * @param regionZ the region's Z coordinate
+     */
+    public boolean hasChanges(int regionX, int regionZ) {
+        return this.previous == null || this.dirty.containsKey(new Vec2i(regionX, regionZ));
+    }
+
+    /**
+     * Removes all chunks which don't need to be visited from the given mask.
+     *
+     * @param regionX the region's X coordinate
+     * @param regionZ the region's Z coordinate
+     * @param mask    the mask of chunks to visit, indexed by {@code x * 32 + z}
+     */
+    public void mask(int regionX, int regionZ, @NonNull BitSet mask) {
+        if (this.previous == null) {
+            return;
+        }
+
+        BitSet dirty = this.dirty.get(new Vec2i(regionX, regionZ));
+        if (dirty == null) {
+            mask.clear();
+            return;
+        }
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            if (!dirty.get(RegionHeader.fromMaskIndex(i))) {
+                mask.clear(i);
+            }
+        }
+    }
+
+    /**
+     * Completes the incremental scan once all modules have been closed.
+     * <p>
+     * This merges the still valid rows from the previous output into the new output files, and then stores the new manifest.
+     *
+     * @param modules the modules that were used
+     */
+    public void finish(@NonNull List<SearchModule> modules) throws IOException {
+        if (this.previous != null) {
+            for (SearchModule module : modules) {
+                for (String suffix : CSV_SUFFIXES) {
+                    String fileName = CSVOutputHandle.fileName(module, suffix);
+                    File previousFile = new File(this.previousDir, fileName);
+                    File currentFile = new File(this.outDir, fileName);
+                    if (previousFile.isFile() && currentFile.isFile()) {
+                        this.mergePrevious(module, previousFile, currentFile, suffix.endsWith(".gz"));
+                    }
+                }
+            }
+        }
+        if (PFiles.checkDirectoryExists(this.previousDir)) {
+            for (File file : this.previousDir.listFiles()) {
+                delete(file);
+            }
+            delete(this.previousDir);
+        }
+
+        this.current.save(this.manifestFile);
+    }
+
+    private void mergePrevious(@NonNull SearchModule module, @NonNull File previousFile, @NonNull File currentFile, boolean gzip) throws IOException {
+        Class<?> dataType = module.dataType();
+        boolean chunkCoords = PositionDataXZ.class.isAssignableFrom(dataType);
+
+        int xIndex = -1;
+        int zIndex = -1;
+        List<DataLayout.Column> columns = DataLayout.of(dataType).columns();
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).name()) {
+                case "x":
+                case "x0":
+                    xIndex = xIndex < 0 ? i : xIndex;
+                    break;
+                case "z":
+                case "z0":
+                    zIndex = zIndex < 0 ? i : zIndex;
+                    break;
+            }
+        }
+
+        if (xIndex < 0 || zIndex < 0) {
+            logger.warn("Output of module %s has no position, previous output will be discarded!", module);
+            return;
+        }
+
+        long kept = 0L;
+        long dropped = 0L;
+        String lineEnding = PlatformInfo.OPERATING_SYSTEM.lineEnding();
+        try (InputStream rawIn = new FileInputStream(previousFile);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(gzip ? new GZIPInputStream(rawIn) : rawIn, StandardCharsets.UTF_8));
+             OutputStream rawOut = new FileOutputStream(currentFile, true);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? new ParallelGZIPOutputStream(rawOut) : rawOut, StandardCharsets.UTF_8))) {
+            reader.readLine(); //skip header
+
+            for (String line; (line = reader.readLine()) != null; ) {
+                List<String> fields = CSVUtil.parseRow(line);
+                int chunkX = toChunkCoordinate(fields.get(xIndex), chunkCoords);
+                int chunkZ = toChunkCoordinate(fields.get(zIndex), chunkCoords);
+
+                BitSet stale = this.stale.get(new Vec2i(chunkX >> 5, chunkZ >> 5));
+                if (stale != null && stale.get((chunkX & 31) | (chunkZ & 31) << 5)) {
+                    dropped++;
+                } else {
+                    writer.write(line);
+                    writer.write(lineEnding);
+                    kept++;
+                }
+            }
+        }
+        logger.debug("Merged previous output of %s: kept %d rows, dropped %d stale rows", module, kept, dropped);
+    }
+
+    private static int toChunkCoordinate(@NonNull String field, boolean chunkCoords) {
+        int value = (int) Math.floor(Double.parseDouble(field));
+        return chunkCoords ? value : value >> 4;
+    }
+}
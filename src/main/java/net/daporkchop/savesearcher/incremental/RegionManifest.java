@@ -0,0 +1,218 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.incremental;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.common.misc.file.PFiles;
+import net.daporkchop.lib.math.vector.i.Vec2i;
+import net.daporkchop.savesearcher.util.RegionHeader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A snapshot of the state of every region file in a world, consisting of each region file's modification time and size as well as the per-chunk
+ * timestamps from its Anvil header.
+ * <p>
+ * The manifest also stores a hash of the configuration of the scan which produced it, as the previous output may only be reused by a scan with the
+ * same configuration.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+@Accessors(fluent = true)
+final class RegionManifest {
+    private static final int MAGIC = 0x5353524D; //"SSRM"
+    private static final int VERSION = 2;
+
+    private static final Pattern REGION_NAME_PATTERN = Pattern.compile("^r\\.(-?\\d+)\\.(-?\\d+)\\.mca$");
+
+    /**
+     * Computes the hash of the given scan configuration which is stored in a manifest.
+     *
+     * @param config a string describing the scan configuration
+     */
+    static long configHash(@NonNull String config) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(config.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the current state of all region files in the given directory.
+     *
+     * @param regionDir  the region directory
+     * @param configHash the hash of the current scan's configuration, see {@link #configHash(String)}
+     * @param previous   a previous manifest. Regions whose modification time and size haven't changed since then are copied from it rather than
+     *                   being read again. May be {@code null}
+     */
+    static RegionManifest read(@NonNull File regionDir, long configHash, RegionManifest previous) throws IOException {
+        Map<Vec2i, Region> regions = new HashMap<>();
+        File[] files = regionDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = REGION_NAME_PATTERN.matcher(file.getName());
+                if (!matcher.matches() || !file.isFile()) {
+                    continue;
+                }
+
+                Vec2i pos = new Vec2i(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+                long lastModified = file.lastModified();
+                long size = file.length();
+
+                Region old = previous != null ? previous.regions.get(pos) : null;
+                if (old != null && old.lastModified == lastModified && old.size == size) {
+                    regions.put(pos, old);
+                    continue;
+                }
+
+                int[] timestamps = new int[RegionHeader.CHUNKS];
+                BitSet present = new BitSet(RegionHeader.CHUNKS);
+                RegionHeader.readTimestamps(file, timestamps, present);
+                regions.put(pos, new Region(lastModified, size, timestamps, present));
+            }
+        }
+        return new RegionManifest(configHash, regions);
+    }
+
+    /**
+     * Loads a manifest previously written by {@link #save(File)}.
+     *
+     * @param file the file to load from
+     * @return the manifest, or {@code null} if the file doesn't exist or was written by an older version
+     */
+    static RegionManifest load(@NonNull File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Invalid manifest: " + file);
+            } else if (in.readInt() != VERSION) { //older manifests don't have a configuration hash, so their output can't be reused
+                return null;
+            }
+
+            long configHash = in.readLong();
+            int count = in.readInt();
+            Map<Vec2i, Region> regions = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                Vec2i pos = new Vec2i(in.readInt(), in.readInt());
+                long lastModified = in.readLong();
+                long size = in.readLong();
+
+                long[] bits = new long[16];
+                for (int j = 0; j < bits.length; j++) {
+                    bits[j] = in.readLong();
+                }
+                int[] timestamps = new int[1024];
+                for (int j = 0; j < timestamps.length; j++) {
+                    timestamps[j] = in.readInt();
+                }
+                regions.put(pos, new Region(lastModified, size, timestamps, BitSet.valueOf(bits)));
+            }
+            return new RegionManifest(configHash, regions);
+        }
+    }
+
+    private final long configHash;
+    private final Map<Vec2i, Region> regions;
+
+    private RegionManifest(long configHash, @NonNull Map<Vec2i, Region> regions) {
+        this.configHash = configHash;
+        this.regions = Collections.unmodifiableMap(regions);
+    }
+
+    /**
+     * Writes this manifest to the given file, replacing it atomically.
+     *
+     * @param file the file to write to
+     */
+    void save(@NonNull File file) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(PFiles.ensureFileExists(tmp)))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(this.configHash);
+            out.writeInt(this.regions.size());
+            for (Map.Entry<Vec2i, Region> entry : this.regions.entrySet()) {
+                Region region = entry.getValue();
+                out.writeInt(entry.getKey().getX());
+                out.writeInt(entry.getKey().getY());
+                out.writeLong(region.lastModified);
+                out.writeLong(region.size);
+
+                long[] bits = region.present.toLongArray();
+                for (int j = 0; j < 16; j++) {
+                    out.writeLong(j < bits.length ? bits[j] : 0L);
+                }
+                for (int timestamp : region.timestamps) {
+                    out.writeInt(timestamp);
+                }
+            }
+        }
+
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+            throw new IOException(String.format("Unable to rename %s to %s", tmp, file));
+        }
+    }
+
+    /**
+     * The state of a single region file.
+     * <p>
+     * Chunk indices are the same as in the Anvil header, i.e. {@code (x & 31) | (z & 31) << 5}.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    static final class Region {
+        final long lastModified;
+        final long size;
+        @NonNull
+        final int[] timestamps;
+        @NonNull
+        final BitSet present;
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.index;
+
+import lombok.NonNull;
+import net.daporkchop.lib.common.misc.file.PFiles;
+import net.daporkchop.lib.math.vector.i.Vec2i;
+import net.daporkchop.lib.minecraft.region.util.ChunkProcessor;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
+import net.daporkchop.savesearcher.util.RegionHeader;
+import net.daporkchop.savesearcher.util.SectionBlocks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * A persistent index of the blocks contained in each chunk of a world, used to avoid visiting chunks which can't contain any results.
+ * <p>
+ * The index consists of one file per region, which stores the Anvil timestamp of every indexed chunk along with its {@link ChunkSummary}. A chunk's
+ * index entry is only used if its timestamp still matches the one in the region file, so chunks which have been modified since the index was built
+ * are always visited. The file format is:
+ * <pre>
+ * magic       int ("SSIX")
+ * version     int (currently 1)
+ * timestamps  int[1024]
+ * offsets     int[1024] (offset of each chunk's summary relative to the start of the data, or -1 if the chunk isn't indexed)
+ * data        { stateCount: varint, states: stateCount * { stateDelta: varint, count: varint } }...
+ * </pre>
+ * Chunks are indexed in the same order as in the Anvil header.
+ *
+ * @author DaPorkchop_
+ */
+public final class BlockIndex {
+    private static final int MAGIC = 0x53534958; //"SSIX"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8 + RegionHeader.CHUNKS * 8;
+
+    private static void writeVarInt(@NonNull ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(@NonNull ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    private final File indexDir;
+    private final File regionDir;
+
+    private final LongAdder skippedChunks = new LongAdder();
+    private final LongAdder visitedChunks = new LongAdder();
+    private final LongAdder unindexedChunks = new LongAdder();
+
+    /**
+     * @param indexDir  the directory that the index is stored in
+     * @param regionDir the directory containing the world's region files
+     */
+    public BlockIndex(@NonNull File indexDir, @NonNull File regionDir) {
+        this.indexDir = indexDir;
+        this.regionDir = regionDir;
+    }
+
+    private File indexFile(int regionX, int regionZ) {
+        return new File(this.indexDir, String.format("r.%d.%d.ssidx", regionX, regionZ));
+    }
+
+    /**
+     * Removes all chunks which none of the given filters need to visit from the mask of chunks to visit in the given region.
+     * <p>
+     * Chunks which aren't indexed, or which have been modified since they were indexed, are never removed.
+     *
+     * @param regionX    the region's X coordinate
+     * @param regionZ    the region's Z coordinate
+     * @param baseChunkX the X coordinate of the region's first chunk
+     * @param baseChunkZ the Z coordinate of the region's first chunk
+     * @param mask       the mask of chunks to visit, indexed by {@code x * 32 + z}
+     * @param filters    the filters of all active modules
+     */
+    public void mask(int regionX, int regionZ, int baseChunkX, int baseChunkZ, @NonNull BitSet mask, @NonNull List<IndexFilter> filters) {
+        try {
+            File indexFile = this.indexFile(regionX, regionZ);
+            int[] timestamps = new int[RegionHeader.CHUNKS];
+            BitSet present = new BitSet(RegionHeader.CHUNKS);
+            if (!indexFile.isFile() || !RegionHeader.readTimestamps(RegionHeader.regionFile(this.regionDir, regionX, regionZ), timestamps, present)) {
+                this.unindexedChunks.add(mask.cardinality());
+                return;
+            }
+
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+            if (index.capacity() < HEADER_SIZE || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+                logger.warn("Ignoring invalid index file %s", indexFile);
+                this.unindexedChunks.add(mask.cardinality());
+                return;
+            }
+
+            for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+                int chunk = RegionHeader.fromMaskIndex(i);
+                int offset = index.getInt(8 + (RegionHeader.CHUNKS << 2) + (chunk << 2));
+                if (offset < 0 || !present.get(chunk) || index.getInt(8 + (chunk << 2)) != timestamps[chunk]) { //not indexed, or modified since
+                    this.unindexedChunks.increment();
+                    continue;
+                }
+
+                index.position(HEADER_SIZE + offset);
+                ChunkSummary summary = readSummary(index);
+
+                boolean visit = false;
+                for (int j = 0, size = filters.size(); !visit && j < size; j++) {
+                    visit = filters.get(j).mayMatch(summary);
+                }
+
+                if (visit) {
+                    this.visitedChunks.increment();
+                } else {
+                    mask.clear(i);
+                    for (IndexFilter filter : filters) {
+                        filter.skipped(baseChunkX + (i >> 5), baseChunkZ + (i & 31), summary);
+                    }
+                    this.skippedChunks.increment();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ChunkSummary readSummary(@NonNull ByteBuffer in) throws IOException {
+        int size = readVarInt(in);
+        int[] states = new int[size];
+        int[] counts = new int[size];
+        for (int i = 0, state = 0; i < size; i++) {
+            states[i] = state += readVarInt(in);
+            counts[i] = readVarInt(in);
+        }
+        return new ChunkSummary(states, counts);
+    }
+
+    /**
+     * Prints the number of chunks which were skipped using the index.
+     */
+    public void printStats() {
+        logger.info("Block index: skipped %d chunks, visited %d indexed chunks and %d chunks which weren't indexed or were out of date.",
+                this.skippedChunks.sum(), this.visitedChunks.sum(), this.unindexedChunks.sum());
+    }
+
+    /**
+     * Creates a {@link Builder} which (re-)indexes all chunks it visits.
+     * <p>
+     * The existing index entries of chunks which aren't visited are kept.
+     */
+    public Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds the index while scanning.
+     * <p>
+     * The builder must be added to the scanner as a chunk processor, and {@link #regionMasked(int, int, BitSet)} must be called with the final mask
+     * of chunks to visit in every region. Each region's index file is written as soon as all of its chunks have been visited.
+     *
+     * @author DaPorkchop_
+     */
+    public final class Builder implements ChunkProcessor {
+        private final Map<Vec2i, RegionBuilder> regions = new ConcurrentHashMap<>();
+        private final ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> new int[][]{ new int[1 << 16], new int[1 << 16] });
+
+        private Builder() {
+            PFiles.ensureDirectoryExists(BlockIndex.this.indexDir);
+        }
+
+        /**
+         * Notifies this builder of the chunks which will be visited in the given region.
+         *
+         * @param regionX the region's X coordinate
+         * @param regionZ the region's Z coordinate
+         * @param mask    the mask of chunks to visit, indexed by {@code x * 32 + z}
+         */
+        public void regionMasked(int regionX, int regionZ, @NonNull BitSet mask) {
+            try {
+                RegionBuilder region = new RegionBuilder(regionX, regionZ, mask.cardinality());
+                RegionHeader.readTimestamps(RegionHeader.regionFile(BlockIndex.this.regionDir, regionX, regionZ), region.timestamps, new BitSet());
+                if (region.remaining.get() == 0) {
+                    region.write();
+                } else {
+                    this.regions.put(new Vec2i(regionX, regionZ), region);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void handle(long current, long estimatedTotal, @NonNull Chunk chunk) {
+            Vec2i pos = new Vec2i(chunk.getX() >> 5, chunk.getZ() >> 5);
+            RegionBuilder region = this.regions.get(pos);
+            if (region == null) {
+                return;
+            }
+
+            int[][] scratch = this.scratch.get();
+            int[] counts = scratch[0];
+            int[] touched = scratch[1];
+            int touchedCount = 0;
+            for (int sectionY = 0; sectionY < 16; sectionY++) {
+                Section section = chunk.section(sectionY);
+                if (section != null) {
+                    touchedCount = SectionBlocks.of(chunk, section).countStates(counts, touched, touchedCount);
+                } else {
+                    if (counts[0] == 0) {
+                        touched[touchedCount++] = 0;
+                    }
+                    counts[0] += SectionBlocks.BLOCKS;
+                }
+            }
+
+            Arrays.sort(touched, 0, touchedCount);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(touchedCount * 3 + 2);
+            writeVarInt(out, touchedCount);
+            for (int i = 0, prev = 0; i < touchedCount; i++) {
+                int state = touched[i];
+                writeVarInt(out, state - prev);
+                writeVarInt(out, counts[state]);
+                counts[state] = 0;
+                prev = state;
+            }
+
+            region.chunks[(chunk.getX() & 31) | (chunk.getZ() & 31) << 5] = out.toByteArray();
+            if (region.remaining.decrementAndGet() == 0 && this.regions.remove(pos, region)) {
+                try {
+                    region.write();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        /**
+         * Writes the index files of all regions in which fewer chunks were visited than expected.
+         */
+        public void finish() throws IOException {
+            Set<Vec2i> positions = new HashSet<>(this.regions.keySet());
+            for (Vec2i pos : positions) {
+                RegionBuilder region = this.regions.remove(pos);
+                if (region != null) {
+                    region.write();
+                }
+            }
+        }
+    }
+
+    /**
+     * The index of a single region which is being built.
+     *
+     * @author DaPorkchop_
+     */
+    private final class RegionBuilder {
+        private final int regionX;
+        private final int regionZ;
+        private final AtomicInteger remaining;
+
+        private final int[] timestamps = new int[RegionHeader.CHUNKS];
+        private final byte[][] chunks = new byte[RegionHeader.CHUNKS][];
+
+        RegionBuilder(int regionX, int regionZ, int chunks) {
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+            this.remaining = new AtomicInteger(chunks);
+        }
+
+        void write() throws IOException {
+            File file = BlockIndex.this.indexFile(this.regionX, this.regionZ);
+            this.mergeExisting(file);
+
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                for (int timestamp : this.timestamps) {
+                    out.writeInt(timestamp);
+                }
+
+                int offset = 0;
+                for (byte[] chunk : this.chunks) {
+                    if (chunk != null) {
+                        out.writeInt(offset);
+                        offset += chunk.length;
+                    } else {
+                        out.writeInt(-1);
+                    }
+                }
+
+                for (byte[] chunk : this.chunks) {
+                    if (chunk != null) {
+                        out.write(chunk);
+                    }
+                }
+            }
+
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException(String.format("Unable to rename %s to %s", tmp, file));
+            }
+        }
+
+        /**
+         * Copies the entries of all chunks which weren't visited from the region's existing index file, so that indexing only some of a region's
+         * chunks doesn't discard the entries of the others.
+         * <p>
+         * Copied entries keep their original timestamps, so they are still ignored if the chunk has been modified since.
+         */
+        private void mergeExisting(@NonNull File file) throws IOException {
+            if (!file.isFile()) {
+                return;
+            }
+
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (index.capacity() < HEADER_SIZE || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+                logger.warn("Replacing invalid index file %s", file);
+                return;
+            }
+
+            //summaries are stored in the same order as the chunks, so each summary ends where the next one starts
+            int[] ends = new int[RegionHeader.CHUNKS];
+            for (int chunk = RegionHeader.CHUNKS - 1, end = index.capacity() - HEADER_SIZE; chunk >= 0; chunk--) {
+                int offset = index.getInt(8 + (RegionHeader.CHUNKS << 2) + (chunk << 2));
+                if (offset > end) {
+                    logger.warn("Replacing invalid index file %s", file);
+                    return;
+                } else if (offset >= 0) {
+                    ends[chunk] = end;
+                    end = offset;
+                }
+            }
+
+            for (int chunk = 0; chunk < RegionHeader.CHUNKS; chunk++) {
+                int offset = index.getInt(8 + (RegionHeader.CHUNKS << 2) + (chunk << 2));
+                if (offset >= 0 && this.chunks[chunk] == null) { //the chunk wasn't visited, keep its existing entry
+                    this.chunks[chunk] = Arrays.copyOfRange(index.array(), HEADER_SIZE + offset, HEADER_SIZE + ends[chunk]);
+                    this.timestamps[chunk] = index.getInt(8 + (chunk << 2));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.index;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * The indexed contents of a single chunk: every block state ({@code id << 4 | meta}) which occurs in the chunk, along with the number of times it
+ * occurs.
+ * <p>
+ * Missing sections are counted as air ({@code 0:0}).
+ *
+ * @author DaPorkchop_
+ */
+public final class ChunkSummary {
+    private final int[] states;
+    private final int[] counts;
+
+    /**
+     * @param states the states, sorted in ascending order
+     * @param counts the number of occurrences of each state
+     */
+    ChunkSummary(@NonNull int[] states, @NonNull int[] counts) {
+        this.states = states;
+        this.counts = counts;
+    }
+
+    /**
+     * Checks whether or not the given block occurs in this chunk.
+     *
+     * @param id   the block ID
+     * @param meta the block meta, or {@code -1} to match any meta
+     */
+    public boolean contains(int id, int meta) {
+        return this.count(id, meta) != 0L;
+    }
+
+    /**
+     * Counts the number of occurrences of the given block in this chunk.
+     *
+     * @param id   the block ID
+     * @param meta the block meta, or {@code -1} to match any meta
+     */
+    public long count(int id, int meta) {
+        if (meta >= 0) {
+            int i = Arrays.binarySearch(this.states, id << 4 | meta);
+            return i >= 0 ? this.counts[i] : 0L;
+        }
+
+        int i = Arrays.binarySearch(this.states, id << 4);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        long count = 0L;
+        for (; i < this.states.length && this.states[i] >>> 4 == id; i++) {
+            count += this.counts[i];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.index;
+
+/**
+ * Allows a module to use a {@link BlockIndex} to avoid visiting chunks which can't contain any results.
+ *
+ * @author DaPorkchop_
+ * @see net.daporkchop.savesearcher.module.SearchModule#indexFilter()
+ */
+@FunctionalInterface
+public interface IndexFilter {
+    /**
+     * Checks whether or not the module may produce any output for the chunk with the given contents, and therefore needs to visit it.
+     *
+     * @param summary the chunk's indexed contents
+     * @return whether or not the chunk needs to be visited
+     */
+    boolean mayMatch(ChunkSummary summary);
+
+    /**
+     * Called instead of visiting a chunk when no module needs to visit it, allowing modules to produce output using only the index.
+     *
+     * @param chunkX  the chunk's X coordinate
+     * @param chunkZ  the chunk's Z coordinate
+     * @param summary the chunk's indexed contents
+     */
+    default void skipped(int chunkX, int chunkZ, ChunkSummary summary) {
+        //no-op
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.io;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * A bounded pool of equally sized direct {@link ByteBuffer}s.
+ * <p>
+ * Buffers are allocated lazily, and no more than {@link #capacity()} buffers are ever allocated. Once all of them are in use, {@link #acquire()} blocks
+ * until one is released, which limits the amount of memory used for I/O regardless of the number of threads.
+ *
+ * @author DaPorkchop_
+ */
+public final class DirectBufferPool {
+    @Getter
+    @Accessors(fluent = true)
+    private final int capacity;
+    @Getter
+    @Accessors(fluent = true)
+    private final int bufferSize;
+
+    private final BlockingQueue<ByteBuffer> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    public DirectBufferPool(int capacity, int bufferSize) {
+        this.capacity = positive(capacity, "capacity");
+        this.bufferSize = positive(bufferSize, "bufferSize");
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Gets a buffer from this pool, blocking if none are available.
+     * <p>
+     * The returned buffer is cleared, and must be given back using {@link #release(ByteBuffer)} once it's no longer needed.
+     *
+     * @return a buffer
+     */
+    public ByteBuffer acquire() throws InterruptedException {
+        ByteBuffer buffer = this.free.poll();
+        if (buffer == null) {
+            //try to allocate a new buffer if the pool isn't full yet, otherwise wait for one to be released
+            for (int allocated; (allocated = this.allocated.get()) < this.capacity; ) {
+                if (this.allocated.compareAndSet(allocated, allocated + 1)) {
+                    return ByteBuffer.allocateDirect(this.bufferSize);
+                }
+            }
+            buffer = this.free.take();
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire()} to this pool.
+     *
+     * @param buffer the buffer
+     */
+    public void release(@NonNull ByteBuffer buffer) {
+        checkArg(buffer.isDirect() && buffer.capacity() == this.bufferSize, "buffer doesn't belong to this pool");
+        checkState(this.free.offer(buffer), "pool is already full");
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.io;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import net.daporkchop.savesearcher.util.RegionHeader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * Reads the chunks of a region which are about to be visited ahead of time, in the order in which they are stored on disk.
+ * <p>
+ * Regions are always opened by porklib as memory-mapped files, which are read one page fault at a time in whatever order the chunks are visited.
+ * On spinning disks and network mounts this is dominated by seeks. Reading ahead instead pulls all visited chunks into the OS page cache using large
+ * reads sorted by their position in the file (see {@link SectorRuns}), so that the page faults caused by decoding the chunks afterwards are served
+ * from memory.
+ * <p>
+ * With {@link Mode#SEQUENTIAL}, a region is read ahead by the scanning thread before it starts decoding the region's chunks. With
+ * {@link Mode#PREFETCH}, regions are read ahead by a dedicated prefetch thread while the scanning threads are already decoding them, and regions which
+ * the prefetch thread doesn't get to in time are skipped.
+ *
+ * @author DaPorkchop_
+ */
+public final class RegionReadAhead implements AutoCloseable {
+    /**
+     * The maximum number of unneeded sectors between two chunks for them to be read in a single operation.
+     */
+    public static final int MAX_GAP_SECTORS = 16;
+
+    /**
+     * The size of the buffers used for {@link Mode#SEQUENTIAL} reads.
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The size of a memory page. Touching one byte per page is enough to fault the whole page in.
+     */
+    private static final int PAGE_SIZE = 4096;
+
+    @Getter
+    @Accessors(fluent = true)
+    private final Mode mode;
+    private final DirectBufferPool pool;
+    private final ThreadPoolExecutor prefetcher;
+
+    private final LongAdder regions = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    //written by PREFETCH, never read
+    private volatile int checksum;
+
+    /**
+     * @param mode    the read-ahead mode
+     * @param threads the number of scanning threads. Used to size the buffer pool for {@link Mode#SEQUENTIAL} and the number of regions which may be
+     *                waiting to be prefetched for {@link Mode#PREFETCH}
+     */
+    public RegionReadAhead(@NonNull Mode mode, int threads) {
+        this.mode = mode;
+        this.pool = mode == Mode.SEQUENTIAL ? new DirectBufferPool(threads, BUFFER_SIZE) : null;
+
+        //once more regions are waiting than are being scanned, the oldest ones are already being decoded and prefetching them is pointless
+        this.prefetcher = mode == Mode.PREFETCH ? new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads), task -> {
+            Thread thread = new Thread(task, "SaveSearcher region prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> {
+            if (!executor.isShutdown() && executor.getQueue().poll() != null) {
+                this.skipped.increment();
+                executor.execute(task);
+            }
+        }) : null;
+    }
+
+    /**
+     * Reads ahead all chunks in the given mask.
+     * <p>
+     * For {@link Mode#PREFETCH} this only schedules the region to be prefetched and returns immediately.
+     *
+     * @param regionFile the region file
+     * @param mask       the mask of chunks which are about to be visited, indexed by {@code x * 32 + z}
+     */
+    public void regionMasked(@NonNull File regionFile, @NonNull BitSet mask) {
+        if (this.mode == Mode.MMAP || mask.isEmpty() || !regionFile.isFile()) {
+            return;
+        }
+
+        if (this.prefetcher != null) {
+            BitSet copy = (BitSet) mask.clone(); //the mask may be modified by the scanner once we return
+            this.prefetcher.execute(() -> {
+                try {
+                    this.readAhead(regionFile, copy);
+                } catch (RuntimeException e) { //the scanner reads the region itself anyway, so this isn't fatal
+                    logger.warn("Unable to prefetch %s: %s", regionFile.getAbsolutePath(), e);
+                }
+            });
+        } else {
+            this.readAhead(regionFile, mask);
+        }
+    }
+
+    private void readAhead(@NonNull File regionFile, @NonNull BitSet mask) {
+        long start = System.nanoTime();
+        try (FileChannel channel = new RandomAccessFile(regionFile, "r").getChannel()) {
+            int[] locations = new int[RegionHeader.CHUNKS];
+            if (!RegionHeader.readLocations(channel, locations)) {
+                return;
+            }
+
+            SectorRuns runs = SectorRuns.of(locations, mask, MAX_GAP_SECTORS);
+            if (runs.count() != 0) {
+                this.mode.read(this, channel, runs, channel.size());
+            }
+
+            this.regions.increment();
+            this.chunks.add(runs.chunks());
+            this.runs.add(runs.count());
+        } catch (ClosedByInterruptException | InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.nanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Stops prefetching any regions which are still waiting to be prefetched.
+     */
+    @Override
+    public void close() {
+        if (this.prefetcher != null) {
+            this.prefetcher.shutdownNow();
+        }
+    }
+
+    public void printStats() {
+        long bytes = this.bytes.sum();
+        double seconds = this.nanos.sum() / 1_000_000_000.0d;
+        logger.info("Read-ahead (%s): %d chunks in %d regions, %d runs, %d operations, %.2f MiB read in %.2fs (%.2f MiB/s across all threads)",
+                this.mode.name().toLowerCase(Locale.ROOT), this.chunks.sum(), this.regions.sum(), this.runs.sum(), this.operations.sum(),
+                bytes / (double) (1 << 20), seconds, seconds == 0.0d ? 0.0d : bytes / (double) (1 << 20) / seconds);
+        if (this.prefetcher != null) {
+            logger.info("Read-ahead (%s): %d regions skipped because the prefetch thread fell behind", this.mode.name().toLowerCase(Locale.ROOT), this.skipped.sum());
+        }
+    }
+
+    /**
+     * The ways in which chunks may be read ahead.
+     *
+     * @author DaPorkchop_
+     */
+    public enum Mode {
+        /**
+         * Don't read ahead at all, and leave everything to page faults on the memory-mapped region.
+         */
+        MMAP {
+            @Override
+            protected void read(@NonNull RegionReadAhead readAhead, @NonNull FileChannel channel, @NonNull SectorRuns runs, long size) {
+                throw new UnsupportedOperationException();
+            }
+        },
+        /**
+         * Map the region once on a separate prefetch thread, and fault in every page of each run.
+         * <p>
+         * This does the same as {@link MappedByteBuffer#load()}, but only for the runs rather than the whole mapping. The mapping is released once it
+         * is garbage collected, like the one porklib uses to read the region, so there are at most twice as many mappings as regions being scanned.
+         */
+        PREFETCH {
+            @Override
+            protected void read(@NonNull RegionReadAhead readAhead, @NonNull FileChannel channel, @NonNull SectorRuns runs, long size) throws IOException {
+                //runs are sorted by offset, so the last one ends furthest into the file. region files are far smaller than 2GiB
+                long base = runs.offset(0);
+                long end = Math.min(runs.offset(runs.count() - 1) + runs.length(runs.count() - 1), size);
+                if (end <= base) {
+                    return;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, end - base);
+
+                int checksum = 0;
+                for (int run = 0; run < runs.count(); run++) {
+                    int offset = (int) (runs.offset(run) - base);
+                    int length = (int) Math.min(runs.length(run), end - runs.offset(run));
+                    for (int position = offset; position < offset + length; position += PAGE_SIZE) {
+                        checksum += buffer.get(position);
+                    }
+                    readAhead.operations.increment();
+                    readAhead.bytes.add(Math.max(length, 0));
+                }
+                readAhead.checksum = checksum; //prevents the reads from being optimized away
+            }
+        },
+        /**
+         * Read each run into a pooled direct buffer using positional reads.
+         */
+        SEQUENTIAL {
+            @Override
+            protected void read(@NonNull RegionReadAhead readAhead, @NonNull FileChannel channel, @NonNull SectorRuns runs, long size) throws IOException, InterruptedException {
+                ByteBuffer buffer = readAhead.pool.acquire();
+                try {
+                    for (int run = 0; run < runs.count(); run++) {
+                        for (long position = runs.offset(run), end = Math.min(position + runs.length(run), size); position < end; ) {
+                            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                            int read = channel.read(buffer, position);
+                            if (read < 0) {
+                                break;
+                            }
+                            position += read;
+                            readAhead.operations.increment();
+                            readAhead.bytes.add(read);
+                        }
+                    }
+                } finally {
+                    readAhead.pool.release(buffer);
+                }
+            }
+        };
+
+        /**
+         * Gets the mode with the given name.
+         *
+         * @param name the name of the mode, case-insensitive
+         * @return the mode
+         * @throws IllegalArgumentException if there is no mode with the given name
+         */
+        public static Mode fromName(@NonNull String name) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name)) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown I/O mode: \"%s\"", name));
+        }
+
+        /**
+         * Reads the given runs of a region file.
+         *
+         * @param readAhead the {@link RegionReadAhead} to record statistics in
+         * @param channel   the region file
+         * @param runs      the runs to read
+         * @param size      the size of the region file. Runs may extend past the end of the file if it is truncated
+         */
+        protected abstract void read(@NonNull RegionReadAhead readAhead, @NonNull FileChannel channel, @NonNull SectorRuns runs, long size) throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.io;
+
+import lombok.NonNull;
+import net.daporkchop.savesearcher.util.RegionHeader;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The sectors occupied by a set of chunks in a region file, sorted by their position in the file and merged into contiguous runs.
+ * <p>
+ * Chunks which are close to each other are merged into the same run even if there is a small gap between them, since reading a few unneeded sectors
+ * is much cheaper than seeking on a spinning disk.
+ * <p>
+ * This only determines the order in which region files are read ahead of time (by {@link RegionReadAhead} and the chunk skimmer). Chunks are still
+ * decoded and given to the modules in the order chosen by the world scanner, which is by their position in the region.
+ *
+ * @author DaPorkchop_
+ */
+public final class SectorRuns {
+    /**
+     * Computes the runs of sectors occupied by the given chunks.
+     *
+     * @param locations the chunk locations, as read by {@link RegionHeader#readLocations(java.nio.channels.FileChannel, int[])}
+     * @param mask      the chunks to include, indexed by {@code x * 32 + z}
+     * @param maxGap    the maximum number of unneeded sectors between two chunks for them to be merged into a single run
+     * @return the runs
+     */
+    public static SectorRuns of(@NonNull int[] locations, @NonNull BitSet mask, int maxGap) {
+        return of(locations, mask, maxGap, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes the runs of sectors occupied by the given chunks.
+     *
+     * @param locations  the chunk locations, as read by {@link RegionHeader#readLocations(java.nio.channels.FileChannel, int[])}
+     * @param mask       the chunks to include, indexed by {@code x * 32 + z}
+     * @param maxGap     the maximum number of unneeded sectors between two chunks for them to be merged into a single run
+     * @param maxSectors the maximum number of sectors in a run. Runs consisting of a single chunk may be longer than this
+     * @return the runs
+     */
+    public static SectorRuns of(@NonNull int[] locations, @NonNull BitSet mask, int maxGap, int maxSectors) {
+        //sort chunks by their location, which is the same as sorting by their first sector. the mask index is kept in the low bits
+        long[] sorted = new long[mask.cardinality()];
+        int chunks = 0;
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            int location = locations[RegionHeader.fromMaskIndex(i)];
+            if ((location & 0xFF) != 0) {
+                sorted[chunks++] = Integer.toUnsignedLong(location) << 10 | i;
+            }
+        }
+        Arrays.sort(sorted, 0, chunks);
+
+        int[] chunkIndices = new int[chunks];
+        int[] chunkStarts = new int[chunks];
+        int[] chunkSizes = new int[chunks];
+        int[] runStarts = new int[chunks];
+        int[] runEnds = new int[chunks];
+        int[] runFirstChunks = new int[chunks + 1];
+        int runs = 0;
+        for (int i = 0; i < chunks; i++) {
+            chunkIndices[i] = (int) (sorted[i] & 0x3FF);
+            int start = chunkStarts[i] = (int) (sorted[i] >>> 18);
+            int end = start + (chunkSizes[i] = (int) (sorted[i] >>> 10) & 0xFF);
+            if (runs != 0 && start - runEnds[runs - 1] <= maxGap && Math.max(runEnds[runs - 1], end) - runStarts[runs - 1] <= maxSectors) {
+                runEnds[runs - 1] = Math.max(runEnds[runs - 1], end);
+            } else {
+                runStarts[runs] = start;
+                runEnds[runs] = end;
+                runFirstChunks[runs] = i;
+                runs++;
+            }
+        }
+        runFirstChunks[runs] = chunks;
+        return new SectorRuns(chunkIndices, chunkStarts, chunkSizes, runStarts, runEnds, runFirstChunks, runs);
+    }
+
+    //the mask index, first sector and sector count of each chunk, in on-disk order
+    private final int[] chunkIndices;
+    private final int[] chunkStarts;
+    private final int[] chunkSizes;
+
+    //the first sector, end sector (exclusive) and index of the first chunk of each run. runFirstChunks has an additional entry at the end
+    private final int[] runStarts;
+    private final int[] runEnds;
+    private final int[] runFirstChunks;
+    private final int count;
+
+    private SectorRuns(@NonNull int[] chunkIndices, @NonNull int[] chunkStarts, @NonNull int[] chunkSizes,
+                       @NonNull int[] runStarts, @NonNull int[] runEnds, @NonNull int[] runFirstChunks, int count) {
+        this.chunkIndices = chunkIndices;
+        this.chunkStarts = chunkStarts;
+        this.chunkSizes = chunkSizes;
+        this.runStarts = runStarts;
+        this.runEnds = runEnds;
+        this.runFirstChunks = runFirstChunks;
+        this.count = count;
+    }
+
+    /**
+     * @return the number of runs
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * @param run the index of the run
+     * @return the offset of the run's first byte in the region file
+     */
+    public long offset(int run) {
+        return (long) this.runStarts[run] * RegionHeader.SECTOR_SIZE;
+    }
+
+    /**
+     * @param run the index of the run
+     * @return the length of the run in bytes
+     */
+    public long length(int run) {
+        return (long) (this.runEnds[run] - this.runStarts[run]) * RegionHeader.SECTOR_SIZE;
+    }
+
+    /**
+     * @return the total length of all runs in bytes
+     */
+    public long totalLength() {
+        long total = 0L;
+        for (int run = 0; run < this.count; run++) {
+            total += this.length(run);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the index of the first chunk in the given run. The chunks of a run are {@code [firstChunk(run), firstChunk(run + 1))}.
+     *
+     * @param run the index of the run, or {@link #count()} to get the total number of chunks
+     * @return the index of the first chunk, as used by {@link #chunk(int)}
+     */
+    public int firstChunk(int run) {
+        return this.runFirstChunks[run];
+    }
+
+    /**
+     * @return the number of chunks in all runs
+     */
+    public int chunks() {
+        return this.runFirstChunks[this.count];
+    }
+
+    /**
+     * @param chunk the index of the chunk, in on-disk order
+     * @return the chunk's index in the mask the runs were computed from ({@code x * 32 + z})
+     */
+    public int chunk(int chunk) {
+        return this.chunkIndices[chunk];
+    }
+
+    /**
+     * @param chunk the index of the chunk, in on-disk order
+     * @return the offset of the chunk's first byte in the region file
+     */
+    public long chunkOffset(int chunk) {
+        return (long) this.chunkStarts[chunk] * RegionHeader.SECTOR_SIZE;
+    }
+
+    /**
+     * @param chunk the index of the chunk, in on-disk order
+     * @return the number of bytes occupied by the chunk in the region file
+     */
+    public int chunkLength(int chunk) {
+        return this.chunkSizes[chunk] * RegionHeader.SECTOR_SIZE;
+    }
+}
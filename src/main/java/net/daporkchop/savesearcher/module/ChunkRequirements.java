@@ -0,0 +1,162 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.module;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * Describes which parts of a chunk a {@link SearchModule} needs in order to process it.
+ * <p>
+ * Requirements are used to skip work nobody asked for: section modules only visit the sections they need, and if every module is
+ * {@link #sparse()}, chunks which contain none of the required data aren't loaded at all.
+ *
+ * @author DaPorkchop_
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@Accessors(fluent = true)
+@EqualsAndHashCode
+public final class ChunkRequirements {
+    /**
+     * A section mask which includes every section.
+     */
+    public static final int ALL_SECTIONS = 0xFFFF;
+
+    /**
+     * Nothing at all. This is the identity for {@link #or(ChunkRequirements)}.
+     */
+    public static final ChunkRequirements NONE = new ChunkRequirements(0, false, false, false, false, true);
+
+    /**
+     * Everything, and the module may produce output for any chunk. This is the default for modules which don't declare their requirements.
+     */
+    public static final ChunkRequirements ALL = new ChunkRequirements(ALL_SECTIONS, true, true, true, true, false);
+
+    /**
+     * Gets the requirements of a module which needs the sections in the given range.
+     *
+     * @param minSectionY the Y coordinate of the lowest section (inclusive)
+     * @param maxSectionY the Y coordinate of the highest section (inclusive)
+     */
+    public static ChunkRequirements sections(int minSectionY, int maxSectionY) {
+        if (minSectionY < 0 || maxSectionY > 15 || minSectionY > maxSectionY) {
+            throw new IllegalArgumentException(String.format("Invalid section range: %d-%d", minSectionY, maxSectionY));
+        }
+        return NONE.sparse(false).withSections((ALL_SECTIONS >>> (15 - maxSectionY)) & (ALL_SECTIONS << minSectionY));
+    }
+
+    /**
+     * Gets the requirements of a module which needs the sections containing the given block Y range.
+     *
+     * @param minY the minimum block Y coordinate (inclusive)
+     * @param maxY the maximum block Y coordinate (inclusive)
+     */
+    public static ChunkRequirements blocks(int minY, int maxY) {
+        return sections(Math.max(minY, 0) >> 4, Math.min(maxY, 255) >> 4);
+    }
+
+    /**
+     * A bitmask of the Y coordinates of the sections which are needed.
+     */
+    protected final int sections;
+    protected final boolean entities;
+    protected final boolean tileEntities;
+    protected final boolean biomes;
+    protected final boolean light;
+
+    /**
+     * Whether the module can never produce output for a chunk which contains none of the required data (e.g. none of the required sections, or no
+     * entities). Modules which report absences, such as chunks without any blocks, are not sparse.
+     */
+    protected final boolean sparse;
+
+    public ChunkRequirements withSections(int sections) {
+        return new ChunkRequirements(this.sections | (sections & ALL_SECTIONS), this.entities, this.tileEntities, this.biomes, this.light, this.sparse);
+    }
+
+    public ChunkRequirements withEntities() {
+        return new ChunkRequirements(this.sections, true, this.tileEntities, this.biomes, this.light, this.sparse);
+    }
+
+    public ChunkRequirements withTileEntities() {
+        return new ChunkRequirements(this.sections, this.entities, true, this.biomes, this.light, this.sparse);
+    }
+
+    public ChunkRequirements withBiomes() {
+        return new ChunkRequirements(this.sections, this.entities, this.tileEntities, true, this.light, this.sparse);
+    }
+
+    public ChunkRequirements withLight() {
+        return new ChunkRequirements(this.sections, this.entities, this.tileEntities, this.biomes, true, this.sparse);
+    }
+
+    public ChunkRequirements sparse(boolean sparse) {
+        return new ChunkRequirements(this.sections, this.entities, this.tileEntities, this.biomes, this.light, sparse);
+    }
+
+    /**
+     * Checks whether or not the section with the given Y coordinate is needed.
+     *
+     * @param sectionY the section's Y coordinate
+     */
+    public boolean needsSection(int sectionY) {
+        return (this.sections & (1 << sectionY)) != 0;
+    }
+
+    /**
+     * Combines these requirements with the given ones, as if they were the requirements of two modules running together.
+     *
+     * @param other the other requirements
+     * @return requirements which include everything needed by both
+     */
+    public ChunkRequirements or(@NonNull ChunkRequirements other) {
+        return new ChunkRequirements(this.sections | other.sections, this.entities | other.entities, this.tileEntities | other.tileEntities,
+                this.biomes | other.biomes, this.light | other.light, this.sparse & other.sparse);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (this.sections == ALL_SECTIONS) {
+            builder.append("sections,");
+        } else if (this.sections != 0) {
+            builder.append("sections=0x").append(Integer.toHexString(this.sections)).append(',');
+        }
+        if (this.entities) {
+            builder.append("entities,");
+        }
+        if (this.tileEntities) {
+            builder.append("tileEntities,");
+        }
+        if (this.biomes) {
+            builder.append("biomes,");
+        }
+        if (this.light) {
+            builder.append("light,");
+        }
+        return builder.append(this.sparse ? "sparse" : "dense").toString();
+    }
+}
@@ -23,10 +23,12 @@ import lombok.NonNull;
 import net.daporkchop.lib.common.function.plain.TriConsumer;
 import net.daporkchop.lib.minecraft.region.util.ChunkProcessor;
 import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.index.IndexFilter;
 import net.daporkchop.savesearcher.output.OutputHandle;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -85,6 +87,35 @@ public interface SearchModule extends ChunkProcessor, AutoCloseable {
      */
     Class<?> dataType();
 
+    /**
+     * Gets a filter which allows this module to use a {@link net.daporkchop.savesearcher.index.BlockIndex} to skip chunks.
+     * <p>
+     * This is only called after the module has been initialized. Chunks are only skipped if every active module provides a filter.
+     *
+     * @return the filter, or {@code null} if this module can't use the index and has to visit every chunk
+     */
+    default IndexFilter indexFilter() {
+        return null;
+    }
+
+    /**
+     * Gets the parts of a chunk that this module needs in order to process it.
+     * <p>
+     * This is only called after the module has been initialized.
+     *
+     * @return this module's {@link ChunkRequirements}
+     */
+    default ChunkRequirements requirements() {
+        return ChunkRequirements.ALL;
+    }
+
+    /**
+     * @return the original modules which this module was merged from, or a list containing only this module if it isn't the result of merging
+     */
+    default List<? extends SearchModule> children() {
+        return Collections.singletonList(this);
+    }
+
     /**
      * Attempts to merge some of the given search modules.
      *
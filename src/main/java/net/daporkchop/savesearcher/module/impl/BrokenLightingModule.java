@@ -25,10 +25,12 @@ import net.daporkchop.lib.math.vector.i.Vec2i;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.PositionDataXZ;
 import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
@@ -37,6 +39,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -47,11 +50,19 @@ import java.util.stream.Collectors;
 import java.util.zip.DeflaterOutputStream;
 
 /**
+ * Finds chunks where the sky light above the highest block of any column isn't at full brightness.
+ * <p>
+ * The highest block in each column is found while the chunk's sections are visited from bottom to top, so that the search shares its pass over the
+ * sections with all other section modules. The sky light is only checked once all sections have been seen.
+ *
  * @author DaPorkchop_
  */
-public final class BrokenLightingModule extends AbstractSearchModule<PositionDataXZ> {
+public final class BrokenLightingModule extends AbstractChunkSectionSearchModule<PositionDataXZ> {
     protected final String lightcleaner;
 
+    //the Y coordinate of the highest block in each column (indexed by z << 4 | x) of the chunk currently being processed, or -1 if there is none
+    private final ThreadLocal<int[]> highestBlocks = ThreadLocal.withInitial(() -> new int[16 * 16]);
+
     public BrokenLightingModule(String[] args) {
        String lightcleaner = null;
 
@@ -132,29 +143,51 @@ public final class BrokenLightingModule extends AbstractSearchModule<PositionDat
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
-        for (int z = 0; z < 16; z++) {
-            X:
-            for (int x = 0; x < 16; x++) {
-                for (int chunkY = 15; chunkY >= 0; chunkY--) {
-                    final Section section = chunk.section(chunkY);
-                    if (section == null) {
-                        continue;
-                    }
+    protected void beginChunk(@NonNull Chunk chunk) {
+        Arrays.fill(this.highestBlocks.get(), -1);
+    }
 
-                    for (int y = 15; y >= 0; y--) {
-                        if (section.getBlockId(x, y, z) != 0) {
-                            int blockY = (chunkY << 4) | y;
-                            if (blockY != 255 && chunk.getSkyLight(x, blockY + 1, z) != 15) {
-                                this.handle.accept(new PositionDataXZ(chunk.pos()));
-                                return;
-                            }
-                            continue X;
-                        }
-                    }
+    @Override
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        if (blocks.containsOnly(0)) {
+            return false;
+        }
+
+        //sections are visited from bottom to top, so any block found in this section is above those found in the previous ones
+        int[] highestBlocks = this.highestBlocks.get();
+        int baseY = section.getY() << 4;
+        for (int column = 0; column < 16 * 16; column++) {
+            for (int index = 15 << 8 | column; index >= 0; index -= 16 * 16) {
+                if (blocks.getBlockId(index) != 0) {
+                    highestBlocks[column] = baseY + (index >>> 8);
+                    break;
                 }
             }
         }
+        return false;
+    }
+
+    @Override
+    protected boolean readsWholeSections() {
+        return false;
+    }
+
+    @Override
+    protected void endChunk(@NonNull Chunk chunk, boolean done) {
+        int[] highestBlocks = this.highestBlocks.get();
+        for (int column = 0; column < 16 * 16; column++) {
+            int blockY = highestBlocks[column];
+            if (blockY >= 0 && blockY != 255 && chunk.getSkyLight(column & 0xF, blockY + 1, column >>> 4) != 15) {
+                this.handle.accept(new PositionDataXZ(chunk.pos()));
+                return;
+            }
+        }
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return SECTIONS.withLight();
     }
 
     @Override
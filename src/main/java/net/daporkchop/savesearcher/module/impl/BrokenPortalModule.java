@@ -21,18 +21,18 @@ package net.daporkchop.savesearcher.module.impl;
 
 import lombok.NonNull;
 import net.daporkchop.lib.math.vector.i.Vec3i;
-import net.daporkchop.lib.minecraft.region.util.NeighboringChunkProcessor;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
-import net.daporkchop.lib.minecraft.util.BlockAccess;
-import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.merging.AbstractNeighboringSearchModule;
+import net.daporkchop.savesearcher.neighbor.NeighborAccess;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
-public final class BrokenPortalModule extends AbstractSearchModule<Vec3i> implements NeighboringChunkProcessor {
+public final class BrokenPortalModule extends AbstractNeighboringSearchModule<Vec3i> {
 
     protected int portal_id;
     protected int obsidian_id;
+    protected int[] targetIds;
 
     public BrokenPortalModule(String[] args) {
     }
@@ -43,60 +43,40 @@ public final class BrokenPortalModule extends AbstractSearchModule<Vec3i> implem
 
         this.portal_id = world.getSave().registry(new ResourceLocation("minecraft:blocks")).lookup(new ResourceLocation("minecraft:portal"));
         this.obsidian_id = world.getSave().registry(new ResourceLocation("minecraft:blocks")).lookup(new ResourceLocation("minecraft:obsidian"));
+        this.targetIds = new int[]{ this.portal_id };
     }
 
     @Override
-    public void handle(long l, long l1, Chunk chunk) {
-        throw new UnsupportedOperationException();
+    protected int[] targetIds() {
+        return this.targetIds;
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public void handle(long current, long estimatedTotal, Chunk chunk, BlockAccess access) {
+    protected void processBlock(int sectionY, @NonNull SectionBlocks blocks, @NonNull NeighborAccess access, int index, int id) {
         final int portal = this.portal_id;
         final int obsidian = this.obsidian_id;
 
-        final int x = chunk.getX() << 4;
-        final int z = chunk.getZ() << 4;
-
-        for (int xx = 15; xx >= 0; xx--) {
-            for (int zz = 15; zz >= 0; zz--) {
-                for (int y = 255; y >= 0; y--) {
-                    if (access.getBlockId(x + xx, y, z + zz) == portal) {
-                        int meta = access.getBlockMeta(x + xx, y, z + zz); // x = 1, z = 2, 0 = unknown?
-
-                        switch (meta) {
-                            case 1:
-                                int east_id = access.getBlockId(x + xx + 1, y, z + zz);
-                                int west_id = access.getBlockId(x + xx - 1, y, z + zz);
-
-                                if ((east_id != portal
-                                        && east_id != obsidian)
-                                        || (west_id != portal
-                                        && west_id != obsidian)) {
-                                    handle.accept(new Vec3i(x + xx, y, z + zz));
-                                }
-                                break;
-                            case 2:
-                                int south_id = access.getBlockId(x + xx, y, z + zz + 1);
-                                int north_id = access.getBlockId(x + xx, y, z + zz - 1);
-
-                                if ((south_id != portal
-                                        && south_id != obsidian)
-                                        || (north_id != portal
-                                        && north_id != obsidian)) {
-                                    handle.accept(new Vec3i(x + xx, y, z + zz));
-                                }
-                                break;
+        int x = index & 0xF;
+        int y = index >>> 8;
+        int z = (index >>> 4) & 0xF;
+
+        int a;
+        int b;
+        switch (blocks.getBlockMeta(index)) { // x = 1, z = 2, 0 = unknown?
+            case 1:
+                a = state(blocks, access, sectionY, x + 1, y, z) >>> 4;
+                b = state(blocks, access, sectionY, x - 1, y, z) >>> 4;
+                break;
+            case 2:
+                a = state(blocks, access, sectionY, x, y, z + 1) >>> 4;
+                b = state(blocks, access, sectionY, x, y, z - 1) >>> 4;
+                break;
+            default:
+                return;
+        }
 
-                        }
-                    }
-                }
-            }
+        if ((a != portal && a != obsidian) || (b != portal && b != obsidian)) {
+            this.handle.accept(new Vec3i(access.minX() + x, sectionY << 4 | y, access.minZ() + z));
         }
     }
 
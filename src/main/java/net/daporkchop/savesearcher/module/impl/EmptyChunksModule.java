@@ -22,34 +22,42 @@ package net.daporkchop.savesearcher.module.impl;
 import lombok.NonNull;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.PositionDataXZ;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
  */
-public final class EmptyChunksModule extends AbstractSearchModule<PositionDataXZ> {
+public final class EmptyChunksModule extends AbstractChunkSectionSearchModule<PositionDataXZ> {
+    //the top section is ignored
+    private static final ChunkRequirements REQUIREMENTS = ChunkRequirements.sections(0, 14);
+
     public EmptyChunksModule(String[] args) {
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
-        for (int chunkY = 0; chunkY < 15; chunkY++) { //go from bottom section to top as it's more likely to find blocks on the bottom
-            final Section section = chunk.section(chunkY);
-            if (section == null) {
-                continue;
-            }
-            for (int y = 0; y < 16; y++) {
-                for (int z = 0; z < 16; z++) {
-                    for (int x = 0; x < 16; x++) {
-                        if (section.getBlockId(x, y, z) != 0) {
-                            return;
-                        }
-                    }
-                }
-            }
+    public ChunkRequirements requirements() {
+        return REQUIREMENTS;
+    }
+
+    @Override
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+        //sections are visited from bottom to top as it's more likely to find blocks on the bottom
+        return !SectionBlocks.of(chunk, section).containsOnly(0);
+    }
+
+    @Override
+    protected boolean readsWholeSections() {
+        return false;
+    }
+
+    @Override
+    protected void endChunk(@NonNull Chunk chunk, boolean done) {
+        if (!done) { //no blocks were found
+            this.handle.accept(new PositionDataXZ(chunk.pos()));
         }
-        this.handle.accept(new PositionDataXZ(chunk.pos()));
     }
 
     @Override
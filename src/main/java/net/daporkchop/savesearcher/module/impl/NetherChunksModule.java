@@ -24,14 +24,18 @@ import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.PositionDataXZ;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
 
 /**
  * @author DaPorkchop_
  */
-public final class NetherChunksModule extends AbstractSearchModule<PositionDataXZ> {
+public final class NetherChunksModule extends AbstractChunkSectionSearchModule<PositionDataXZ> {
+    //only the top layer of section 7 (y=127) is checked for bedrock
+    private static final ChunkRequirements REQUIREMENTS = ChunkRequirements.sections(7, 7).sparse(true);
+
     protected int bedrock_id;
 
     public NetherChunksModule(String[] args) {
@@ -45,21 +49,27 @@ public final class NetherChunksModule extends AbstractSearchModule<PositionDataX
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
-        final int id = this.bedrock_id;
+    public ChunkRequirements requirements() {
+        return REQUIREMENTS;
+    }
 
-        final Section section = chunk.section(7);
-        if (section == null) {
-            return;
-        }
+    @Override
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+        final int id = this.bedrock_id;
         for (int z = 0; z < 16; z++) {
             for (int x = 0; x < 16; x++) {
                 if (section.getBlockId(x, 15, z) == id) {
                     this.handle.accept(new PositionDataXZ(chunk.pos()));
-                    return;
+                    return true;
                 }
             }
         }
+        return true;
+    }
+
+    @Override
+    protected boolean readsWholeSections() {
+        return false;
     }
 
     @Override
@@ -3,6 +3,7 @@ package net.daporkchop.savesearcher.module.impl.biome;
 import lombok.NonNull;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 
 public class BiomeByIdModule extends AbstractSearchModule<BiomeModule.BiomeData> {
     protected final int biomeId;
@@ -28,6 +29,11 @@ public class BiomeByIdModule extends AbstractSearchModule<BiomeModule.BiomeData>
     }
 
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withBiomes();
+    }
+
     @Override
     public String toString() {
         return String.format("Biomes (id=%s)", biomeId);
@@ -4,6 +4,7 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 
 public class BiomeModule extends AbstractSearchModule<BiomeModule.BiomeData> {
@@ -34,6 +35,11 @@ public class BiomeModule extends AbstractSearchModule<BiomeModule.BiomeData> {
     }
 
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withBiomes();
+    }
+
     @Override
     public String toString() {
         return "Biomes";
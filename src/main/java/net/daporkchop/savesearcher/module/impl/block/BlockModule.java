@@ -19,33 +19,22 @@
 
 package net.daporkchop.savesearcher.module.impl.block;
 
-import io.netty.util.collection.IntObjectHashMap;
-import io.netty.util.collection.IntObjectMap;
 import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import net.daporkchop.lib.common.util.PArrays;
 import net.daporkchop.lib.math.vector.i.Vec3i;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
 import net.daporkchop.lib.primitive.lambda.consumer.IntIntIntConsumer;
+import net.daporkchop.savesearcher.index.IndexFilter;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
-import net.daporkchop.savesearcher.module.merging.AbstractEntityByIdSearchModule;
-import net.daporkchop.savesearcher.module.merging.AbstractMergedSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.function.Consumer;
-import java.util.function.Supplier;
-import java.util.stream.Stream;
-
-import static net.daporkchop.lib.common.util.PorkUtil.*;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
@@ -60,6 +49,7 @@ public final class BlockModule extends AbstractChunkSectionSearchModule<Vec3i> i
         int max = 255;
         boolean invert = false;
         boolean chunkinvert = false;
+        boolean runs = false;
 
         for (String s : args) {
             String[] split = s.split("=");
@@ -96,6 +86,9 @@ public final class BlockModule extends AbstractChunkSectionSearchModule<Vec3i> i
                     }
                     chunkinvert = Boolean.parseBoolean(split[1]);
                     break;
+                case "runs":
+                    runs = Boolean.parseBoolean(split[1]);
+                    break;
                 default:
                     throw new IllegalArgumentException(String.format("Invalid argument: %s", s));
             }
@@ -105,6 +98,12 @@ public final class BlockModule extends AbstractChunkSectionSearchModule<Vec3i> i
             throw new IllegalArgumentException("No id given!");
         } else if (min > max) {
             throw new IllegalArgumentException(String.format("Min Y must be less than or equal to max Y! (min=%d, max=%d)", min, max));
+        } else if (min < 0 || max > 255) {
+            throw new IllegalArgumentException(String.format("Y range must be within 0-255! (min=%d, max=%d)", min, max));
+        } else if (runs && !invert) {
+            throw new IllegalArgumentException("runs may only be used together with invert!");
+        } else if (runs) {
+            return new InverseBlockRunsModule(id, meta, min, max);
         } else if (min == 0 && max == 255) {
             return chunkinvert
                     ? new ChunkInverseBlockModule(id, meta)
@@ -132,19 +131,41 @@ public final class BlockModule extends AbstractChunkSectionSearchModule<Vec3i> i
     }
 
     @Override
-    protected void processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
         final int id = this.id;
         final int meta = this.meta;
 
-        for (int y = 0; y < 16; y++) {
-            for (int z = 0; z < 16; z++) {
-                for (int x = 0; x < 16; x++) {
-                    if (section.getBlockId(x, y, z) == id && (meta < 0 || section.getBlockMeta(x, y, z) == meta)) {
-                        this.accept(chunk.minX() + x, (section.getY() << 4) + y, chunk.minZ() + z);
-                    }
-                }
-            }
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        if (!blocks.mayContain(id)) { //the block doesn't occur anywhere in this section
+            return false;
         }
+
+        for (int i = blocks.nextIndexOf(id, meta, 0); i >= 0; i = blocks.nextIndexOf(id, meta, i + 1)) {
+            this.accept(chunk.minX() + (i & 0xF), (section.getY() << 4) + (i >>> 8), chunk.minZ() + ((i >>> 4) & 0xF));
+        }
+        return false;
+    }
+
+    @Override
+    protected int[] consumedStates() {
+        return this.meta < 0 ? allMetas(this.id) : new int[]{ this.id << 4 | this.meta };
+    }
+
+    @Override
+    protected void consumeBlock(@NonNull Chunk chunk, @NonNull Section section, @NonNull SectionBlocks blocks, int index) {
+        this.accept(chunk.minX() + (index & 0xF), (section.getY() << 4) + (index >>> 8), chunk.minZ() + ((index >>> 4) & 0xF));
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return SPARSE_SECTIONS;
+    }
+
+    @Override
+    public IndexFilter indexFilter() {
+        final int id = this.id;
+        final int meta = this.meta;
+        return summary -> summary.contains(id, meta);
     }
 
     @Override
@@ -160,70 +181,4 @@ public final class BlockModule extends AbstractChunkSectionSearchModule<Vec3i> i
             return String.format("Block (id=%s, meta=%d)", this.searchName, this.meta);
         }
     }
-
-    @Override
-    protected void mergeChunkSection(@NonNull List<AbstractChunkSectionSearchModule<?>> in, @NonNull Consumer<AbstractChunkSectionSearchModule<?>> addMerged) {
-        if (in.stream().filter(BlockModule.class::isInstance).count() <= 2L) { //if there are less than 2 modules, the overhead of merging likely outweighs any potential benefits
-            return;
-        }
-
-        List<BlockModule> modules = new ArrayList<>();
-        for (Iterator<AbstractChunkSectionSearchModule<?>> itr = in.iterator(); itr.hasNext(); ) {
-            AbstractChunkSectionSearchModule<?> module = itr.next();
-            if (module instanceof BlockModule) {
-                modules.add((BlockModule) module);
-                itr.remove();
-            }
-        }
-
-        IntObjectMap<List<IntIntIntConsumer>[]> initialIndex = new IntObjectHashMap<>();
-        modules.forEach(module -> {
-            List<IntIntIntConsumer>[] allMetas = initialIndex.computeIfAbsent(module.id, id -> uncheckedCast(PArrays.filled(16, List[]::new, (Supplier<List>) ArrayList::new)));
-            if (module.meta < 0) {
-                for (List<IntIntIntConsumer> list : allMetas) {
-                    list.add(module);
-                }
-            } else {
-                allMetas[module.meta].add(module);
-            }
-        });
-
-        IntObjectMap<IntIntIntConsumer[]> compactIndex = new IntObjectHashMap<>();
-        initialIndex.forEach((id, allMetas) -> compactIndex.put(id, Stream.of(allMetas)
-                .map(list -> {
-                    switch (list.size()) {
-                        case 0:
-                            return null;
-                        case 1:
-                            return list.get(0);
-                        default:
-                            IntIntIntConsumer[] callbacks = list.toArray(new IntIntIntConsumer[0]);
-                            return (IntIntIntConsumer) (x, y, z) -> {
-                                for (IntIntIntConsumer callback : callbacks) {
-                                    callback.accept(x, y, z);
-                                }
-                            };
-                    }
-                })
-                .toArray(IntIntIntConsumer[]::new)));
-
-        addMerged.accept(new AbstractChunkSectionSearchModule.Merged(modules) {
-            @Override
-            protected void processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
-                for (int y = 0; y < 16; y++) {
-                    for (int z = 0; z < 16; z++) {
-                        for (int x = 0; x < 16; x++) {
-                            IntIntIntConsumer[] allMetas = compactIndex.get(section.getBlockId(x, y, z));
-                            if (allMetas != null) {
-                                IntIntIntConsumer callback = allMetas[section.getBlockMeta(x, y, z)];
-                                if (callback != null) {
-                                    callback.accept(chunk.minX() + x, (section.getY() << 4) + y, chunk.minZ() + z);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        });
-    }
 }
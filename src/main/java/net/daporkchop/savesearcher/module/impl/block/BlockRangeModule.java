@@ -25,16 +25,20 @@ import lombok.RequiredArgsConstructor;
 import net.daporkchop.lib.math.vector.i.Vec3i;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.index.IndexFilter;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
  */
 @RequiredArgsConstructor
 @EqualsAndHashCode(callSuper = false)
-final class BlockRangeModule extends AbstractSearchModule<Vec3i> {
+final class BlockRangeModule extends AbstractChunkSectionSearchModule<Vec3i> {
     protected final ResourceLocation searchName;
     protected final int meta;
     protected final int minY;
@@ -53,21 +57,45 @@ final class BlockRangeModule extends AbstractSearchModule<Vec3i> {
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
         final int id = this.id;
         final int meta = this.meta;
-        final int maxY = this.maxY;
-        final int minY = this.minY;
 
-        for (int y = minY; y <= maxY; y++) {
-            for (int z = 0; z < 16; z++) {
-                for (int x = 0; x < 16; x++) {
-                    if (chunk.getBlockId(x, y, z) == id && (meta < 0 || chunk.getBlockMeta(x, y, z) == meta)) {
-                        this.handle.accept(new Vec3i(chunk.minX() + x, y, chunk.minZ() + z));
-                    }
-                }
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        if (!blocks.mayContain(id)) { //the block doesn't occur anywhere in this section
+            return false;
+        }
+
+        final int sectionY = section.getY();
+        final int end = clipEnd(sectionY, this.maxY);
+        for (int i = blocks.nextIndexOf(id, meta, clipStart(sectionY, this.minY)); i >= 0 && i < end; i = blocks.nextIndexOf(id, meta, i + 1)) {
+            this.handle.accept(new Vec3i(chunk.minX() + (i & 0xF), (sectionY << 4) + (i >>> 8), chunk.minZ() + ((i >>> 4) & 0xF)));
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean processMissingSection(@NonNull Chunk chunk, int sectionY) {
+        if (this.id == 0 && this.meta <= 0) { //every block in the section is air, which matches
+            for (int i = clipStart(sectionY, this.minY), end = clipEnd(sectionY, this.maxY); i < end; i++) {
+                this.handle.accept(new Vec3i(chunk.minX() + (i & 0xF), (sectionY << 4) + (i >>> 8), chunk.minZ() + ((i >>> 4) & 0xF)));
             }
         }
+        return false;
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        //missing sections are air, so a search for air may produce output for chunks without any sections
+        return ChunkRequirements.blocks(this.minY, this.maxY).sparse(this.id != 0 || this.meta > 0);
+    }
+
+    @Override
+    public IndexFilter indexFilter() {
+        //the index doesn't know the y coordinates of blocks, so it can only tell us if the block doesn't occur in the chunk at all
+        final int id = this.id;
+        final int meta = this.meta;
+        return summary -> summary.contains(id, meta);
     }
 
     @Override
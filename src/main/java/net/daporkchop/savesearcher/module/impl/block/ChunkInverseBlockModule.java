@@ -26,9 +26,13 @@ import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.index.ChunkSummary;
+import net.daporkchop.savesearcher.index.IndexFilter;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.PositionDataXZ;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
@@ -65,19 +69,44 @@ final class ChunkInverseBlockModule extends AbstractSearchModule<PositionDataXZ>
                     continue;
                 }
             }
-            for (int y = 0; y < 16; y++) {
-                for (int z = 0; z < 16; z++) {
-                    for (int x = 0; x < 16; x++) {
-                        if (section.getBlockId(x, y, z) == id && (meta < 0 || section.getBlockMeta(x, y, z) == meta)) {
-                            return;
-                        }
-                    }
-                }
+
+            SectionBlocks blocks = SectionBlocks.of(chunk, section);
+            if (blocks.mayContain(id) && blocks.nextIndexOf(id, meta, 0) >= 0) {
+                return;
             }
         }
         this.handle.accept(new PositionDataXZ(chunk.pos()));
     }
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.sections(0, 15);
+    }
+
+    @Override
+    public IndexFilter indexFilter() {
+        final int id = this.id;
+        final int meta = this.meta;
+        if (id == 0) { //missing sections are handled specially for air, always visit the chunk
+            return summary -> true;
+        }
+
+        //the index knows exactly whether or not the block occurs in the chunk, so the chunk never needs to be visited
+        return new IndexFilter() {
+            @Override
+            public boolean mayMatch(@NonNull ChunkSummary summary) {
+                return false;
+            }
+
+            @Override
+            public void skipped(int chunkX, int chunkZ, @NonNull ChunkSummary summary) {
+                if (!summary.contains(id, meta)) {
+                    ChunkInverseBlockModule.this.handle.accept(new PositionDataXZ(chunkX, chunkZ));
+                }
+            }
+        };
+    }
+
     @Override
     public String toString() {
         if (this.meta == -1) {
@@ -24,17 +24,22 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.index.ChunkSummary;
+import net.daporkchop.savesearcher.index.IndexFilter;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.PositionDataXZ;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
  */
 @RequiredArgsConstructor
 @EqualsAndHashCode(callSuper = false)
-final class ChunkInverseBlockRangeModule extends AbstractSearchModule<PositionDataXZ> {
+final class ChunkInverseBlockRangeModule extends AbstractChunkSectionSearchModule<PositionDataXZ> {
     protected final ResourceLocation searchName;
     protected final int meta;
     protected final int minY;
@@ -53,23 +58,57 @@ final class ChunkInverseBlockRangeModule extends AbstractSearchModule<PositionDa
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+        final int id = this.id;
+
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        if (!blocks.mayContain(id)) { //the block doesn't occur anywhere in this section
+            return false;
+        }
+
+        final int sectionY = section.getY();
+        int i = blocks.nextIndexOf(id, this.meta, clipStart(sectionY, this.minY));
+        return i >= 0 && i < clipEnd(sectionY, this.maxY);
+    }
+
+    @Override
+    protected boolean processMissingSection(@NonNull Chunk chunk, int sectionY) {
+        //every block in the section is air
+        return this.id == 0 && this.meta <= 0;
+    }
+
+    @Override
+    protected void endChunk(@NonNull Chunk chunk, boolean done) {
+        if (!done) { //the block wasn't found anywhere in the range
+            this.handle.accept(new PositionDataXZ(chunk.pos()));
+        }
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.blocks(this.minY, this.maxY);
+    }
+
+    @Override
+    public IndexFilter indexFilter() {
         final int id = this.id;
         final int meta = this.meta;
-        final int maxY = this.maxY;
-        final int minY = this.minY;
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int z = 0; z < 16; z++) {
-                for (int x = 0; x < 16; x++) {
-                    if (chunk.getBlockId(x, y, z) == id && (meta < 0 || chunk.getBlockMeta(x, y, z) == meta)) {
-                        return;
-                    }
-                }
+
+        //the index doesn't know the y coordinates of blocks, so the chunk only needs to be visited if the block occurs in it at all. missing sections
+        // are indexed as air, so this also works for air.
+        return new IndexFilter() {
+            @Override
+            public boolean mayMatch(@NonNull ChunkSummary summary) {
+                return summary.contains(id, meta);
             }
-        }
 
-        this.handle.accept(new PositionDataXZ(chunk.pos()));
+            @Override
+            public void skipped(int chunkX, int chunkZ, @NonNull ChunkSummary summary) {
+                if (!summary.contains(id, meta)) {
+                    ChunkInverseBlockRangeModule.this.handle.accept(new PositionDataXZ(chunkX, chunkZ));
+                }
+            }
+        };
     }
 
     @Override
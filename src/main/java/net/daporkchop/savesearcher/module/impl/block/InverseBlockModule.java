@@ -27,8 +27,10 @@ import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.PositionData;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
@@ -61,18 +63,21 @@ final class InverseBlockModule extends AbstractSearchModule<PositionData> {
             if (section == null) {
                 section = Section.EMPTY_SECTION;
             }
-            for (int y = 0; y < 16; y++) {
-                for (int z = 0; z < 16; z++) {
-                    for (int x = 0; x < 16; x++) {
-                        if (section.getBlockId(x, y, z) != id && (meta < 0 || section.getBlockMeta(x, y, z) != meta)) {
-                            this.handle.accept(new PositionData(chunk.minX() + x, (sectionY << 4) + y, chunk.minZ() + z));
-                        }
-                    }
+
+            SectionBlocks blocks = SectionBlocks.of(chunk, section);
+            for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+                if (blocks.getBlockId(i) != id && (meta < 0 || blocks.getBlockMeta(i) != meta)) {
+                    this.handle.accept(new PositionData(chunk.minX() + (i & 0xF), (sectionY << 4) + (i >>> 8), chunk.minZ() + ((i >>> 4) & 0xF)));
                 }
             }
         }
     }
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.sections(0, 15);
+    }
+
     @Override
     public String toString() {
         if (this.meta == -1) {
@@ -24,17 +24,20 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.PositionData;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
  */
 @RequiredArgsConstructor
 @EqualsAndHashCode(callSuper = false)
-final class InverseBlockRangeModule extends AbstractSearchModule<PositionData> {
+final class InverseBlockRangeModule extends AbstractChunkSectionSearchModule<PositionData> {
     protected final ResourceLocation searchName;
     protected final int meta;
     protected final int minY;
@@ -53,21 +56,34 @@ final class InverseBlockRangeModule extends AbstractSearchModule<PositionData> {
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
         final int id = this.id;
         final int meta = this.meta;
-        final int maxY = this.maxY;
-        final int minY = this.minY;
 
-        for (int y = minY; y <= maxY; y++) {
-            for (int z = 0; z < 16; z++) {
-                for (int x = 0; x < 16; x++) {
-                    if (chunk.getBlockId(x, y, z) != id && (meta < 0 || chunk.getBlockMeta(x, y, z) != meta)) {
-                        this.handle.accept(new PositionData(chunk.minX() + x, y, chunk.minZ() + z));
-                    }
-                }
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        final int sectionY = section.getY();
+        for (int i = clipStart(sectionY, this.minY), end = clipEnd(sectionY, this.maxY); i < end; i++) {
+            int state = blocks.state(i);
+            if ((state >>> 4) != id && (meta < 0 || (state & 0xF) != meta)) {
+                this.handle.accept(new PositionData(chunk.minX() + (i & 0xF), (sectionY << 4) + (i >>> 8), chunk.minZ() + ((i >>> 4) & 0xF)));
             }
         }
+        return false;
+    }
+
+    @Override
+    protected boolean processMissingSection(@NonNull Chunk chunk, int sectionY) {
+        if (this.id != 0 && (this.meta < 0 || this.meta != 0)) { //every block in the section is air, which doesn't match
+            for (int i = clipStart(sectionY, this.minY), end = clipEnd(sectionY, this.maxY); i < end; i++) {
+                this.handle.accept(new PositionData(chunk.minX() + (i & 0xF), (sectionY << 4) + (i >>> 8), chunk.minZ() + ((i >>> 4) & 0xF)));
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.blocks(this.minY, this.maxY);
     }
 
     @Override
@@ -0,0 +1,175 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.module.impl.block;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.daporkchop.lib.minecraft.registry.ResourceLocation;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
+import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
+import net.daporkchop.savesearcher.module.PositionDataXZ;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
+import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
+
+import java.util.Arrays;
+
+/**
+ * Finds the same blocks as {@link InverseBlockModule} and {@link InverseBlockRangeModule}, but saves them as vertical runs of consecutive blocks in
+ * a single column rather than one row per block.
+ * <p>
+ * Runs continue across section boundaries, so a chunk produces at most a few hundred rows instead of up to 65536. Missing sections, and sections
+ * which don't contain the block at all, extend every column's run without looking at individual blocks.
+ *
+ * @author DaPorkchop_
+ */
+@RequiredArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+final class InverseBlockRunsModule extends AbstractChunkSectionSearchModule<InverseBlockRunsModule.BlockRun> {
+    protected final ResourceLocation searchName;
+    protected final int meta;
+    protected final int minY;
+    protected final int maxY;
+
+    @EqualsAndHashCode.Exclude
+    protected int id;
+
+    //the Y coordinate at which the currently open run in each column (indexed by z << 4 | x) started, or -1 if there is none
+    @EqualsAndHashCode.Exclude
+    private final ThreadLocal<int[]> runStarts = ThreadLocal.withInitial(() -> new int[16 * 16]);
+
+    @Override
+    public void init(@NonNull World world, @NonNull OutputHandle handle) {
+        super.init(world, handle);
+
+        if ((this.id = world.getSave().registry(new ResourceLocation("minecraft:blocks")).lookup(this.searchName)) == -1) {
+            throw new IllegalArgumentException(String.format("Invalid block id: %s", this.searchName));
+        }
+    }
+
+    @Override
+    protected void beginChunk(@NonNull Chunk chunk) {
+        Arrays.fill(this.runStarts.get(), -1);
+    }
+
+    @Override
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+        final int id = this.id;
+        final int meta = this.meta;
+        final int[] runStarts = this.runStarts.get();
+
+        final int sectionY = section.getY();
+        final int start = clipStart(sectionY, this.minY);
+        final int end = clipEnd(sectionY, this.maxY);
+
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        if (meta < 0 && !blocks.mayContain(id)) { //the block doesn't occur anywhere in this section, so every column is part of a run
+            openAll(runStarts, (sectionY << 4) + (start >>> 8));
+            return false;
+        }
+
+        for (int i = start; i < end; i++) {
+            int state = blocks.state(i);
+            int column = i & 0xFF;
+            if ((state >>> 4) != id && (meta < 0 || (state & 0xF) != meta)) {
+                if (runStarts[column] < 0) {
+                    runStarts[column] = (sectionY << 4) + (i >>> 8);
+                }
+            } else if (runStarts[column] >= 0) {
+                this.emit(chunk, column, runStarts[column], (sectionY << 4) + (i >>> 8) - 1);
+                runStarts[column] = -1;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean processMissingSection(@NonNull Chunk chunk, int sectionY) {
+        int y = (sectionY << 4) + (clipStart(sectionY, this.minY) >>> 8);
+        if (this.id != 0 && (this.meta < 0 || this.meta != 0)) { //every block in the section is air, which doesn't match
+            openAll(this.runStarts.get(), y);
+        } else {
+            this.closeAll(chunk, y - 1);
+        }
+        return false;
+    }
+
+    @Override
+    protected void endChunk(@NonNull Chunk chunk, boolean done) {
+        this.closeAll(chunk, this.maxY);
+    }
+
+    private static void openAll(@NonNull int[] runStarts, int y) {
+        for (int column = 0; column < runStarts.length; column++) {
+            if (runStarts[column] < 0) {
+                runStarts[column] = y;
+            }
+        }
+    }
+
+    private void closeAll(@NonNull Chunk chunk, int yEnd) {
+        int[] runStarts = this.runStarts.get();
+        for (int column = 0; column < runStarts.length; column++) {
+            if (runStarts[column] >= 0) {
+                this.emit(chunk, column, runStarts[column], yEnd);
+                runStarts[column] = -1;
+            }
+        }
+    }
+
+    private void emit(@NonNull Chunk chunk, int column, int yStart, int yEnd) {
+        this.handle.accept(new BlockRun(chunk.minX() + (column & 0xF), chunk.minZ() + (column >>> 4), yStart, yEnd));
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.blocks(this.minY, this.maxY);
+    }
+
+    @Override
+    public String toString() {
+        if (this.meta == -1) {
+            return String.format("Block - Inverted,Runs (id=%s, min=%d, max=%d)", this.searchName, this.minY, this.maxY);
+        } else {
+            return String.format("Block - Inverted,Runs (id=%s, meta=%d, min=%d, max=%d)", this.searchName, this.meta, this.minY, this.maxY);
+        }
+    }
+
+    /**
+     * A vertical run of blocks in a single column.
+     *
+     * @author DaPorkchop_
+     */
+    protected static final class BlockRun extends PositionDataXZ {
+        public final int yStart;
+        public final int yEnd;
+
+        public BlockRun(int x, int z, int yStart, int yEnd) {
+            super(x, z);
+
+            this.yStart = yStart;
+            this.yEnd = yEnd;
+        }
+    }
+}
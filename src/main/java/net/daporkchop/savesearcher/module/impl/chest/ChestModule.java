@@ -26,9 +26,11 @@ import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
@@ -72,20 +74,38 @@ public abstract class ChestModule<T extends ChestModule.ChestData> extends Abstr
     }
 
     @Override
-    protected void processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
         final int chestId = this.chestId;
         final int trappedChestId = this.trappedChestId;
 
-        for (int y = 0; y < 16; y++) {
-            for (int z = 0; z < 16; z++) {
-                for (int x = 0; x < 16; x++) {
-                    int id = section.getBlockId(x, y, z);
-                    if (id == chestId || id == trappedChestId) {
-                        this.handle.accept(this.createData(chunk.minX() + x, (section.getY() << 4) + y, chunk.minZ() + z, id == trappedChestId, chunk));
-                    }
-                }
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        if (!blocks.mayContainAny(chestId, trappedChestId)) {
+            return false;
+        }
+
+        for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+            int id = blocks.getBlockId(i);
+            if (id == chestId || id == trappedChestId) {
+                this.consumeBlock(chunk, section, blocks, i);
             }
         }
+        return false;
+    }
+
+    @Override
+    protected int[] consumedStates() {
+        return allMetas(this.chestId, this.trappedChestId);
+    }
+
+    @Override
+    protected void consumeBlock(@NonNull Chunk chunk, @NonNull Section section, @NonNull SectionBlocks blocks, int index) {
+        this.handle.accept(this.createData(chunk.minX() + (index & 0xF), (section.getY() << 4) + (index >>> 8), chunk.minZ() + ((index >>> 4) & 0xF),
+                blocks.getBlockId(index) == this.trappedChestId, chunk));
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return SPARSE_SECTIONS;
     }
 
     protected abstract T createData(int x, int y, int z, boolean trapped, Chunk chunk);
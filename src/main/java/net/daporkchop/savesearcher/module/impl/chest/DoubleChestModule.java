@@ -21,21 +21,21 @@ package net.daporkchop.savesearcher.module.impl.chest;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import net.daporkchop.lib.minecraft.region.util.NeighboringChunkProcessor;
 import net.daporkchop.lib.minecraft.registry.IDRegistry;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
-import net.daporkchop.lib.minecraft.util.BlockAccess;
-import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.merging.AbstractNeighboringSearchModule;
+import net.daporkchop.savesearcher.neighbor.NeighborAccess;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 /**
  * @author DaPorkchop_
  */
-abstract class DoubleChestModule<T extends DoubleChestModule.DoubleChestData> extends AbstractSearchModule<T> implements NeighboringChunkProcessor {
+abstract class DoubleChestModule<T extends DoubleChestModule.DoubleChestData> extends AbstractNeighboringSearchModule<T> {
     private int chestId;
     private int trappedChestId;
+    private int[] targetIds;
 
     @Override
     public void init(@NonNull World world, @NonNull OutputHandle handle) {
@@ -43,42 +43,34 @@ abstract class DoubleChestModule<T extends DoubleChestModule.DoubleChestData> ex
 
         this.chestId = world.getSave().registry(new ResourceLocation("minecraft:blocks")).lookup(new ResourceLocation("minecraft:chest"));
         this.trappedChestId = world.getSave().registry(new ResourceLocation("minecraft:blocks")).lookup(new ResourceLocation("minecraft:trapped_chest"));
+        this.targetIds = new int[]{ this.chestId, this.trappedChestId };
     }
 
     @Override
-    public void handle(long l, long l1, Chunk chunk) {
-        throw new UnsupportedOperationException();
+    protected int[] targetIds() {
+        return this.targetIds;
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
-        throw new UnsupportedOperationException();
-    }
+    protected void processBlock(int sectionY, @NonNull SectionBlocks blocks, @NonNull NeighborAccess access, int index, int id) {
+        int x = index & 0xF;
+        int y = index >>> 8;
+        int z = (index >>> 4) & 0xF;
+        if (((x ^ z) & 1) == 0) { //chests are only checked in a checkerboard pattern, so that a double chest isn't found from both halves
+            return;
+        }
 
-    @Override
-    public void handle(long current, long estimatedTotal, Chunk chunk, BlockAccess access) {
-        final int chestId = this.chestId;
-        final int trappedChestId = this.trappedChestId;
-        final int x = chunk.getX() << 4;
-        final int z = chunk.getZ() << 4;
-
-        for (int xx = 15; xx >= 0; xx--) {
-            for (int zz = 15 - (xx & 1); zz >= 0; zz -= 2) {
-                for (int y = 255; y >= 0; y--) {
-                    int id = access.getBlockId(x + xx, y, z + zz);
-                    if (id == chestId || id == trappedChestId) {
-                        if (access.getBlockId(x + xx + 1, y, z + zz) == id) {
-                            this.handle.accept(this.createData(x + xx, y, z + zz, x + xx + 1, y, z + zz, id == trappedChestId, access));
-                        } else if (access.getBlockId(x + xx, y, z + zz + 1) == id) {
-                            this.handle.accept(this.createData(x + xx, y, z + zz, x + xx, y, z + zz + 1, id == trappedChestId, access));
-                        }
-                    }
-                }
-            }
+        final int baseX = access.minX();
+        final int baseY = sectionY << 4;
+        final int baseZ = access.minZ();
+        if (state(blocks, access, sectionY, x + 1, y, z) >>> 4 == id) {
+            this.handle.accept(this.createData(baseX + x, baseY + y, baseZ + z, baseX + x + 1, baseY + y, baseZ + z, id == this.trappedChestId, access));
+        } else if (state(blocks, access, sectionY, x, y, z + 1) >>> 4 == id) {
+            this.handle.accept(this.createData(baseX + x, baseY + y, baseZ + z, baseX + x, baseY + y, baseZ + z + 1, id == this.trappedChestId, access));
         }
     }
 
-    protected abstract T createData(int x0, int y0, int z0, int x1, int y1, int z1, boolean trapped, BlockAccess access);
+    protected abstract T createData(int x0, int y0, int z0, int x1, int y1, int z1, boolean trapped, NeighborAccess access);
 
     @Override
     public abstract String toString();
@@ -122,7 +114,7 @@ abstract class DoubleChestModule<T extends DoubleChestModule.DoubleChestData> ex
 
     protected static final class Regular extends DoubleChestModule<DoubleChestData> {
         @Override
-        protected DoubleChestData createData(int x0, int y0, int z0, int x1, int y1, int z1, boolean trapped, BlockAccess access) {
+        protected DoubleChestData createData(int x0, int y0, int z0, int x1, int y1, int z1, boolean trapped, NeighborAccess access) {
             return new DoubleChestData(x0, y0, z0, x1, y1, z1, trapped);
         }
 
@@ -143,7 +135,7 @@ abstract class DoubleChestModule<T extends DoubleChestModule.DoubleChestData> ex
         }
 
         @Override
-        protected DoubleChestDataWithAbove createData(int x0, int y0, int z0, int x1, int y1, int z1, boolean trapped, BlockAccess access) {
+        protected DoubleChestDataWithAbove createData(int x0, int y0, int z0, int x1, int y1, int z1, boolean trapped, NeighborAccess access) {
             ResourceLocation aboveId0 = null;
             int aboveMeta0 = -1;
             ResourceLocation aboveId1 = null;
@@ -27,16 +27,24 @@ import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
-import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.index.ChunkSummary;
+import net.daporkchop.savesearcher.index.IndexFilter;
 import net.daporkchop.savesearcher.module.PositionDataXZ;
 import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.module.merging.AbstractChunkSectionSearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author DaPorkchop_
  */
 @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
-public final class CountBlocksModule extends AbstractSearchModule<CountBlocksModule.CountData> {
+public final class CountBlocksModule extends AbstractChunkSectionSearchModule<CountBlocksModule.CountData> {
     public static SearchModule find(@NonNull String[] args) {
         ResourceLocation id = null;
         int meta = -1;
@@ -85,10 +93,19 @@ public final class CountBlocksModule extends AbstractSearchModule<CountBlocksMod
         }
     }
 
+    /**
+     * The minimum number of modules which must be present before they are merged into a single counting pass. With fewer modules, counting each
+     * block separately is faster than building a histogram of all states.
+     */
+    private static final int MIN_MERGED = 3;
+
     protected final ResourceLocation searchName;
     protected final int              meta;
     protected       int              id;
 
+    //the number of matching blocks found so far in the chunk currently being processed on each thread
+    private final ThreadLocal<long[]> count = ThreadLocal.withInitial(() -> new long[1]);
+
     @Override
     public void init(@NonNull World world, @NonNull OutputHandle handle) {
         super.init(world, handle);
@@ -99,30 +116,78 @@ public final class CountBlocksModule extends AbstractSearchModule<CountBlocksMod
     }
 
     @Override
-    protected void processChunk(@NonNull Chunk chunk) {
-        final int id = this.id;
-        final int meta = this.meta;
+    protected void beginChunk(@NonNull Chunk chunk) {
+        this.count.get()[0] = 0L;
+    }
+
+    @Override
+    protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+        SectionBlocks blocks = SectionBlocks.of(chunk, section);
+        if (blocks.mayContain(this.id)) {
+            this.count.get()[0] += blocks.count(this.id, this.meta);
+        }
+        return false;
+    }
 
+    @Override
+    protected void endChunk(@NonNull Chunk chunk, boolean done) {
+        this.handle.accept(new CountData(chunk.pos(), this.count.get()[0] + this.countMissing(chunk)));
+    }
+
+    /**
+     * Counts the blocks in the given chunk's missing sections which match this module.
+     * <p>
+     * Missing sections consist entirely of air.
+     */
+    protected long countMissing(@NonNull Chunk chunk) {
         long count = 0L;
-        for (int sectionY = 0; sectionY < 16; sectionY++) {
-            Section section = chunk.section(sectionY);
-            if (section == null) {
-                if (id == 0 && meta == 0) {
-                    count += 4096L;
+        if (this.id == 0 && this.meta <= 0) {
+            for (int sectionY = 0; sectionY < 16; sectionY++) {
+                if (chunk.section(sectionY) == null) {
+                    count += SectionBlocks.BLOCKS;
                 }
-                continue;
             }
-            for (int y = 0; y < 16; y++) {
-                for (int z = 0; z < 16; z++) {
-                    for (int x = 0; x < 16; x++) {
-                        if (section.getBlockId(x, y, z) == id && (meta < 0 || section.getBlockMeta(x, y, z) == meta)) {
-                            count++;
-                        }
-                    }
-                }
+        }
+        return count;
+    }
+
+    @Override
+    protected void mergeChunkSection(@NonNull List<AbstractChunkSectionSearchModule<?>> in, @NonNull Consumer<AbstractChunkSectionSearchModule<?>> addMerged) {
+        if (in.stream().filter(CountBlocksModule.class::isInstance).count() < MIN_MERGED) {
+            return;
+        }
+
+        List<CountBlocksModule> modules = new ArrayList<>();
+        for (Iterator<AbstractChunkSectionSearchModule<?>> itr = in.iterator(); itr.hasNext(); ) {
+            AbstractChunkSectionSearchModule<?> module = itr.next();
+            if (module instanceof CountBlocksModule) {
+                modules.add((CountBlocksModule) module);
+                itr.remove();
             }
         }
-        this.handle.accept(new CountData(chunk.pos(), count));
+        addMerged.accept(new MergedCounter(modules));
+    }
+
+    @Override
+    public IndexFilter indexFilter() {
+        final int id = this.id;
+        final int meta = this.meta;
+        if (id == 0) { //missing sections are handled specially for air, always visit the chunk
+            return summary -> true;
+        }
+
+        //the index contains the exact number of occurrences of every block, so the chunk never needs to be visited
+        return new IndexFilter() {
+            @Override
+            public boolean mayMatch(@NonNull ChunkSummary summary) {
+                return false;
+            }
+
+            @Override
+            public void skipped(int chunkX, int chunkZ, @NonNull ChunkSummary summary) {
+                CountBlocksModule.this.handle.accept(new CountData(new Vec2i(chunkX, chunkZ), summary.count(id, meta)));
+            }
+        };
     }
 
     @Override
@@ -153,6 +218,80 @@ public final class CountBlocksModule extends AbstractSearchModule<CountBlocksMod
         }
     }
 
+    /**
+     * Counts blocks for any number of {@link CountBlocksModule}s at once.
+     * <p>
+     * Every section is swept exactly once to build a histogram of all block states in the chunk, from which the count for each module is read out
+     * when the chunk is finished.
+     *
+     * @author DaPorkchop_
+     */
+    private final class MergedCounter extends Merged {
+        private final CountBlocksModule[] modules;
+        private final int[] ids;
+
+        private final ThreadLocal<Histogram> histogram = ThreadLocal.withInitial(Histogram::new);
+
+        public MergedCounter(@NonNull List<CountBlocksModule> modules) {
+            super(modules);
+
+            this.modules = modules.toArray(new CountBlocksModule[0]);
+            this.ids = modules.stream().mapToInt(module -> module.id).distinct().toArray();
+        }
+
+        @Override
+        protected void beginChunk(@NonNull Chunk chunk) {
+            this.histogram.get().clear();
+        }
+
+        @Override
+        protected boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section) {
+            //the histogram needs every block anyway, so packing the section costs nothing extra and allows it to be skipped
+            SectionBlocks blocks = SectionBlocks.of(chunk, section).pack();
+            if (blocks.mayContainAny(this.ids)) {
+                Histogram histogram = this.histogram.get();
+                histogram.touchedCount = blocks.countStates(histogram.counts, histogram.touched, histogram.touchedCount);
+            }
+            return false;
+        }
+
+        @Override
+        protected void endChunk(@NonNull Chunk chunk, boolean done) {
+            int[] counts = this.histogram.get().counts;
+            for (CountBlocksModule module : this.modules) {
+                long count = module.countMissing(chunk);
+                if ((module.id & ~0xFFF) == 0) {
+                    if (module.meta < 0) {
+                        for (int meta = 0; meta < 16; meta++) {
+                            count += counts[module.id << 4 | meta];
+                        }
+                    } else {
+                        count += counts[module.id << 4 | module.meta];
+                    }
+                }
+                module.handle.accept(new CountData(chunk.pos(), count));
+            }
+        }
+    }
+
+    /**
+     * A per-thread histogram of the block states in a single chunk.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Histogram {
+        private final int[] counts = new int[1 << 16];
+        private final int[] touched = new int[1 << 16];
+        private int touchedCount;
+
+        public void clear() {
+            for (int i = 0; i < this.touchedCount; i++) {
+                this.counts[this.touched[i]] = 0;
+            }
+            this.touchedCount = 0;
+        }
+    }
+
     protected static final class CountData extends PositionDataXZ {
         public final long count;
 
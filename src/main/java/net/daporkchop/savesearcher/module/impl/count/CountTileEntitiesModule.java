@@ -25,6 +25,7 @@ import lombok.RequiredArgsConstructor;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 
 /**
  * @author DaPorkchop_
@@ -44,6 +45,11 @@ public final class CountTileEntitiesModule extends AbstractSearchModule<CountBlo
         this.handle.accept(new CountBlocksModule.CountData(chunk.pos(), count));
     }
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withTileEntities().sparse(false);
+    }
+
     @Override
     public String toString() {
         if (this.filterId == null) {
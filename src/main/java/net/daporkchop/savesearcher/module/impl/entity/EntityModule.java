@@ -26,6 +26,7 @@ import net.daporkchop.lib.minecraft.entity.impl.UnknownEntity;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 import net.daporkchop.savesearcher.util.NBTHelper;
 
@@ -49,6 +50,11 @@ public final class EntityModule extends AbstractSearchModule<EntityModule.Entity
         chunk.entities().forEach(entity -> this.handle.accept(new EntityData(entity)));
     }
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withEntities();
+    }
+
     @Override
     public String toString() {
         return "Entities";
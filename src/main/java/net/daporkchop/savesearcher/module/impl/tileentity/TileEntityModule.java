@@ -7,6 +7,7 @@ import net.daporkchop.lib.minecraft.tileentity.TileEntity;
 import net.daporkchop.lib.minecraft.tileentity.impl.UnknownTileEntity;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 import net.daporkchop.savesearcher.util.NBTHelper;
 
@@ -31,6 +32,11 @@ public final class TileEntityModule extends AbstractSearchModule<TileEntityModul
 
 
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withTileEntities();
+    }
+
     @Override
     public String toString() {
         return "Tile Entities";
@@ -26,34 +26,194 @@ import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.lib.minecraft.world.Section;
 import net.daporkchop.lib.minecraft.world.World;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.SectionBlocks;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static net.daporkchop.lib.common.util.PorkUtil.*;
 
 /**
+ * Base class for modules which search a chunk one section at a time.
+ * <p>
+ * All section modules are merged into a single processor, which visits each chunk's sections once from bottom to top and feeds them to every module.
+ * Modules which are only interested in blocks with certain states may declare them using {@link #consumedStates()}, in which case the merged
+ * processor sweeps each section once and dispatches matching blocks to all of them through a shared table indexed by state, rather than every module
+ * searching the section on its own. Modules may also stop receiving sections early by returning {@code true} from
+ * {@link #processChunkSection(Chunk, Section)}, and once every module is done with a chunk its remaining sections are skipped entirely.
+ * <p>
+ * Sections are only {@link SectionBlocks#pack() packed} by the merged processor if more than one module is going to read all of their blocks, a
+ * module running on its own reads them directly.
+ *
  * @author DaPorkchop_
  */
 @RequiredArgsConstructor
 public abstract class AbstractChunkSectionSearchModule<S> extends AbstractSearchModule<S> {
+    /**
+     * The minimum number of distinct block IDs which must be consumed before the merged processor uses a shared dispatch table. With fewer IDs,
+     * letting each module search for its own blocks is faster.
+     */
+    private static final int MIN_DISPATCH_IDS = 3;
+
+    /**
+     * The default requirements of a section module: every section, and output may be produced for any chunk.
+     */
+    protected static final ChunkRequirements SECTIONS = ChunkRequirements.sections(0, 15);
+
+    /**
+     * The requirements of a section module which only produces output for blocks that exist.
+     */
+    protected static final ChunkRequirements SPARSE_SECTIONS = SECTIONS.sparse(true);
+
+    /**
+     * Gets the states ({@code id << 4 | meta}) of all metas of the given block IDs.
+     *
+     * @param ids the block IDs
+     * @return the states
+     */
+    protected static int[] allMetas(@NonNull int... ids) {
+        return IntStream.of(ids).filter(id -> (id & ~0xFFF) == 0).flatMap(id -> IntStream.range(0, 16).map(meta -> id << 4 | meta)).distinct().toArray();
+    }
+
+    //the mask of sections from this module's requirements, or -1 if it hasn't been computed yet
+    private int sectionMask = -1;
+
+    @Override
+    public ChunkRequirements requirements() {
+        return SECTIONS;
+    }
+
+    /**
+     * @return the bitmask of the Y coordinates of the sections this module processes
+     */
+    protected int sectionMask() {
+        int sectionMask = this.sectionMask;
+        if (sectionMask < 0) { //requirements are constant once the module is initialized, so a racy initialization is harmless
+            this.sectionMask = sectionMask = this.requirements().sections();
+        }
+        return sectionMask;
+    }
+
+    /**
+     * Gets the index of the lowest block in the given section whose Y coordinate is at least {@code minY}.
+     *
+     * @param sectionY the section's Y coordinate
+     * @param minY     the minimum block Y coordinate (inclusive)
+     * @return the index (inclusive), as in {@link SectionBlocks#index(int, int, int)}
+     */
+    protected static int clipStart(int sectionY, int minY) {
+        return Math.min(Math.max(minY - (sectionY << 4), 0), 16) << 8;
+    }
+
+    /**
+     * Gets the index just past the highest block in the given section whose Y coordinate is at most {@code maxY}.
+     *
+     * @param sectionY the section's Y coordinate
+     * @param maxY     the maximum block Y coordinate (inclusive)
+     * @return the index (exclusive), as in {@link SectionBlocks#index(int, int, int)}
+     */
+    protected static int clipEnd(int sectionY, int maxY) {
+        return Math.min(Math.max(maxY - (sectionY << 4) + 1, 0), 16) << 8;
+    }
+
     @Override
     protected void processChunk(@NonNull Chunk chunk) {
-        for (int sectionY = 0; sectionY < 16; sectionY++) {
+        this.beginChunk(chunk);
+        boolean done = false;
+        for (int mask = this.sectionMask(); mask != 0 && !done; mask &= mask - 1) {
+            int sectionY = Integer.numberOfTrailingZeros(mask);
             Section section = chunk.section(sectionY);
-            if (section == null) {
-                continue;
-            }
-            this.processChunkSection(chunk, section);
+            done = section != null ? this.processChunkSection(chunk, section) : this.processMissingSection(chunk, sectionY);
         }
+        this.endChunk(chunk, done);
+    }
+
+    /**
+     * Called before any sections of a chunk are processed.
+     *
+     * @param chunk the chunk
+     */
+    protected void beginChunk(@NonNull Chunk chunk) {
+        //no-op
+    }
+
+    /**
+     * Processes a single section of a chunk.
+     * <p>
+     * Sections are processed from bottom to top. Sections which aren't included in this module's {@link #requirements()} are skipped, and missing
+     * sections are passed to {@link #processMissingSection(Chunk, int)} instead.
+     *
+     * @param chunk   the chunk
+     * @param section the section
+     * @return {@code true} if this module doesn't need to see any more sections of the chunk
+     */
+    protected abstract boolean processChunkSection(@NonNull Chunk chunk, @NonNull Section section);
+
+    /**
+     * Processes a section of a chunk which doesn't exist, and therefore consists entirely of air.
+     *
+     * @param chunk    the chunk
+     * @param sectionY the Y coordinate of the missing section
+     * @return {@code true} if this module doesn't need to see any more sections of the chunk
+     */
+    protected boolean processMissingSection(@NonNull Chunk chunk, int sectionY) {
+        return false;
+    }
+
+    /**
+     * Called after all sections of a chunk have been processed.
+     *
+     * @param chunk the chunk
+     * @param done  whether or not {@link #processChunkSection(Chunk, Section)} returned {@code true} for any section of the chunk
+     */
+    protected void endChunk(@NonNull Chunk chunk, boolean done) {
+        //no-op
+    }
+
+    /**
+     * Checks whether or not this module usually reads every block of the sections it processes.
+     * <p>
+     * Sections which are read in full by more than one module are {@link SectionBlocks#pack() packed} before they are processed, so that they only have
+     * to be read once. Modules which only read a few blocks, or which usually stop early, should return {@code false}.
+     *
+     * @return whether or not this module reads whole sections
+     */
+    protected boolean readsWholeSections() {
+        return true;
     }
 
-    protected abstract void processChunkSection(@NonNull Chunk chunk, @NonNull Section section);
+    /**
+     * Gets the block states that this module is interested in.
+     * <p>
+     * If non-{@code null}, this module may be fed through {@link #consumeBlock(Chunk, Section, SectionBlocks, int)} instead of
+     * {@link #processChunkSection(Chunk, Section)} when merged with other modules. This is only called after the module has been initialized.
+     *
+     * @return the states ({@code id << 4 | meta}) of the blocks that this module consumes, or {@code null} if it needs to process whole sections
+     */
+    protected int[] consumedStates() {
+        return null;
+    }
+
+    /**
+     * Consumes a single block with one of the states returned by {@link #consumedStates()}.
+     *
+     * @param chunk   the chunk
+     * @param section the section containing the block
+     * @param blocks  the blocks in the section
+     * @param index   the block's {@link SectionBlocks#index(int, int, int) index}
+     */
+    protected void consumeBlock(@NonNull Chunk chunk, @NonNull Section section, @NonNull SectionBlocks blocks, int index) {
+        throw new UnsupportedOperationException();
+    }
 
     @Override
     public void merge(@NonNull List<SearchModule> in, @NonNull Consumer<SearchModule> addMerged) {
@@ -71,27 +231,173 @@ public abstract class AbstractChunkSectionSearchModule<S> extends AbstractSearch
         }
 
         List<AbstractChunkSectionSearchModule<?>> mergedList = SearchModule.merge(modules, AbstractChunkSectionSearchModule::mergeChunkSection);
-        AbstractChunkSectionSearchModule<?>[] mergedArray = uncheckedCast(mergedList.toArray(new AbstractChunkSectionSearchModule[0]));
-
-        addMerged.accept(new AbstractMergedSearchModule(mergedList) {
-            @Override
-            public void handle(long current, long estimatedTotal, @NonNull Chunk chunk) {
-                for (int sectionY = 0; sectionY < 16; sectionY++) {
-                    Section section = chunk.section(sectionY);
-                    if (section == null) {
+        addMerged.accept(new FusedSectionModule(mergedList));
+    }
+
+    protected void mergeChunkSection(@NonNull List<AbstractChunkSectionSearchModule<?>> in, @NonNull Consumer<AbstractChunkSectionSearchModule<?>> addMerged) {
+        //no-op
+    }
+
+    /**
+     * Runs all section modules in a single pass over each chunk.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class FusedSectionModule extends AbstractMergedSearchModule {
+        private final AbstractChunkSectionSearchModule<?>[] modules;
+
+        //the sections needed by each module, and by any module at all
+        private final int[] sectionMasks;
+        private final int sectionMask;
+
+        //whether or not each module is given whole sections, rather than only being fed blocks through the dispatch table
+        private final boolean[] processesSections;
+
+        //whether or not each module reads every block of the sections it is given
+        private final boolean[] readsSections;
+
+        //the consumers of each block state, or null if there are none. null if there are too few consumed IDs for a shared sweep to be worth it
+        private final AbstractChunkSectionSearchModule<?>[][] dispatch;
+        private final int[] dispatchIds;
+
+        //whether or not each module is done with the chunk currently being processed, reused to avoid allocating a new array for every chunk
+        private final ThreadLocal<boolean[]> done;
+
+        public FusedSectionModule(@NonNull List<AbstractChunkSectionSearchModule<?>> modules) {
+            super(modules);
+
+            this.modules = modules.toArray(new AbstractChunkSectionSearchModule[0]);
+            this.processesSections = new boolean[this.modules.length];
+            this.sectionMasks = Arrays.stream(this.modules).mapToInt(AbstractChunkSectionSearchModule::sectionMask).toArray();
+
+            AbstractChunkSectionSearchModule<?>[][] dispatch = new AbstractChunkSectionSearchModule[1 << 16][];
+            int sectionMask = 0;
+            for (int i = 0; i < this.modules.length; i++) {
+                AbstractChunkSectionSearchModule<?> module = this.modules[i];
+                int[] states = module.consumedStates();
+                sectionMask |= this.sectionMasks[i];
+                if (states == null || this.sectionMasks[i] != ChunkRequirements.ALL_SECTIONS) { //the dispatch sweep doesn't know about section masks
+                    this.processesSections[i] = true;
+                    continue;
+                }
+
+                for (int state : states) {
+                    AbstractChunkSectionSearchModule<?>[] consumers = dispatch[state];
+                    if (consumers == null) {
+                        dispatch[state] = new AbstractChunkSectionSearchModule[]{ module };
+                    } else {
+                        consumers = Arrays.copyOf(consumers, consumers.length + 1);
+                        consumers[consumers.length - 1] = module;
+                        dispatch[state] = consumers;
+                    }
+                }
+            }
+
+            this.sectionMask = sectionMask;
+
+            int[] ids = IntStream.range(0, dispatch.length).filter(state -> dispatch[state] != null).map(state -> state >>> 4).distinct().toArray();
+            if (ids.length >= MIN_DISPATCH_IDS) {
+                this.dispatch = dispatch;
+                this.dispatchIds = ids;
+            } else { //let the consumers search for their own blocks
+                this.dispatch = null;
+                this.dispatchIds = null;
+                Arrays.fill(this.processesSections, true);
+            }
+
+            this.readsSections = new boolean[this.modules.length];
+            for (int i = 0; i < this.modules.length; i++) {
+                this.readsSections[i] = this.processesSections[i] && this.modules[i].readsWholeSections();
+            }
+
+            int moduleCount = this.modules.length;
+            this.done = ThreadLocal.withInitial(() -> new boolean[moduleCount]);
+        }
+
+        @Override
+        public void handle(long current, long estimatedTotal, @NonNull Chunk chunk) {
+            final AbstractChunkSectionSearchModule<?>[] modules = this.modules;
+            final boolean[] processesSections = this.processesSections;
+            final boolean[] readsSections = this.readsSections;
+            final int[] sectionMasks = this.sectionMasks;
+            final AbstractChunkSectionSearchModule<?>[][] dispatch = this.dispatch;
+
+            int remaining = 0;
+            for (int i = 0; i < modules.length; i++) {
+                long start = this.startChild();
+                modules[i].beginChunk(chunk);
+                this.endChild(modules[i], start);
+                if (processesSections[i]) {
+                    remaining++;
+                }
+            }
+
+            boolean[] done = this.done.get();
+            Arrays.fill(done, false);
+            for (int mask = this.sectionMask; mask != 0 && (remaining > 0 || dispatch != null); mask &= mask - 1) {
+                int sectionY = Integer.numberOfTrailingZeros(mask);
+                Section section = chunk.section(sectionY);
+                if (section == null) {
+                    for (int i = 0; i < modules.length; i++) {
+                        if (processesSections[i] && !done[i] && (sectionMasks[i] & (1 << sectionY)) != 0) {
+                            long start = this.startChild();
+                            done[i] = modules[i].processMissingSection(chunk, sectionY);
+                            this.endChild(modules[i], start);
+                            if (done[i]) {
+                                remaining--;
+                            }
+                        }
+                    }
+                    continue;
+                }
+
+                //the dispatch sweep reads every block anyway, otherwise only pay for the copy if it's shared
+                int readers = 0;
+                for (int i = 0; i < modules.length; i++) {
+                    if (readsSections[i] && !done[i] && (sectionMasks[i] & (1 << sectionY)) != 0) {
+                        readers++;
+                    }
+                }
+                if (dispatch != null || readers > 1) {
+                    SectionBlocks.of(chunk, section).pack();
+                }
+
+                for (int i = 0; i < modules.length; i++) {
+                    if (processesSections[i] && !done[i] && (sectionMasks[i] & (1 << sectionY)) != 0) {
+                        long start = this.startChild();
+                        done[i] = modules[i].processChunkSection(chunk, section);
+                        this.endChild(modules[i], start);
+                        if (done[i]) {
+                            remaining--;
+                        }
+                    }
+                }
+
+                if (dispatch != null) {
+                    SectionBlocks blocks = SectionBlocks.of(chunk, section);
+                    if (!blocks.mayContainAny(this.dispatchIds)) { //none of the consumed blocks occur anywhere in this section
                         continue;
                     }
 
-                    for (AbstractChunkSectionSearchModule<?> module : mergedArray) {
-                        module.processChunkSection(chunk, section);
+                    for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+                        AbstractChunkSectionSearchModule<?>[] consumers = dispatch[blocks.state(i)];
+                        if (consumers != null) {
+                            for (AbstractChunkSectionSearchModule<?> consumer : consumers) {
+                                long start = this.startChild();
+                                consumer.consumeBlock(chunk, section, blocks, i);
+                                this.endChild(consumer, start);
+                            }
+                        }
                     }
                 }
             }
-        });
-    }
 
-    protected void mergeChunkSection(@NonNull List<AbstractChunkSectionSearchModule<?>> in, @NonNull Consumer<AbstractChunkSectionSearchModule<?>> addMerged) {
-        //no-op
+            for (int i = 0; i < modules.length; i++) {
+                long start = this.startChild();
+                modules[i].endChunk(chunk, done[i]);
+                this.endChild(modules[i], start);
+            }
+        }
     }
 
     /**
@@ -116,5 +422,20 @@ public abstract class AbstractChunkSectionSearchModule<S> extends AbstractSearch
         public void close() throws IOException {
             this.allChildren.forEach((IOConsumer<SearchModule>) SearchModule::close);
         }
+
+        @Override
+        public ChunkRequirements requirements() {
+            return this.allChildren.stream().map(SearchModule::requirements).reduce(ChunkRequirements.NONE, ChunkRequirements::or);
+        }
+
+        @Override
+        public List<? extends SearchModule> children() {
+            return this.allChildren.stream().flatMap(module -> module.children().stream()).collect(Collectors.toList());
+        }
+
+        @Override
+        public String toString() {
+            return this.children().stream().map(Object::toString).collect(Collectors.joining(", ", "Merged [", "]"));
+        }
     }
 }
@@ -25,6 +25,7 @@ import net.daporkchop.lib.minecraft.entity.Entity;
 import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 
 import java.util.ArrayList;
@@ -56,6 +57,11 @@ public abstract class AbstractEntityByIdSearchModule<S> extends AbstractSearchMo
 
     protected abstract void processEntity(@NonNull Entity entity);
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withEntities();
+    }
+
     @Override
     public void merge(@NonNull List<SearchModule> in, @NonNull Consumer<SearchModule> addMerged) {
         if (in.stream().filter(AbstractEntityByIdSearchModule.class::isInstance).count() <= 1L) {
@@ -81,7 +87,11 @@ public abstract class AbstractEntityByIdSearchModule<S> extends AbstractSearchMo
                 chunk.entities().forEach(entity -> {
                     List<AbstractEntityByIdSearchModule<?>> modules = modulesById.get(entity.id());
                     if (modules != null) {
-                        modules.forEach(module -> module.processEntity(entity));
+                        modules.forEach(module -> {
+                            long start = this.startChild();
+                            module.processEntity(entity);
+                            this.endChild(module, start);
+                        });
                     }
                 });
             }
@@ -23,11 +23,17 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import net.daporkchop.lib.common.function.io.IOConsumer;
 import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 import net.daporkchop.savesearcher.output.OutputHandle;
 
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
  * @author DaPorkchop_
@@ -37,6 +43,49 @@ public abstract class AbstractMergedSearchModule implements SearchModule {
     @NonNull
     protected final List<? extends SearchModule> allChildren;
 
+    //the time spent in each of the children, or null if it isn't being measured
+    private Map<SearchModule, LongAdder> childNanos;
+
+    /**
+     * Starts measuring the time spent in each of the modules that this module was merged from.
+     * <p>
+     * Only time spent inside the children themselves is counted, anything else is overhead shared by all of them. This must be called before the
+     * scan begins.
+     *
+     * @return the time spent in each of {@link #allChildren}, in the same order
+     */
+    public List<Map.Entry<SearchModule, LongAdder>> measureChildren() {
+        if (this.childNanos == null) {
+            Map<SearchModule, LongAdder> childNanos = new IdentityHashMap<>(); //modules may be equal to each other without being the same
+            this.allChildren.forEach(child -> childNanos.put(child, new LongAdder()));
+            this.childNanos = childNanos;
+        }
+        return this.allChildren.stream()
+                .map(child -> new AbstractMap.SimpleImmutableEntry<SearchModule, LongAdder>(child, this.childNanos.get(child)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Must be called before calling into a child, and passed to {@link #endChild(SearchModule, long)} afterwards.
+     *
+     * @return the current time, if children are being measured
+     */
+    protected final long startChild() {
+        return this.childNanos != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Must be called after calling into a child.
+     *
+     * @param child the child
+     * @param start the value returned by {@link #startChild()}
+     */
+    protected final void endChild(@NonNull SearchModule child, long start) {
+        if (this.childNanos != null) {
+            this.childNanos.get(child).add(System.nanoTime() - start);
+        }
+    }
+
     @Override
     public void init(@NonNull World world, @NonNull OutputHandle handle) {
         throw new UnsupportedOperationException();
@@ -51,4 +100,19 @@ public abstract class AbstractMergedSearchModule implements SearchModule {
     public void close() throws IOException {
         this.allChildren.forEach((IOConsumer<SearchModule>) SearchModule::close);
     }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return this.allChildren.stream().map(SearchModule::requirements).reduce(ChunkRequirements.NONE, ChunkRequirements::or);
+    }
+
+    @Override
+    public List<? extends SearchModule> children() {
+        return this.allChildren.stream().flatMap(module -> module.children().stream()).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return this.children().stream().map(Object::toString).collect(Collectors.joining(", ", "Merged [", "]"));
+    }
 }
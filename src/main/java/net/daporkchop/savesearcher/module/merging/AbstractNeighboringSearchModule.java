@@ -0,0 +1,264 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.module.merging;
+
+import lombok.NonNull;
+import net.daporkchop.lib.minecraft.region.util.NeighboringChunkProcessor;
+import net.daporkchop.lib.minecraft.util.BlockAccess;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
+import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.neighbor.NeighborAccess;
+import net.daporkchop.savesearcher.neighbor.NeighborChunkCache;
+import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.util.BlockPresence;
+import net.daporkchop.savesearcher.util.SectionBlocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static net.daporkchop.lib.common.util.PorkUtil.*;
+
+/**
+ * Base class for modules which need to access blocks in the chunks next to the chunk being searched.
+ * <p>
+ * Modules declare the block IDs they're interested in using {@link #targetIds()}, and are then given every block with one of those IDs. The chunk itself
+ * is searched one section at a time through {@link SectionBlocks}, and sections which contain none of the target IDs are skipped entirely. Blocks in
+ * the neighboring chunks are only read individually through a {@link NeighborAccess} when a module needs to look past the chunk's border. Every
+ * visited chunk publishes its border to a {@link NeighborChunkCache}, which should be shared by all neighboring modules using
+ * {@link #neighborCache(NeighborChunkCache)}, so that neighbors which have already been visited don't have to be decoded again.
+ * <p>
+ * If more than one neighboring module is enabled, they are merged into a single processor which visits each section once and dispatches blocks to the
+ * modules using a table indexed by block ID.
+ *
+ * @author DaPorkchop_
+ */
+public abstract class AbstractNeighboringSearchModule<S> extends AbstractSearchModule<S> implements NeighboringChunkProcessor {
+    protected NeighborChunkCache neighborCache;
+
+    @Override
+    public void init(@NonNull World world, @NonNull OutputHandle handle) {
+        super.init(world, handle);
+
+        if (this.neighborCache == null) {
+            this.neighborCache = new NeighborChunkCache(NeighborChunkCache.DEFAULT_BUDGET);
+        }
+    }
+
+    /**
+     * Sets the {@link NeighborChunkCache} used by this module.
+     *
+     * @param neighborCache the {@link NeighborChunkCache}
+     */
+    public void neighborCache(@NonNull NeighborChunkCache neighborCache) {
+        this.neighborCache = neighborCache;
+    }
+
+    @Override
+    public void handle(long current, long estimatedTotal, @NonNull Chunk chunk) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void processChunk(@NonNull Chunk chunk) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void handle(long current, long estimatedTotal, @NonNull Chunk chunk, @NonNull BlockAccess access) {
+        final int[] ids = this.targetIds();
+        this.neighborCache.publish(chunk);
+
+        NeighborAccess neighborAccess = null;
+        for (int sectionY = 0; sectionY < 16; sectionY++) {
+            Section section = chunk.section(sectionY);
+            if (section == null) {
+                continue;
+            }
+
+            SectionBlocks blocks = SectionBlocks.of(chunk, section);
+            if (!blocks.mayContainAny(ids)) {
+                continue;
+            }
+
+            if (neighborAccess == null) {
+                neighborAccess = new NeighborAccess(this.neighborCache, chunk, access);
+            }
+            for (int id : ids) {
+                for (int i = blocks.nextIndexOf(id, -1, 0); i >= 0; i = blocks.nextIndexOf(id, -1, i + 1)) {
+                    this.processBlock(sectionY, blocks, neighborAccess, i, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the IDs of the blocks which this module needs to look at.
+     * <p>
+     * This is only called after the module has been initialized.
+     *
+     * @return the target block IDs
+     */
+    protected abstract int[] targetIds();
+
+    /**
+     * Processes a single block with one of this module's {@link #targetIds() target IDs}.
+     *
+     * @param sectionY the Y coordinate of the section containing the block
+     * @param blocks   the blocks in the section
+     * @param access   a {@link NeighborAccess} for the chunk, used for anything outside of the section
+     * @param index    the block's {@link SectionBlocks#index(int, int, int) index} in the section
+     * @param id       the block's ID
+     */
+    protected abstract void processBlock(int sectionY, @NonNull SectionBlocks blocks, @NonNull NeighborAccess access, int index, int id);
+
+    /**
+     * Gets the state ({@code id << 4 | meta}) of a block in a section, or in the same layer of one of the chunk's horizontal neighbors.
+     *
+     * @param blocks   the blocks in the section
+     * @param access   the {@link NeighborAccess} for the chunk
+     * @param sectionY the section's Y coordinate
+     * @param x        the block's X coordinate relative to the chunk, in range [-1,16]
+     * @param y        the block's Y coordinate relative to the section, in range [0,15]
+     * @param z        the block's Z coordinate relative to the chunk, in range [-1,16]
+     * @return the block's state
+     */
+    protected static int state(@NonNull SectionBlocks blocks, @NonNull NeighborAccess access, int sectionY, int x, int y, int z) {
+        if (((x | z) & ~0xF) == 0) {
+            return blocks.state(SectionBlocks.index(x, y, z));
+        } else {
+            return access.state(access.minX() + x, sectionY << 4 | y, access.minZ() + z);
+        }
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.sections(0, 15).sparse(true);
+    }
+
+    @Override
+    public void merge(@NonNull List<SearchModule> in, @NonNull Consumer<SearchModule> addMerged) {
+        if (in.stream().filter(AbstractNeighboringSearchModule.class::isInstance).count() <= 1L) {
+            return;
+        }
+
+        List<AbstractNeighboringSearchModule<?>> modules = new ArrayList<>();
+        for (Iterator<SearchModule> itr = in.iterator(); itr.hasNext(); ) {
+            SearchModule module = itr.next();
+            if (module instanceof AbstractNeighboringSearchModule) {
+                modules.add(uncheckedCast(module));
+                itr.remove();
+            }
+        }
+
+        addMerged.accept(new Merged(modules));
+    }
+
+    /**
+     * Runs multiple neighboring modules in a single pass over each chunk.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Merged extends AbstractMergedSearchModule implements NeighboringChunkProcessor {
+        //the modules interested in each block ID, or null if there are none
+        private final AbstractNeighboringSearchModule<?>[][] dispatch = new AbstractNeighboringSearchModule[BlockPresence.MAX_ID][];
+        private final int[] ids;
+
+        private final NeighborChunkCache neighborCache;
+
+        public Merged(@NonNull List<AbstractNeighboringSearchModule<?>> modules) {
+            super(modules);
+
+            this.neighborCache = modules.get(0).neighborCache;
+
+            for (AbstractNeighboringSearchModule<?> module : modules) {
+                for (int id : module.targetIds()) {
+                    if (id < 0 || id >= BlockPresence.MAX_ID) { //the block doesn't exist in this world
+                        continue;
+                    }
+
+                    AbstractNeighboringSearchModule<?>[] callbacks = this.dispatch[id];
+                    if (callbacks == null) {
+                        this.dispatch[id] = new AbstractNeighboringSearchModule[]{ module };
+                    } else if (!Arrays.asList(callbacks).contains(module)) {
+                        callbacks = Arrays.copyOf(callbacks, callbacks.length + 1);
+                        callbacks[callbacks.length - 1] = module;
+                        this.dispatch[id] = callbacks;
+                    }
+                }
+            }
+
+            int[] ids = new int[BlockPresence.MAX_ID];
+            int count = 0;
+            for (int id = 0; id < BlockPresence.MAX_ID; id++) {
+                if (this.dispatch[id] != null) {
+                    ids[count++] = id;
+                }
+            }
+            this.ids = Arrays.copyOf(ids, count);
+        }
+
+        @Override
+        public void handle(long current, long estimatedTotal, @NonNull Chunk chunk) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void handle(long current, long estimatedTotal, @NonNull Chunk chunk, @NonNull BlockAccess access) {
+            final AbstractNeighboringSearchModule<?>[][] dispatch = this.dispatch;
+
+            this.neighborCache.publish(chunk);
+
+            NeighborAccess neighborAccess = null;
+            for (int sectionY = 0; sectionY < 16; sectionY++) {
+                Section section = chunk.section(sectionY);
+                if (section == null) {
+                    continue;
+                }
+
+                SectionBlocks blocks = SectionBlocks.of(chunk, section);
+                if (!blocks.mayContainAny(this.ids)) { //none of the blocks occur anywhere in this section
+                    continue;
+                }
+
+                if (neighborAccess == null) {
+                    neighborAccess = new NeighborAccess(this.neighborCache, chunk, access);
+                }
+                for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+                    int id = blocks.getBlockId(i);
+                    AbstractNeighboringSearchModule<?>[] callbacks = dispatch[id];
+                    if (callbacks != null) {
+                        for (AbstractNeighboringSearchModule<?> callback : callbacks) {
+                            long start = this.startChild();
+                            callback.processBlock(sectionY, blocks, neighborAccess, i, id);
+                            this.endChild(callback, start);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
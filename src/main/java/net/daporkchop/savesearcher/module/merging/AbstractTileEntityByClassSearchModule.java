@@ -24,6 +24,7 @@ import net.daporkchop.lib.common.util.GenericMatcher;
 import net.daporkchop.lib.minecraft.tileentity.TileEntity;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 
 import java.util.ArrayList;
@@ -52,6 +53,11 @@ public abstract class AbstractTileEntityByClassSearchModule<S, T extends TileEnt
 
     protected abstract void processTileEntity(@NonNull Chunk chunk, @NonNull T tileEntity);
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withTileEntities();
+    }
+
     @Override
     public void merge(@NonNull List<SearchModule> in, @NonNull Consumer<SearchModule> addMerged) {
         if (in.stream().filter(AbstractTileEntityByClassSearchModule.class::isInstance).count() <= 1L) {
@@ -77,7 +83,11 @@ public abstract class AbstractTileEntityByClassSearchModule<S, T extends TileEnt
                 chunk.tileEntities().forEach(tileEntity -> {
                     List<AbstractTileEntityByClassSearchModule<?, ?>> modules = modulesByClass.get(tileEntity.getClass());
                     if (modules != null) {
-                        modules.forEach(module -> module.processTileEntity(chunk, uncheckedCast(tileEntity)));
+                        modules.forEach(module -> {
+                            long start = this.startChild();
+                            module.processTileEntity(chunk, uncheckedCast(tileEntity));
+                            this.endChild(module, start);
+                        });
                     }
                 });
             }
@@ -6,6 +6,7 @@ import net.daporkchop.lib.minecraft.registry.ResourceLocation;
 import net.daporkchop.lib.minecraft.tileentity.TileEntity;
 import net.daporkchop.lib.minecraft.world.Chunk;
 import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
 import net.daporkchop.savesearcher.module.SearchModule;
 
 import java.util.*;
@@ -29,6 +30,11 @@ public abstract class AbstractTileEntityByIdSearchModule<S> extends AbstractSear
 
     protected abstract void processTileEntity(@NonNull TileEntity entity);
 
+    @Override
+    public ChunkRequirements requirements() {
+        return ChunkRequirements.NONE.withTileEntities();
+    }
+
     @Override
     public void merge(@NonNull List<SearchModule> in, @NonNull Consumer<SearchModule> addMerged) {
         if (in.stream().filter(AbstractTileEntityByIdSearchModule.class::isInstance).count() <= 1L) {
@@ -54,7 +60,11 @@ public abstract class AbstractTileEntityByIdSearchModule<S> extends AbstractSear
                 chunk.tileEntities().forEach(te -> {
                     List<AbstractTileEntityByIdSearchModule<?>> modules = modulesById.get(te.id());
                     if (modules != null) {
-                        modules.forEach(module -> module.processTileEntity(te));
+                        modules.forEach(module -> {
+                            long start = this.startChild();
+                            module.processTileEntity(te);
+                            this.endChild(module, start);
+                        });
                     }
                 });
             }
@@ -0,0 +1,110 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.neighbor;
+
+import lombok.NonNull;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
+
+/**
+ * The blocks on the four vertical outer faces of a chunk, which is all that the chunks next to it ever need to see of it.
+ * <p>
+ * Each block is stored as a 16-bit state ({@code id << 4 | meta}). Blocks in missing sections are stored as air.
+ *
+ * @author DaPorkchop_
+ */
+public final class ChunkBorder {
+    private static final int WEST = 0; //x = 0
+    private static final int EAST = 1; //x = 15
+    private static final int NORTH = 2; //z = 0
+    private static final int SOUTH = 3; //z = 15
+
+    /**
+     * The approximate number of bytes of heap used by a single instance.
+     */
+    public static final long SIZE_BYTES = 4L * 16L * 256L * Character.BYTES + 64L;
+
+    /**
+     * Copies the border of the given chunk.
+     *
+     * @param chunk the chunk
+     * @return the chunk's border
+     */
+    public static ChunkBorder of(@NonNull Chunk chunk) {
+        ChunkBorder border = new ChunkBorder();
+        final char[] states = border.states;
+        for (int sectionY = 0; sectionY < 16; sectionY++) {
+            Section section = chunk.section(sectionY);
+            if (section == null) { //the states are already air
+                continue;
+            }
+
+            for (int y = 0; y < 16; y++) {
+                int base = (sectionY << 8) | (y << 4);
+                for (int i = 0; i < 16; i++) {
+                    states[index(WEST, base, i)] = state(section, 0, y, i);
+                    states[index(EAST, base, i)] = state(section, 15, y, i);
+                    states[index(NORTH, base, i)] = state(section, i, y, 0);
+                    states[index(SOUTH, base, i)] = state(section, i, y, 15);
+                }
+            }
+        }
+        return border;
+    }
+
+    private static char state(@NonNull Section section, int x, int y, int z) {
+        return (char) (((section.getBlockId(x, y, z) & 0xFFF) << 4) | (section.getBlockMeta(x, y, z) & 0xF));
+    }
+
+    private static int index(int face, int yBase, int i) {
+        return (face << 12) | yBase | i;
+    }
+
+    //indexed by face << 12 | y << 4 | i, where i is the block's Z coordinate on the west and east faces and its X coordinate on the north and south faces
+    private final char[] states = new char[4 * 16 * 256];
+
+    private ChunkBorder() {
+    }
+
+    /**
+     * Gets the state of a block on this border.
+     *
+     * @param x the X coordinate of the block, relative to the chunk
+     * @param y the Y coordinate of the block
+     * @param z the Z coordinate of the block, relative to the chunk
+     * @return the block's state ({@code id << 4 | meta}), or {@code -1} if the block isn't on the border
+     */
+    public int state(int x, int y, int z) {
+        if (((x | z) & ~0xF) != 0 || (y & ~0xFF) != 0) {
+            return -1;
+        } else if (x == 0) {
+            return this.states[index(WEST, y << 4, z)];
+        } else if (x == 15) {
+            return this.states[index(EAST, y << 4, z)];
+        } else if (z == 0) {
+            return this.states[index(NORTH, y << 4, x)];
+        } else if (z == 15) {
+            return this.states[index(SOUTH, y << 4, x)];
+        } else {
+            return -1;
+        }
+    }
+}
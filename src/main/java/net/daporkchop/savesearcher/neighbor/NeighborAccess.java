@@ -0,0 +1,113 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.neighbor;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.minecraft.util.BlockAccess;
+import net.daporkchop.lib.minecraft.world.Chunk;
+
+/**
+ * Provides access to the blocks in a chunk and the blocks around it, using absolute block coordinates.
+ * <p>
+ * Blocks inside of the chunk are read from the chunk directly. Blocks on the border of a neighboring chunk which has already been visited are read
+ * from its {@link ChunkBorder} in the {@link NeighborChunkCache}, anything else falls back to the scanner's {@link BlockAccess}, one block at a time.
+ *
+ * @author DaPorkchop_
+ */
+@Accessors(fluent = true)
+public final class NeighborAccess {
+    private final NeighborChunkCache cache;
+    @Getter
+    private final Chunk chunk;
+    @Getter
+    private final BlockAccess access;
+
+    @Getter
+    private final int minX;
+    @Getter
+    private final int minZ;
+
+    //the last border looked up in the cache, since modules usually look at several blocks of the same neighbor in a row
+    private boolean hasLastBorder;
+    private ChunkBorder lastBorder;
+    private int lastBorderX;
+    private int lastBorderZ;
+
+    /**
+     * @param cache  the {@link NeighborChunkCache} to read the borders of neighboring chunks from
+     * @param chunk  the chunk being visited
+     * @param access the scanner's {@link BlockAccess} for the chunk
+     */
+    public NeighborAccess(@NonNull NeighborChunkCache cache, @NonNull Chunk chunk, @NonNull BlockAccess access) {
+        this.cache = cache;
+        this.chunk = chunk;
+        this.access = access;
+        this.minX = chunk.getX() << 4;
+        this.minZ = chunk.getZ() << 4;
+    }
+
+    /**
+     * @return the maximum Y coordinate (exclusive)
+     */
+    public int maxY() {
+        return this.access.maxY();
+    }
+
+    /**
+     * Gets the ID of the block at the given absolute position.
+     */
+    public int getBlockId(int x, int y, int z) {
+        return this.state(x, y, z) >>> 4;
+    }
+
+    /**
+     * Gets the meta of the block at the given absolute position.
+     */
+    public int getBlockMeta(int x, int y, int z) {
+        return this.state(x, y, z) & 0xF;
+    }
+
+    /**
+     * Gets the state ({@code id << 4 | meta}) of the block at the given absolute position.
+     */
+    public int state(int x, int y, int z) {
+        int dx = x - this.minX;
+        int dz = z - this.minZ;
+        if (((dx | dz) & ~0xF) == 0) { //inside this chunk
+            return this.chunk.getBlockId(dx, y, dz) << 4 | this.chunk.getBlockMeta(dx, y, dz);
+        }
+
+        ChunkBorder border = this.border(x >> 4, z >> 4);
+        int state = border != null ? border.state(x & 0xF, y, z & 0xF) : -1;
+        return state >= 0 ? state : this.access.getBlockId(x, y, z) << 4 | this.access.getBlockMeta(x, y, z);
+    }
+
+    private ChunkBorder border(int chunkX, int chunkZ) {
+        if (!this.hasLastBorder || this.lastBorderX != chunkX || this.lastBorderZ != chunkZ) {
+            this.hasLastBorder = true;
+            this.lastBorder = this.cache.border(chunkX, chunkZ);
+            this.lastBorderX = chunkX;
+            this.lastBorderZ = chunkZ;
+        }
+        return this.lastBorder;
+    }
+}
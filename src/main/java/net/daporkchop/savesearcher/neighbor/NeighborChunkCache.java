@@ -0,0 +1,144 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.neighbor;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.minecraft.world.Chunk;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * A bounded cache of the {@link ChunkBorder}s of recently visited chunks, keyed by chunk position and shared by all neighboring modules.
+ * <p>
+ * Every chunk visited by a neighboring module publishes its border here. When a module later needs to look past the border of another chunk, blocks
+ * of a neighbor which has already been visited are read from the cache instead of through the scanner's
+ * {@link net.daporkchop.lib.minecraft.util.BlockAccess}, which would have to decode the neighbor all over again. Chunks in a region are visited in
+ * order, and nearby regions are scheduled close together, so most neighbors that are still needed have been visited shortly before.
+ * <p>
+ * The cache is split into a number of independently locked segments, each of which evicts its least recently used entries once it exceeds its share
+ * of the memory budget.
+ *
+ * @author DaPorkchop_
+ */
+@Accessors(fluent = true)
+public final class NeighborChunkCache {
+    public static final long DEFAULT_BUDGET = 64L << 20L;
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    @Getter
+    private final long budget;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param budget the maximum number of bytes of heap that the cached borders may occupy
+     */
+    public NeighborChunkCache(long budget) {
+        this.budget = notNegative(budget, "budget");
+
+        int capacity = (int) (budget / ChunkBorder.SIZE_BYTES / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Copies the border of a chunk which is being visited into this cache.
+     *
+     * @param chunk the chunk
+     */
+    public void publish(@NonNull Chunk chunk) {
+        if (this.budget >= ChunkBorder.SIZE_BYTES * SEGMENTS) {
+            long key = key(chunk.getX(), chunk.getZ());
+            this.segment(key).put(key, ChunkBorder.of(chunk));
+        }
+    }
+
+    /**
+     * Gets the border of a chunk.
+     *
+     * @param chunkX the chunk's X coordinate
+     * @param chunkZ the chunk's Z coordinate
+     * @return the chunk's border, or {@code null} if it isn't cached
+     */
+    public ChunkBorder border(int chunkX, int chunkZ) {
+        long key = key(chunkX, chunkZ);
+        ChunkBorder border = this.segment(key).get(key);
+        (border != null ? this.hits : this.misses).increment();
+        return border;
+    }
+
+    private static long key(int chunkX, int chunkZ) {
+        return (long) chunkX << 32L | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private Segment segment(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return this.segments[(int) (hash >>> 60L) & (SEGMENTS - 1)];
+    }
+
+    public void printStats() {
+        long hits = this.hits.sum();
+        long misses = this.misses.sum();
+        logger.info("Neighbor chunk cache: %d hits, %d misses (%.2f%% hit rate), %d evictions, budget %d MiB",
+                hits, misses, hits + misses == 0L ? 0.0d : hits * 100.0d / (hits + misses), this.evictions.sum(), this.budget >> 20L);
+    }
+
+    /**
+     * A single LRU segment of the cache.
+     *
+     * @author DaPorkchop_
+     */
+    private final class Segment {
+        private final Map<Long, ChunkBorder> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final int capacity;
+
+        public Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public synchronized ChunkBorder get(long key) {
+            return this.map.get(key);
+        }
+
+        public synchronized void put(long key, @NonNull ChunkBorder border) {
+            this.map.put(key, border);
+            for (Iterator<ChunkBorder> itr = this.map.values().iterator(); this.map.size() > this.capacity; ) {
+                itr.next();
+                itr.remove();
+                NeighborChunkCache.this.evictions.increment();
+            }
+        }
+    }
+}
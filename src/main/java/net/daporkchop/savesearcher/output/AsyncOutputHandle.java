@@ -0,0 +1,182 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.output;
+
+import lombok.NonNull;
+import net.daporkchop.savesearcher.module.SearchModule;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * An {@link OutputHandle} which moves formatting and writing of data off of the scanning threads.
+ * <p>
+ * Each thread appends data to a buffer of its own without any synchronization. Full buffers are handed over a bounded queue to a dedicated writer
+ * thread, which passes the data on to the delegate {@link OutputHandle}. If the writer falls so far behind that the queue fills up, scanning threads
+ * will block until there is room again, which keeps memory usage bounded.
+ * <p>
+ * {@link #close()} must only be called once all threads have finished passing data to this handle.
+ *
+ * @author DaPorkchop_
+ */
+public final class AsyncOutputHandle implements OutputHandle {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private static final Object[] END_OF_STREAM = new Object[0];
+
+    private final OutputHandle delegate;
+    private final int batchSize;
+
+    private final BlockingQueue<Object[]> queue;
+    private final Queue<Object[]> freeBatches = new ConcurrentLinkedQueue<>();
+
+    private final Set<Buffer> buffers = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(() -> {
+        Buffer buffer = new Buffer();
+        this.buffers.add(buffer);
+        return buffer;
+    });
+
+    private Thread writer;
+    private volatile Throwable failure;
+
+    public AsyncOutputHandle(@NonNull OutputHandle delegate) {
+        this(delegate, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public AsyncOutputHandle(@NonNull OutputHandle delegate, int batchSize, int queueCapacity) {
+        this.delegate = delegate;
+        this.batchSize = positive(batchSize, "batchSize");
+        this.queue = new ArrayBlockingQueue<>(positive(queueCapacity, "queueCapacity"));
+    }
+
+    @Override
+    public void init(@NonNull SearchModule module) {
+        checkState(this.writer == null, "already initialized!");
+        this.delegate.init(module);
+
+        this.writer = new Thread(this::runWriter, "SaveSearcher output writer: " + module);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void accept(@NonNull Object data) {
+        Buffer buffer = this.buffer.get();
+        buffer.batch[buffer.size++] = data;
+        if (buffer.size == buffer.batch.length) {
+            this.submit(buffer.batch);
+            buffer.batch = this.allocateBatch();
+            buffer.size = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkState(this.writer != null, "not initialized!");
+        try {
+            //hand over any partially filled buffers
+            for (Buffer buffer : this.buffers) {
+                if (buffer.size != 0) {
+                    this.submit(buffer.batch);
+                    buffer.batch = null;
+                    buffer.size = 0;
+                }
+            }
+            this.buffers.clear();
+
+            this.put(END_OF_STREAM);
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for output writer", e);
+        } finally {
+            this.delegate.close();
+        }
+
+        Throwable failure = this.failure;
+        if (failure != null) {
+            throw new IOException("output writer failed", failure);
+        }
+    }
+
+    private Object[] allocateBatch() {
+        Object[] batch = this.freeBatches.poll();
+        return batch != null ? batch : new Object[this.batchSize];
+    }
+
+    private void submit(@NonNull Object[] batch) {
+        try {
+            this.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for output writer", e);
+        }
+    }
+
+    private void put(@NonNull Object[] batch) throws InterruptedException {
+        Throwable failure = this.failure;
+        if (failure != null) {
+            throw new IllegalStateException("output writer failed", failure);
+        }
+        this.queue.put(batch);
+    }
+
+    private void runWriter() {
+        try {
+            for (Object[] batch; (batch = this.queue.take()) != END_OF_STREAM; ) {
+                for (int i = 0; i < batch.length && batch[i] != null; i++) {
+                    this.delegate.accept(batch[i]);
+                    batch[i] = null;
+                }
+                this.freeBatches.add(batch);
+            }
+        } catch (Throwable t) {
+            this.failure = t;
+
+            //keep draining the queue so that no scanning threads remain blocked on it
+            try {
+                while (this.queue.take() != END_OF_STREAM) {
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A single thread's buffer.
+     *
+     * @author DaPorkchop_
+     */
+    private final class Buffer {
+        private Object[] batch = AsyncOutputHandle.this.allocateBatch();
+        private int size;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.output;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the fields of a module's {@link net.daporkchop.savesearcher.module.SearchModule#dataType() data type} in the order in which they are
+ * written by output formats.
+ * <p>
+ * Fields of superclasses come first, followed by the fields of each subclass in declaration order. Transient and synthetic fields are ignored, static
+ * fields are included like any other field.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+@Accessors(fluent = true)
+public final class DataLayout {
+    private static final ClassValue<DataLayout> CACHE = new ClassValue<DataLayout>() {
+        @Override
+        protected DataLayout computeValue(Class<?> type) {
+            return new DataLayout(type);
+        }
+    };
+
+    /**
+     * Gets the {@link DataLayout} of the given type.
+     *
+     * @param type the type
+     * @return the {@link DataLayout}
+     */
+    public static DataLayout of(@NonNull Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    private final Class<?> type;
+    private final List<Column> columns;
+
+    private DataLayout(@NonNull Class<?> type) {
+        this.type = type;
+
+        List<Column> columns = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> clazz = type; clazz != Object.class; clazz = clazz.getSuperclass()) {
+            int i = 0;
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+
+                field.setAccessible(true);
+                try {
+                    MethodHandle getter = lookup.unreflectGetter(field);
+                    if (Modifier.isStatic(field.getModifiers())) { //make it take an instance anyway
+                        getter = MethodHandles.dropArguments(getter, 0, Object.class);
+                    }
+                    columns.add(i++, new Column(field.getName(), field.getType(), getter.asType(MethodType.methodType(field.getType(), Object.class))));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException(String.format("Unable to access %s", field), e);
+                }
+            }
+        }
+        this.columns = Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * A single field.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    @Getter
+    @Accessors(fluent = true)
+    public static final class Column {
+        @NonNull
+        private final String name;
+        @NonNull
+        private final Class<?> type;
+
+        /**
+         * A {@link MethodHandle} of type {@code (Object)T}, where {@code T} is this column's {@link #type()}.
+         */
+        @NonNull
+        private final MethodHandle getter;
+    }
+}
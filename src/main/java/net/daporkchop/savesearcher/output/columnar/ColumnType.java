@@ -0,0 +1,312 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.output.columnar;
+
+import lombok.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The types of column supported by the columnar output format, along with their encodings.
+ * <p>
+ * Every column in a row group is encoded independently of all other columns and row groups.
+ *
+ * @author DaPorkchop_
+ */
+public enum ColumnType {
+    /**
+     * {@code boolean} values, packed 8 to a byte (least significant bit first).
+     */
+    BOOLEAN(boolean.class) {
+        @Override
+        protected void encode(@NonNull Object[] rows, int count, @NonNull MethodHandle getter, @NonNull DataOutput out) throws Throwable {
+            for (int i = 0; i < count; i += 8) {
+                int packed = 0;
+                for (int j = 0, lim = Math.min(count - i, 8); j < lim; j++) {
+                    if ((boolean) getter.invokeExact(rows[i + j])) {
+                        packed |= 1 << j;
+                    }
+                }
+                out.writeByte(packed);
+            }
+        }
+
+        @Override
+        protected Object decode(@NonNull DataInput in, int count) throws IOException {
+            boolean[] values = new boolean[count];
+            for (int i = 0; i < count; i += 8) {
+                int packed = in.readUnsignedByte();
+                for (int j = 0, lim = Math.min(count - i, 8); j < lim; j++) {
+                    values[i + j] = (packed & (1 << j)) != 0;
+                }
+            }
+            return values;
+        }
+    },
+    /**
+     * {@code byte}, {@code short}, {@code char} and {@code int} values, stored as the zigzag-encoded varint difference from the previous value.
+     */
+    INT(int.class) {
+        @Override
+        protected void encode(@NonNull Object[] rows, int count, @NonNull MethodHandle getter, @NonNull DataOutput out) throws Throwable {
+            long prev = 0L;
+            for (int i = 0; i < count; i++) {
+                long value = (int) getter.invokeExact(rows[i]);
+                writeVarLong(out, zigzag(value - prev));
+                prev = value;
+            }
+        }
+
+        @Override
+        protected Object decode(@NonNull DataInput in, int count) throws IOException {
+            int[] values = new int[count];
+            long prev = 0L;
+            for (int i = 0; i < count; i++) {
+                values[i] = (int) (prev += unzigzag(readVarLong(in)));
+            }
+            return values;
+        }
+    },
+    /**
+     * {@code long} values, stored as the zigzag-encoded varint difference from the previous value.
+     */
+    LONG(long.class) {
+        @Override
+        protected void encode(@NonNull Object[] rows, int count, @NonNull MethodHandle getter, @NonNull DataOutput out) throws Throwable {
+            long prev = 0L;
+            for (int i = 0; i < count; i++) {
+                long value = (long) getter.invokeExact(rows[i]);
+                writeVarLong(out, zigzag(value - prev));
+                prev = value;
+            }
+        }
+
+        @Override
+        protected Object decode(@NonNull DataInput in, int count) throws IOException {
+            long[] values = new long[count];
+            long prev = 0L;
+            for (int i = 0; i < count; i++) {
+                values[i] = prev += unzigzag(readVarLong(in));
+            }
+            return values;
+        }
+    },
+    /**
+     * {@code float} values, stored as-is.
+     */
+    FLOAT(float.class) {
+        @Override
+        protected void encode(@NonNull Object[] rows, int count, @NonNull MethodHandle getter, @NonNull DataOutput out) throws Throwable {
+            for (int i = 0; i < count; i++) {
+                out.writeFloat((float) getter.invokeExact(rows[i]));
+            }
+        }
+
+        @Override
+        protected Object decode(@NonNull DataInput in, int count) throws IOException {
+            float[] values = new float[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = in.readFloat();
+            }
+            return values;
+        }
+    },
+    /**
+     * {@code double} values, stored as-is.
+     */
+    DOUBLE(double.class) {
+        @Override
+        protected void encode(@NonNull Object[] rows, int count, @NonNull MethodHandle getter, @NonNull DataOutput out) throws Throwable {
+            for (int i = 0; i < count; i++) {
+                out.writeDouble((double) getter.invokeExact(rows[i]));
+            }
+        }
+
+        @Override
+        protected Object decode(@NonNull DataInput in, int count) throws IOException {
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = in.readDouble();
+            }
+            return values;
+        }
+    },
+    /**
+     * Any other values, converted to {@link String}s using {@link String#valueOf(Object)}.
+     * <p>
+     * Each row group starts with a dictionary of all distinct values in the column, followed by a varint index into the dictionary for each row.
+     * Index {@code 0} is reserved for {@code null}.
+     */
+    STRING(Object.class) {
+        @Override
+        protected void encode(@NonNull Object[] rows, int count, @NonNull MethodHandle getter, @NonNull DataOutput out) throws Throwable {
+            Map<String, Integer> dictionary = new HashMap<>();
+            String[] entries = new String[count];
+            int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                Object value = (Object) getter.invokeExact(rows[i]);
+                if (value != null) {
+                    String text = value.toString();
+                    Integer index = dictionary.get(text);
+                    if (index == null) {
+                        dictionary.put(text, index = dictionary.size());
+                        entries[index] = text;
+                    }
+                    indices[i] = index + 1;
+                }
+            }
+
+            writeVarLong(out, dictionary.size());
+            for (int i = 0, size = dictionary.size(); i < size; i++) {
+                byte[] bytes = entries[i].getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+            for (int i = 0; i < count; i++) {
+                writeVarLong(out, indices[i]);
+            }
+        }
+
+        @Override
+        protected Object decode(@NonNull DataInput in, int count) throws IOException {
+            String[] dictionary = new String[toInt(readVarLong(in)) + 1];
+            for (int i = 1; i < dictionary.length; i++) {
+                byte[] bytes = new byte[toInt(readVarLong(in))];
+                in.readFully(bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            String[] values = new String[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = dictionary[toInt(readVarLong(in))];
+            }
+            return values;
+        }
+    };
+
+    /**
+     * Gets the {@link ColumnType} used for fields of the given type.
+     *
+     * @param type the field type
+     * @return the {@link ColumnType}
+     */
+    public static ColumnType forField(@NonNull Class<?> type) {
+        if (type == boolean.class) {
+            return BOOLEAN;
+        } else if (type == byte.class || type == short.class || type == char.class || type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == float.class) {
+            return FLOAT;
+        } else if (type == double.class) {
+            return DOUBLE;
+        } else {
+            return STRING;
+        }
+    }
+
+    static void writeVarLong(@NonNull DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) value & 0x7F | 0x80);
+            value >>>= 7L;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(@NonNull DataInput in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; ; shift += 7) {
+            if (shift >= 64) {
+                throw new IOException("varint too long");
+            }
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    static int toInt(long value) throws IOException {
+        if (value < 0L || value > Integer.MAX_VALUE) {
+            throw new IOException("value out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1L) ^ (value >> 63L);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1L) ^ -(value & 1L);
+    }
+
+    private final Class<?> getterType;
+
+    ColumnType(@NonNull Class<?> getterType) {
+        this.getterType = getterType;
+    }
+
+    /**
+     * Adapts a field getter to the type expected by {@link #encode(Object[], int, MethodHandle, DataOutput)}.
+     *
+     * @param getter a {@link MethodHandle} of type {@code (Object)T}
+     * @return the adapted {@link MethodHandle}
+     */
+    MethodHandle adapt(@NonNull MethodHandle getter) {
+        return getter.asType(MethodType.methodType(this.getterType, Object.class));
+    }
+
+    /**
+     * Encodes the values of a single column for the given rows.
+     *
+     * @param rows   the rows
+     * @param count  the number of rows
+     * @param getter the column's getter, as returned by {@link #adapt(MethodHandle)}
+     * @param out    the {@link DataOutput} to write to
+     */
+    protected abstract void encode(@NonNull Object[] rows, int count, @NonNull MethodHandle getter, @NonNull DataOutput out) throws Throwable;
+
+    /**
+     * Decodes the values of a single column.
+     *
+     * @param in    the {@link DataInput} to read from
+     * @param count the number of rows
+     * @return an array containing the decoded values. Depending on the type, this is a {@code boolean[]}, {@code int[]}, {@code long[]},
+     * {@code float[]}, {@code double[]} or {@code String[]}
+     */
+    protected abstract Object decode(@NonNull DataInput in, int count) throws IOException;
+
+    Object decode(@NonNull byte[] data, int count) throws IOException {
+        return this.decode(new DataInputStream(new ByteArrayInputStream(data)), count);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.output.columnar;
+
+import lombok.NonNull;
+import net.daporkchop.lib.common.misc.file.PFiles;
+import net.daporkchop.lib.common.system.OperatingSystem;
+import net.daporkchop.lib.common.system.PlatformInfo;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.output.DataLayout;
+import net.daporkchop.savesearcher.output.OutputHandle;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Writes data in a binary, column-oriented format.
+ * <p>
+ * Rows are buffered into row groups of a fixed size, and each field of the module's data type is then written as a separate column using the encoding
+ * given by its {@link ColumnType}. The file layout is as follows (all varints are unsigned LEB128):
+ * <pre>
+ * magic          "SSCF"
+ * version        varint (currently 1)
+ * rowGroupSize   varint
+ * columnCount    varint
+ * columns        columnCount * { name: varint length + UTF-8 bytes, type: byte ({@link ColumnType} ordinal) }
+ * rowGroups      { rowCount: varint, columns: columnCount * { length: varint, data: byte[length] } }...
+ * end            varint 0
+ * </pre>
+ * Files can be read using {@link ColumnarReader}.
+ *
+ * @author DaPorkchop_
+ */
+public class ColumnarOutputHandle implements OutputHandle {
+    public static final byte[] MAGIC = { 'S', 'S', 'C', 'F' };
+    public static final int VERSION = 1;
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 1 << 16;
+
+    protected final File parent;
+    protected final int rowGroupSize;
+
+    protected final ByteArrayOutputStream columnBuffer = new ByteArrayOutputStream();
+
+    protected Class<?>         clazz;
+    protected ColumnType[]     types;
+    protected MethodHandle[]   getters;
+    protected Object[]         rows;
+    protected int              size;
+    protected DataOutputStream output;
+
+    public ColumnarOutputHandle(@NonNull File parent) {
+        this(parent, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarOutputHandle(@NonNull File parent, int rowGroupSize) {
+        this.parent = PFiles.ensureDirectoryExists(parent);
+        this.rowGroupSize = positive(rowGroupSize, "rowGroupSize");
+    }
+
+    @Override
+    public void init(@NonNull SearchModule module) {
+        List<DataLayout.Column> columns = DataLayout.of(this.clazz = module.dataType()).columns();
+        this.types = new ColumnType[columns.size()];
+        this.getters = new MethodHandle[columns.size()];
+        for (int i = 0; i < this.types.length; i++) {
+            this.types[i] = ColumnType.forField(columns.get(i).type());
+            this.getters[i] = this.types[i].adapt(columns.get(i).getter());
+        }
+        this.rows = new Object[this.rowGroupSize];
+
+        try {
+            String fileName = module + ".columnar";
+            if (PlatformInfo.OPERATING_SYSTEM == OperatingSystem.Windows) {
+                fileName = fileName.replace(':', '_');
+            }
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(PFiles.ensureFileExists(new File(this.parent, fileName)))));
+
+            this.output.write(MAGIC);
+            ColumnType.writeVarLong(this.output, VERSION);
+            ColumnType.writeVarLong(this.output, this.rowGroupSize);
+            ColumnType.writeVarLong(this.output, columns.size());
+            for (int i = 0; i < this.types.length; i++) {
+                byte[] name = columns.get(i).name().getBytes(StandardCharsets.UTF_8);
+                ColumnType.writeVarLong(this.output, name.length);
+                this.output.write(name);
+                this.output.writeByte(this.types[i].ordinal());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public synchronized void accept(@NonNull Object data) {
+        if (data.getClass() != this.clazz) {
+            throw new IllegalArgumentException(String.format("Expected %s but got %s!", this.clazz, data.getClass()));
+        }
+
+        this.rows[this.size++] = data;
+        if (this.size == this.rowGroupSize) {
+            try {
+                this.writeRowGroup();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (this.size != 0) {
+                this.writeRowGroup();
+            }
+            ColumnType.writeVarLong(this.output, 0L);
+            this.output.close();
+        } finally {
+            this.output = null;
+            this.rows = null;
+        }
+    }
+
+    protected void writeRowGroup() throws IOException {
+        ColumnType.writeVarLong(this.output, this.size);
+
+        DataOutputStream columnOutput = new DataOutputStream(this.columnBuffer);
+        for (int i = 0; i < this.types.length; i++) {
+            this.columnBuffer.reset();
+            try {
+                this.types[i].encode(this.rows, this.size, this.getters[i], columnOutput);
+            } catch (IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+
+            ColumnType.writeVarLong(this.output, this.columnBuffer.size());
+            this.columnBuffer.writeTo(this.output);
+        }
+
+        Arrays.fill(this.rows, 0, this.size, null);
+        this.size = 0;
+    }
+}
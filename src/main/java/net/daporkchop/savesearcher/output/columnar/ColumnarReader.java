@@ -0,0 +1,244 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.output.columnar;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Reads files written by {@link ColumnarOutputHandle}.
+ * <p>
+ * Files are read one row group at a time. After advancing to a row group using {@link #next()}, each column can be decoded on demand into a primitive
+ * array:
+ * <pre>{@code
+ * try (ColumnarReader reader = new ColumnarReader(file)) {
+ *     int x = reader.columnIndex("x");
+ *     while (reader.next()) {
+ *         int[] xs = reader.intColumn(x);
+ *         ...
+ *     }
+ * }
+ * }</pre>
+ *
+ * @author DaPorkchop_
+ */
+@Accessors(fluent = true)
+public final class ColumnarReader implements AutoCloseable {
+    private final DataInputStream input;
+
+    @Getter
+    private final int rowGroupSize;
+    @Getter
+    private final List<Column> columns;
+
+    private final byte[][] columnData;
+    private final Object[] decoded;
+
+    @Getter
+    private int rowCount;
+    private boolean finished;
+
+    public ColumnarReader(@NonNull File file) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            byte[] magic = new byte[ColumnarOutputHandle.MAGIC.length];
+            this.input.readFully(magic);
+            if (!Arrays.equals(magic, ColumnarOutputHandle.MAGIC)) {
+                throw new IOException("Not a columnar output file: " + file);
+            }
+            long version = ColumnType.readVarLong(this.input);
+            if (version != ColumnarOutputHandle.VERSION) {
+                throw new IOException("Unsupported version: " + version);
+            }
+
+            this.rowGroupSize = ColumnType.toInt(ColumnType.readVarLong(this.input));
+            int columnCount = ColumnType.toInt(ColumnType.readVarLong(this.input));
+            List<Column> columns = new ArrayList<>(columnCount);
+            ColumnType[] types = ColumnType.values();
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = new byte[ColumnType.toInt(ColumnType.readVarLong(this.input))];
+                this.input.readFully(name);
+                int type = this.input.readUnsignedByte();
+                if (type >= types.length) {
+                    throw new IOException("Unknown column type: " + type);
+                }
+                columns.add(new Column(new String(name, StandardCharsets.UTF_8), types[type]));
+            }
+            this.columns = Collections.unmodifiableList(columns);
+        } catch (IOException | RuntimeException e) {
+            this.input.close();
+            throw e;
+        }
+
+        this.columnData = new byte[this.columns.size()][];
+        this.decoded = new Object[this.columns.size()];
+    }
+
+    /**
+     * Gets the index of the column with the given name.
+     *
+     * @param name the column name
+     * @return the column index
+     * @throws IllegalArgumentException if there is no column with the given name
+     */
+    public int columnIndex(@NonNull String name) {
+        for (int i = 0; i < this.columns.size(); i++) {
+            if (this.columns.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column: " + name);
+    }
+
+    /**
+     * Advances to the next row group.
+     *
+     * @return whether or not there was another row group
+     */
+    public boolean next() throws IOException {
+        Arrays.fill(this.decoded, null);
+        if (this.finished) {
+            return false;
+        }
+
+        this.rowCount = ColumnType.toInt(ColumnType.readVarLong(this.input));
+        if (this.rowCount == 0) {
+            this.finished = true;
+            return false;
+        }
+
+        for (int i = 0; i < this.columnData.length; i++) {
+            byte[] data = new byte[ColumnType.toInt(ColumnType.readVarLong(this.input))];
+            this.input.readFully(data);
+            this.columnData[i] = data;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the values of the given column in the current row group.
+     *
+     * @param column the column index
+     * @return the values. See {@link ColumnType#decode(java.io.DataInput, int)} for the array type
+     */
+    public Object column(int column) throws IOException {
+        checkIndex(this.columnData.length, column);
+        checkState(this.rowCount != 0 && !this.finished, "no current row group!");
+
+        Object values = this.decoded[column];
+        if (values == null) {
+            this.decoded[column] = values = this.columns.get(column).type.decode(this.columnData[column], this.rowCount);
+        }
+        return values;
+    }
+
+    public boolean[] booleanColumn(int column) throws IOException {
+        return (boolean[]) this.column(this.checkType(column, ColumnType.BOOLEAN));
+    }
+
+    public int[] intColumn(int column) throws IOException {
+        return (int[]) this.column(this.checkType(column, ColumnType.INT));
+    }
+
+    public long[] longColumn(int column) throws IOException {
+        return (long[]) this.column(this.checkType(column, ColumnType.LONG));
+    }
+
+    public float[] floatColumn(int column) throws IOException {
+        return (float[]) this.column(this.checkType(column, ColumnType.FLOAT));
+    }
+
+    public double[] doubleColumn(int column) throws IOException {
+        return (double[]) this.column(this.checkType(column, ColumnType.DOUBLE));
+    }
+
+    public String[] stringColumn(int column) throws IOException {
+        return (String[]) this.column(this.checkType(column, ColumnType.STRING));
+    }
+
+    /**
+     * Reads all remaining rows, passing each one to the given callback as an array of boxed values in column order.
+     * <p>
+     * This is convenient, but much slower than accessing the columns directly.
+     *
+     * @param callback the callback function
+     */
+    public void forEachRow(@NonNull Consumer<Object[]> callback) throws IOException {
+        Object[] values = new Object[this.columns.size()];
+        while (this.next()) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = this.column(i);
+            }
+
+            for (int row = 0; row < this.rowCount; row++) {
+                Object[] rowValues = new Object[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    rowValues[i] = Array.get(values[i], row);
+                }
+                callback.accept(rowValues);
+            }
+        }
+    }
+
+    private int checkType(int column, @NonNull ColumnType type) {
+        checkIndex(this.columnData.length, column);
+        ColumnType actual = this.columns.get(column).type;
+        checkArg(actual == type, "column %s has type %s, not %s", this.columns.get(column).name, actual, type);
+        return column;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.input.close();
+    }
+
+    /**
+     * A column in a columnar output file.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    @Getter
+    @Accessors(fluent = true)
+    public static final class Column {
+        @NonNull
+        private final String name;
+        @NonNull
+        private final ColumnType type;
+    }
+}
@@ -28,99 +28,87 @@ import net.daporkchop.lib.common.pool.handle.Handle;
 import net.daporkchop.lib.common.pool.handle.HandledPool;
 import net.daporkchop.lib.common.system.OperatingSystem;
 import net.daporkchop.lib.common.system.PlatformInfo;
-import net.daporkchop.lib.reflection.PField;
 import net.daporkchop.savesearcher.module.SearchModule;
-import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.output.FlushableOutputHandle;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.StringJoiner;
-import java.util.function.Function;
 
 /**
  * @author DaPorkchop_
  */
-public class CSVOutputHandle implements OutputHandle {
+public class CSVOutputHandle implements FlushableOutputHandle {
     protected static final HandledPool<StringBuilder> BUILDER_CACHE = new DefaultThreadHandledPool<>(StringBuilder::new, 2);
 
     protected final File parent;
-
-    protected Class<?>                   clazz;
-    protected List<PField<?>>            fields;
-    protected Function<Object, String>[] mappers;
-    protected PAppendable                output;
+    protected final boolean append;
+
+    protected Class<?>         clazz;
+    protected CSVRowSerializer serializer;
+    protected PAppendable      output;
+
+    /**
+     * Gets the name of the file that the output of the given module is written to.
+     *
+     * @param module the module
+     * @param suffix the file suffix
+     * @return the file name
+     */
+    public static String fileName(@NonNull SearchModule module, @NonNull String suffix) {
+        String fileName = module + suffix;
+        if (PlatformInfo.OPERATING_SYSTEM == OperatingSystem.Windows) {
+            fileName = fileName.replace(':', '_');
+        }
+        return fileName;
+    }
 
     public CSVOutputHandle(@NonNull File parent) {
+        this(parent, false);
+    }
+
+    /**
+     * @param parent the directory to write output files to
+     * @param append if {@code true}, rows will be appended to any existing output files instead of replacing them
+     */
+    public CSVOutputHandle(@NonNull File parent, boolean append) {
         this.parent = PFiles.ensureDirectoryExists(parent);
+        this.append = append;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void init(@NonNull SearchModule module) {
-        this.fields = new ArrayList<>();
-
-        Class<?> clazz = this.clazz = module.dataType();
-        while (clazz != Object.class) {
-            int i = 0;
-            for (PField field : Arrays.stream(clazz.getDeclaredFields())
-                    .map(PField::of)
-                    .filter(field -> !field.isTransient() && !field.isSynthetic()).toArray(PField[]::new)) {
-                this.fields.add(i++, field);
-            }
-            clazz = clazz.getSuperclass();
-        }
-
-        this.mappers = this.fields.stream()
-                .map((Function<PField, Function<Object, String>>) field -> {
-                    switch (field.getType()) {
-                        case BOOLEAN:
-                            return o -> Boolean.toString(field.getBoolean(o));
-                        case SHORT:
-                            return o -> Short.toString(field.getShort(o));
-                        case CHAR:
-                            return o -> CSVUtil.escape(Character.toString(field.getChar(o)));
-                        case INT:
-                            return o -> Integer.toString(field.getInt(o));
-                        case LONG:
-                            return o -> Long.toString(field.getLong(o));
-                        case FLOAT:
-                            return o -> Float.toString(field.getFloat(o));
-                        case DOUBLE:
-                            return o -> Double.toString(field.getDouble(o));
-                        case OBJECT:
-                            return o -> CSVUtil.escape(Objects.toString(field.get(o)));
-                        default:
-                            throw new IllegalArgumentException(field.getType().name());
-                    }
-                })
-                .toArray(Function[]::new);
+        this.serializer = CSVRowSerializer.of(this.clazz = module.dataType());
 
         try {
-            String fileName = module + this.getFileSuffix();
-            if (PlatformInfo.OPERATING_SYSTEM == OperatingSystem.Windows) {
-                fileName = fileName.replace(':', '_');
-            }
-            this.output = this.createWriter(PFiles.ensureFileExists(new File(this.parent, fileName)));
+            File file = new File(this.parent, fileName(module, this.getFileSuffix()));
+            boolean append = this.append && file.length() != 0L;
+            this.output = this.createWriter(PFiles.ensureFileExists(file), append);
 
-            this.output.append(this.fields.stream().map(PField::getName).collect(() -> new StringJoiner(","), StringJoiner::add, StringJoiner::merge).toString());
-            this.output.append(PlatformInfo.OPERATING_SYSTEM.lineEnding());
+            if (!append) {
+                this.output.append(this.serializer.header());
+                this.output.append(PlatformInfo.OPERATING_SYSTEM.lineEnding());
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    protected PAppendable createWriter(@NonNull File file) throws IOException {
-        return new UTF8FileWriter(file);
+    protected PAppendable createWriter(@NonNull File file, boolean append) throws IOException {
+        return append
+                ? new UTF8FileWriter(new FileOutputStream(file, true), PlatformInfo.OPERATING_SYSTEM.lineEnding(), false)
+                : new UTF8FileWriter(file);
     }
 
     protected String getFileSuffix() {
         return ".csv";
     }
 
+    @Override
+    public void flush() throws IOException {
+        this.output.flush();
+    }
+
     @Override
     public void close() throws IOException {
         try {
@@ -139,13 +127,23 @@ public class CSVOutputHandle implements OutputHandle {
         try (Handle<StringBuilder> handle = BUILDER_CACHE.get()) {
             StringBuilder builder = handle.value();
             builder.setLength(0);
-            for (int i = 0, length = this.mappers.length; i < length; i++) {
-                builder.append(this.mappers[i].apply(data)).append(',');
-            }
+            this.serializer.append(data, builder);
 
-            this.output.appendLn(builder, 0, builder.length() - 1);
+            this.output.appendLn(builder, 0, builder.length());
+            this.rowWritten(data, builder);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Called after a row has been written to the output file.
+     *
+     * @param data the value that was serialized
+     * @param row  the serialized row (without a line ending). Only valid until this method returns
+     * @throws IOException if an IO exception occurs
+     */
+    protected void rowWritten(@NonNull Object data, @NonNull CharSequence row) throws IOException {
+        //no-op
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.output.csv;
+
+import lombok.NonNull;
+import net.daporkchop.savesearcher.output.DataLayout;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Serializes instances of a single type to CSV rows.
+ * <p>
+ * The field getters of each type are combined with the {@link StringBuilder#append} overloads for their types into a single {@link MethodHandle}
+ * which writes a whole row, so serializing a row is one call through that handle rather than one call per field. Primitive values are appended
+ * directly to the output {@link StringBuilder} without boxing them or converting them to intermediate {@link String}s.
+ *
+ * @author DaPorkchop_
+ */
+public final class CSVRowSerializer {
+    private static final ClassValue<CSVRowSerializer> CACHE = new ClassValue<CSVRowSerializer>() {
+        @Override
+        protected CSVRowSerializer computeValue(Class<?> type) {
+            return new CSVRowSerializer(DataLayout.of(type));
+        }
+    };
+
+    //type of a handle which appends something to a row
+    private static final MethodType APPENDER_TYPE = MethodType.methodType(void.class, Object.class, StringBuilder.class);
+
+    private static final MethodHandle APPEND_SEPARATOR;
+    private static final MethodHandle APPEND_CHAR;
+    private static final MethodHandle APPEND_OBJECT;
+    private static final MethodHandle APPEND_NOTHING;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            APPEND_SEPARATOR = lookup.findStatic(CSVRowSerializer.class, "appendSeparator", APPENDER_TYPE);
+            APPEND_CHAR = lookup.findStatic(CSVRowSerializer.class, "appendChar", MethodType.methodType(void.class, StringBuilder.class, char.class));
+            APPEND_OBJECT = lookup.findStatic(CSVRowSerializer.class, "appendObject", MethodType.methodType(void.class, StringBuilder.class, Object.class));
+            APPEND_NOTHING = lookup.findStatic(CSVRowSerializer.class, "appendNothing", APPENDER_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Gets the {@link CSVRowSerializer} for the given type.
+     *
+     * @param type the type
+     * @return the {@link CSVRowSerializer}
+     */
+    public static CSVRowSerializer of(@NonNull Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    /**
+     * Creates a handle of type {@code (Object, StringBuilder)void} which appends the given column's value.
+     */
+    private static MethodHandle appender(@NonNull DataLayout.Column column) throws NoSuchMethodException, IllegalAccessException {
+        Class<?> type = column.type();
+
+        //(StringBuilder, T)void
+        MethodHandle append;
+        if (type == char.class) {
+            append = APPEND_CHAR;
+        } else if (type == byte.class || type == short.class) { //there are no overloads for these, append them as ints
+            append = MethodHandles.publicLookup().findVirtual(StringBuilder.class, "append", MethodType.methodType(StringBuilder.class, int.class))
+                    .asType(MethodType.methodType(void.class, StringBuilder.class, type));
+        } else if (type.isPrimitive()) {
+            append = MethodHandles.publicLookup().findVirtual(StringBuilder.class, "append", MethodType.methodType(StringBuilder.class, type))
+                    .asType(MethodType.methodType(void.class, StringBuilder.class, type));
+        } else {
+            append = APPEND_OBJECT.asType(MethodType.methodType(void.class, StringBuilder.class, type));
+        }
+
+        //(StringBuilder, Object)void -> (Object, StringBuilder)void
+        MethodHandle appendField = MethodHandles.filterArguments(append, 1, column.getter());
+        return MethodHandles.permuteArguments(appendField, APPENDER_TYPE, 1, 0);
+    }
+
+    /**
+     * Combines the given appenders into one which runs all of them in order.
+     */
+    private static MethodHandle sequence(@NonNull MethodHandle first, @NonNull MethodHandle second) {
+        return MethodHandles.foldArguments(second, first);
+    }
+
+    private static void appendSeparator(Object data, StringBuilder builder) {
+        builder.append(',');
+    }
+
+    private static void appendChar(StringBuilder builder, char value) {
+        CSVUtil.appendEscaped(builder, String.valueOf(value));
+    }
+
+    private static void appendObject(StringBuilder builder, Object value) {
+        CSVUtil.appendEscaped(builder, value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+    }
+
+    private static void appendNothing(Object data, StringBuilder builder) {
+        //no-op
+    }
+
+    private final String header;
+
+    //a handle of type (Object, StringBuilder)void which appends a whole row
+    private final MethodHandle row;
+
+    private CSVRowSerializer(@NonNull DataLayout layout) {
+        List<DataLayout.Column> columns = layout.columns();
+
+        StringJoiner header = new StringJoiner(",");
+        columns.forEach(column -> header.add(column.name()));
+        this.header = header.toString();
+
+        try {
+            //built from back to front, so that each field is followed by the rest of the row
+            MethodHandle row = columns.isEmpty() ? APPEND_NOTHING : appender(columns.get(columns.size() - 1));
+            for (int i = columns.size() - 2; i >= 0; i--) {
+                row = sequence(appender(columns.get(i)), sequence(APPEND_SEPARATOR, row));
+            }
+            this.row = row;
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("Unable to serialize %s", layout.type()), e);
+        }
+    }
+
+    /**
+     * @return the header row, containing the name of each field
+     */
+    public String header() {
+        return this.header;
+    }
+
+    /**
+     * Appends the given value as a single row (without a line ending).
+     *
+     * @param data    the value to serialize
+     * @param builder the {@link StringBuilder} to append to
+     */
+    public void append(@NonNull Object data, @NonNull StringBuilder builder) {
+        try {
+            this.row.invokeExact(data, builder);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+}
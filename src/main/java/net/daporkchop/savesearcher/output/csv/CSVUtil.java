@@ -22,6 +22,9 @@ package net.daporkchop.savesearcher.output.csv;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Helper methods for the CSV format.
  * @author DaPorkchop_
@@ -40,4 +43,73 @@ public class CSVUtil {
         }
         return in;
     }
+
+    /**
+     * Splits a single CSV row into its (unescaped) fields.
+     *
+     * @param row the row
+     * @return the fields
+     */
+    public List<String> parseRow(@NonNull String row) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0, length = row.length(); i < length; i++) {
+            char c = row.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < length && row.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Appends the given text to a {@link StringBuilder}, escaping it in the same way as {@link #escape(String)} without creating any intermediate
+     * {@link String}s.
+     *
+     * @param builder the {@link StringBuilder} to append to
+     * @param in      the text to append
+     * @return the {@link StringBuilder}
+     */
+    public StringBuilder appendEscaped(@NonNull StringBuilder builder, @NonNull CharSequence in) {
+        int length = in.length();
+        if (length == 0) {
+            return builder;
+        }
+
+        boolean quote = in.charAt(0) == ' ' || in.charAt(length - 1) == ' ';
+        for (int i = 0; !quote && i < length; i++) {
+            char c = in.charAt(i);
+            quote = c == '"' || c == ',';
+        }
+
+        if (!quote) {
+            return builder.append(in);
+        }
+
+        builder.append('"');
+        for (int i = 0; i < length; i++) {
+            char c = in.charAt(i);
+            if (c == '"') {
+                builder.append('"');
+            }
+            builder.append(c);
+        }
+        return builder.append('"');
+    }
 }
@@ -27,13 +27,13 @@ import net.daporkchop.lib.common.system.OperatingSystem;
 import net.daporkchop.lib.common.system.PlatformInfo;
 import net.daporkchop.lib.unsafe.PUnsafe;
 import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.util.ParallelGZIPOutputStream;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * @author DaPorkchop_
@@ -43,9 +43,14 @@ public final class CompressedCSVOutputHandle extends CSVOutputHandle {
         super(parent);
     }
 
+    public CompressedCSVOutputHandle(@NonNull File parent, boolean append) {
+        super(parent, append);
+    }
+
     @Override
-    protected PAppendable createWriter(@NonNull File file) throws IOException {
-        return new UTF8FileWriter(new GZIPOutputStream(new FileOutputStream(file)), PlatformInfo.OPERATING_SYSTEM.lineEnding(), false);
+    protected PAppendable createWriter(@NonNull File file, boolean append) throws IOException {
+        //each flush ends a gzip member, so appending a new member to an existing file is always valid
+        return new UTF8FileWriter(new ParallelGZIPOutputStream(new FileOutputStream(file, append)), PlatformInfo.OPERATING_SYSTEM.lineEnding(), false);
     }
 
     @Override
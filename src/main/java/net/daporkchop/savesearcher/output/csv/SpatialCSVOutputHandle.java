@@ -0,0 +1,115 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.output.csv;
+
+import lombok.NonNull;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.output.DataLayout;
+import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.spatial.SpatialIndex;
+import net.daporkchop.savesearcher.spatial.SpatialIndexWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/**
+ * Writes CSV output exactly like {@link CSVOutputHandle}, and additionally builds a {@link SpatialIndex spatial index} of the rows keyed on their
+ * {@code x} and {@code z} fields, which may be queried using the {@code query} subcommand.
+ * <p>
+ * As the spatial index is only written once the handle is closed, this handle can't be flushed.
+ *
+ * @author DaPorkchop_
+ */
+public class SpatialCSVOutputHandle implements OutputHandle {
+    protected final CSVOutputHandle csv;
+
+    protected MethodHandle xGetter;
+    protected MethodHandle zGetter;
+    protected SpatialIndexWriter index;
+
+    public SpatialCSVOutputHandle(@NonNull File parent) {
+        this.csv = new CSVOutputHandle(parent) {
+            @Override
+            protected void rowWritten(@NonNull Object data, @NonNull CharSequence row) throws IOException {
+                SpatialCSVOutputHandle.this.rowWritten(data, row);
+            }
+        };
+    }
+
+    @Override
+    public void init(@NonNull SearchModule module) {
+        DataLayout.Column x = null;
+        DataLayout.Column z = null;
+        for (DataLayout.Column column : DataLayout.of(module.dataType()).columns()) {
+            if (column.type() == int.class && "x".equals(column.name())) {
+                x = column;
+            } else if (column.type() == int.class && "z".equals(column.name())) {
+                z = column;
+            }
+        }
+        if (x == null || z == null) {
+            throw new IllegalArgumentException(String.format("Output of module %s can't be spatially indexed: %s has no int x and z fields", module, module.dataType()));
+        }
+        this.xGetter = x.getter().asType(MethodType.methodType(int.class, Object.class));
+        this.zGetter = z.getter().asType(MethodType.methodType(int.class, Object.class));
+
+        this.csv.init(module);
+
+        try {
+            this.index = new SpatialIndexWriter(new File(this.csv.parent, CSVOutputHandle.fileName(module, this.csv.getFileSuffix() + SpatialIndex.EXTENSION)), this.csv.serializer.header());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void accept(@NonNull Object data) {
+        this.csv.accept(data);
+    }
+
+    protected void rowWritten(@NonNull Object data, @NonNull CharSequence row) throws IOException {
+        int x;
+        int z;
+        try {
+            x = (int) this.xGetter.invokeExact(data);
+            z = (int) this.zGetter.invokeExact(data);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+        this.index.add(x, z, row);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.csv.close();
+        } finally {
+            try {
+                this.index.close();
+            } finally {
+                this.index = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.spatial;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Constants and helpers describing the spatial index format.
+ * <p>
+ * A spatial index file consists of a header, followed by a table of buckets, a table of entries and finally the serialized rows themselves:
+ * <ul>
+ *     <li>header: magic ({@code "SSSI"}), version, bucket shift, maximum row length, bucket count, entry count (long), length-prefixed UTF-8 CSV header</li>
+ *     <li>buckets: {@code (bucketX, bucketZ, firstEntry (long), entryCount)}, sorted by bucket X, then bucket Z</li>
+ *     <li>entries: {@code (x, z, rowOffset (long), rowLength)}, grouped by bucket and sorted in Z-order within each bucket</li>
+ *     <li>rows: UTF-8 CSV rows without line endings, referenced by the entries</li>
+ * </ul>
+ * All values are big-endian.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class SpatialIndex {
+    public static final String EXTENSION = ".ssi";
+
+    static final int MAGIC = 0x53535349; //"SSSI"
+    static final int VERSION = 1;
+
+    /**
+     * The default bucket shift. Buckets are 512x512, which is the size of a region when the coordinates are block coordinates.
+     */
+    static final int DEFAULT_BUCKET_SHIFT = 9;
+
+    static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 + 8 + 4;
+    static final int BUCKET_SIZE = 4 + 4 + 8 + 4;
+    static final int ENTRY_SIZE = 4 + 4 + 8 + 4;
+
+    /**
+     * Computes a key for the given position, which sorts positions by bucket X, then bucket Z, then in Z-order within the bucket when compared
+     * using {@link Long#compareUnsigned(long, long)}.
+     */
+    static long sortKey(int x, int z, int bucketShift) {
+        //flipping the sign bit makes unsigned order the same as signed order, and doesn't affect the bucket boundaries
+        long ux = (x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+        long uz = (z ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+        long mask = (1L << bucketShift) - 1L;
+        return (ux >>> bucketShift) << (32 + bucketShift)
+               | (uz >>> bucketShift) << (bucketShift << 1)
+               | interleave(ux & mask, uz & mask, bucketShift);
+    }
+
+    private static long interleave(long x, long z, int bits) {
+        long result = 0L;
+        for (int i = 0; i < bits; i++) {
+            result |= ((x >>> i) & 1L) << (i << 1) | ((z >>> i) & 1L) << ((i << 1) + 1);
+        }
+        return result;
+    }
+}
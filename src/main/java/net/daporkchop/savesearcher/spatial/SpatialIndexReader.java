@@ -0,0 +1,264 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.spatial;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Reads a {@link SpatialIndex spatial index} file using memory-mapped I/O.
+ *
+ * @author DaPorkchop_
+ */
+@Accessors(fluent = true)
+public final class SpatialIndexReader implements AutoCloseable {
+    private final FileChannel channel;
+
+    private final MappedRegion buckets;
+    private final MappedRegion entries;
+    private final MappedRegion rows;
+
+    private final int bucketShift;
+    private final int bucketCount;
+    @Getter
+    private final long entryCount;
+    @Getter
+    private final String header;
+
+    public SpatialIndexReader(@NonNull File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(SpatialIndex.HEADER_SIZE);
+            readFully(this.channel, header, 0L);
+            header.flip();
+
+            int magic = header.getInt();
+            int version = header.getInt();
+            if (magic != SpatialIndex.MAGIC || version != SpatialIndex.VERSION) {
+                throw new IOException(String.format("%s is not a spatial index (magic=%08x, version=%d)", file, magic, version));
+            }
+            this.bucketShift = header.getInt();
+            int maxRowLength = header.getInt();
+            this.bucketCount = header.getInt();
+            this.entryCount = header.getLong();
+
+            ByteBuffer csvHeader = ByteBuffer.allocate(header.getInt());
+            readFully(this.channel, csvHeader, SpatialIndex.HEADER_SIZE);
+            this.header = new String(csvHeader.array(), StandardCharsets.UTF_8);
+
+            long bucketsOffset = SpatialIndex.HEADER_SIZE + (long) csvHeader.capacity();
+            long entriesOffset = bucketsOffset + (long) this.bucketCount * SpatialIndex.BUCKET_SIZE;
+            long rowsOffset = entriesOffset + this.entryCount * SpatialIndex.ENTRY_SIZE;
+            long size = this.channel.size();
+            if (rowsOffset > size) {
+                throw new IOException(String.format("%s is truncated (expected at least %d bytes, found %d)", file, rowsOffset, size));
+            }
+
+            this.buckets = new MappedRegion(this.channel, bucketsOffset, entriesOffset - bucketsOffset, SpatialIndex.BUCKET_SIZE);
+            this.entries = new MappedRegion(this.channel, entriesOffset, rowsOffset - entriesOffset, SpatialIndex.ENTRY_SIZE);
+            this.rows = new MappedRegion(this.channel, rowsOffset, size - rowsOffset, maxRowLength);
+        } catch (Throwable t) {
+            this.channel.close();
+            throw t;
+        }
+    }
+
+    private static void readFully(@NonNull FileChannel channel, @NonNull ByteBuffer dst, long position) throws IOException {
+        while (dst.hasRemaining()) {
+            int read = channel.read(dst, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Visits every row whose position is inside of the given box.
+     *
+     * @param minX    the minimum X coordinate (inclusive)
+     * @param minZ    the minimum Z coordinate (inclusive)
+     * @param maxX    the maximum X coordinate (inclusive)
+     * @param maxZ    the maximum Z coordinate (inclusive)
+     * @param visitor the {@link Visitor} to pass the rows to
+     * @return the number of rows visited
+     */
+    public long queryBox(int minX, int minZ, int maxX, int maxZ, @NonNull Visitor visitor) throws IOException {
+        checkArg(minX <= maxX && minZ <= maxZ, "invalid box: (%d,%d) -> (%d,%d)", minX, minZ, maxX, maxZ);
+
+        return this.query(minX, minZ, maxX, maxZ, (x, z) -> true, visitor);
+    }
+
+    /**
+     * Visits every row whose position is within the given distance of a point.
+     *
+     * @param centerX the X coordinate of the center point
+     * @param centerZ the Z coordinate of the center point
+     * @param radius  the maximum distance from the center point (inclusive)
+     * @param visitor the {@link Visitor} to pass the rows to
+     * @return the number of rows visited
+     */
+    public long queryRadius(int centerX, int centerZ, int radius, @NonNull Visitor visitor) throws IOException {
+        notNegative(radius, "radius");
+
+        long radiusSq = (long) radius * radius;
+        return this.query(
+                (int) Math.max((long) centerX - radius, Integer.MIN_VALUE), (int) Math.max((long) centerZ - radius, Integer.MIN_VALUE),
+                (int) Math.min((long) centerX + radius, Integer.MAX_VALUE), (int) Math.min((long) centerZ + radius, Integer.MAX_VALUE),
+                (x, z) -> {
+                    long dx = (long) x - centerX;
+                    long dz = (long) z - centerZ;
+                    return dx * dx + dz * dz <= radiusSq;
+                }, visitor);
+    }
+
+    private long query(int minX, int minZ, int maxX, int maxZ, @NonNull Filter filter, @NonNull Visitor visitor) throws IOException {
+        int shift = this.bucketShift;
+        int minBucketX = minX >> shift;
+        int minBucketZ = minZ >> shift;
+        int maxBucketX = maxX >> shift;
+        int maxBucketZ = maxZ >> shift;
+
+        long visited = 0L;
+        for (int i = this.lowerBound(minBucketX, minBucketZ); i < this.bucketCount; ) {
+            long bucketPos = (long) i * SpatialIndex.BUCKET_SIZE;
+            int bucketX = this.buckets.getInt(bucketPos);
+            int bucketZ = this.buckets.getInt(bucketPos + 4);
+            if (bucketX > maxBucketX) {
+                break;
+            } else if (bucketZ < minBucketZ) { //skip ahead to the first bucket in this column which intersects the box
+                i = this.lowerBound(bucketX, minBucketZ);
+                continue;
+            } else if (bucketZ > maxBucketZ) { //skip ahead to the next column
+                i = this.lowerBound(bucketX + 1, minBucketZ);
+                continue;
+            }
+
+            long firstEntry = this.buckets.getLong(bucketPos + 8);
+            int entryCount = this.buckets.getInt(bucketPos + 16);
+            for (long entryPos = firstEntry * SpatialIndex.ENTRY_SIZE, end = entryPos + (long) entryCount * SpatialIndex.ENTRY_SIZE; entryPos < end; entryPos += SpatialIndex.ENTRY_SIZE) {
+                int x = this.entries.getInt(entryPos);
+                int z = this.entries.getInt(entryPos + 4);
+                if (x < minX || x > maxX || z < minZ || z > maxZ) {
+                    continue;
+                }
+                if (filter.test(x, z)) {
+                    visitor.visit(x, z, this.rows.slice(this.entries.getLong(entryPos + 8), this.entries.getInt(entryPos + 16)));
+                    visited++;
+                }
+            }
+            i++;
+        }
+        return visited;
+    }
+
+    /**
+     * @return the index of the first bucket which is greater than or equal to the given bucket coordinates
+     */
+    private int lowerBound(int bucketX, int bucketZ) {
+        int low = 0;
+        int high = this.bucketCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long bucketPos = (long) mid * SpatialIndex.BUCKET_SIZE;
+            int x = this.buckets.getInt(bucketPos);
+            int z = this.buckets.getInt(bucketPos + 4);
+            if (x < bucketX || (x == bucketX && z < bucketZ)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Receives the rows matched by a query.
+     *
+     * @author DaPorkchop_
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        /**
+         * @param x   the row's X coordinate
+         * @param z   the row's Z coordinate
+         * @param row the UTF-8 encoded row, without a line ending
+         */
+        void visit(int x, int z, @NonNull ByteBuffer row) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Filter {
+        boolean test(int x, int z);
+    }
+
+    /**
+     * A region of a file which is mapped into memory in segments of at most 1GiB, allowing files larger than 2GiB to be mapped.
+     * <p>
+     * Consecutive segments overlap by a fixed number of bytes, so that any value no larger than the overlap can be read from a single segment.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class MappedRegion {
+        private static final int SEGMENT_SHIFT = 30;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1L;
+
+        private final MappedByteBuffer[] segments;
+
+        public MappedRegion(@NonNull FileChannel channel, long offset, long length, int overlap) throws IOException {
+            this.segments = new MappedByteBuffer[Math.toIntExact((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(length - start, (1L << SEGMENT_SHIFT) + overlap));
+            }
+        }
+
+        public int getInt(long pos) {
+            return this.segments[(int) (pos >>> SEGMENT_SHIFT)].getInt((int) (pos & SEGMENT_MASK));
+        }
+
+        public long getLong(long pos) {
+            return this.segments[(int) (pos >>> SEGMENT_SHIFT)].getLong((int) (pos & SEGMENT_MASK));
+        }
+
+        public ByteBuffer slice(long pos, int length) {
+            ByteBuffer buffer = this.segments[(int) (pos >>> SEGMENT_SHIFT)].duplicate();
+            int index = (int) (pos & SEGMENT_MASK);
+            buffer.limit(index + length).position(index);
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.spatial;
+
+import lombok.NonNull;
+import net.daporkchop.lib.common.misc.file.PFiles;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Builds a {@link SpatialIndex spatial index} file from rows with a position.
+ * <p>
+ * Rows are spilled to a temporary file as they are added, only the positions and row offsets are kept in memory until the index is written when
+ * this writer is closed.
+ *
+ * @author DaPorkchop_
+ */
+public final class SpatialIndexWriter implements AutoCloseable {
+    private final File file;
+    private final File rowsFile;
+    private final String header;
+    private final int bucketShift;
+
+    private final OutputStream rows;
+    private long rowsLength;
+    private int maxRowLength;
+
+    private int[] xs = new int[1024];
+    private int[] zs = new int[1024];
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private int count;
+
+    public SpatialIndexWriter(@NonNull File file, @NonNull String header) throws IOException {
+        this(file, header, SpatialIndex.DEFAULT_BUCKET_SHIFT);
+    }
+
+    /**
+     * @param file        the file to write the index to
+     * @param header      the CSV header row
+     * @param bucketShift the base 2 logarithm of the size of a bucket
+     */
+    public SpatialIndexWriter(@NonNull File file, @NonNull String header, int bucketShift) throws IOException {
+        checkArg(bucketShift > 0 && bucketShift <= 16, "bucketShift (%d) must be in range [1,16]", bucketShift);
+
+        this.file = PFiles.ensureFileExists(file);
+        this.rowsFile = new File(file.getParentFile(), file.getName() + ".rows");
+        this.header = header;
+        this.bucketShift = bucketShift;
+
+        this.rows = new BufferedOutputStream(new FileOutputStream(this.rowsFile));
+    }
+
+    /**
+     * Adds a row to the index.
+     *
+     * @param x   the row's X coordinate
+     * @param z   the row's Z coordinate
+     * @param row the serialized row, without a line ending
+     */
+    public synchronized void add(int x, int z, @NonNull CharSequence row) throws IOException {
+        byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+
+        int i = this.count;
+        if (i == this.xs.length) {
+            int capacity = i << 1;
+            this.xs = Arrays.copyOf(this.xs, capacity);
+            this.zs = Arrays.copyOf(this.zs, capacity);
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+        }
+        this.xs[i] = x;
+        this.zs[i] = z;
+        this.offsets[i] = this.rowsLength;
+        this.lengths[i] = bytes.length;
+        this.count = i + 1;
+
+        this.rows.write(bytes);
+        this.rowsLength += bytes.length;
+        this.maxRowLength = Math.max(this.maxRowLength, bytes.length);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.rows.close();
+
+        try {
+            this.write();
+        } finally {
+            if (!this.rowsFile.delete()) {
+                throw new IOException("Unable to delete " + this.rowsFile);
+            }
+        }
+    }
+
+    private void write() throws IOException {
+        int count = this.count;
+        int shift = this.bucketShift;
+
+        //flipping the sign bit makes signed order the same as unsigned order, and doesn't affect the bucket boundaries
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = SpatialIndex.sortKey(this.xs[i], this.zs[i], shift) ^ Long.MIN_VALUE;
+        }
+
+        //sort rows by key, then by index. keys use all 64 bits, so they're replaced with their rank among the distinct keys to make room for the index
+        long[] distinct = keys.clone();
+        Arrays.sort(distinct);
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || distinct[i] != distinct[distinctCount - 1]) {
+                distinct[distinctCount++] = distinct[i];
+            }
+        }
+
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            packed[i] = (long) Arrays.binarySearch(distinct, 0, distinctCount, keys[i]) << 32 | i;
+        }
+        Arrays.sort(packed);
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) packed[i];
+        }
+
+        int bucketCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || keys[order[i]] >>> (shift << 1) != keys[order[i - 1]] >>> (shift << 1)) {
+                bucketCount++;
+            }
+        }
+
+        byte[] header = this.header.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel rows = FileChannel.open(this.rowsFile.toPath(), StandardOpenOption.READ)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(SpatialIndex.MAGIC);
+            out.writeInt(SpatialIndex.VERSION);
+            out.writeInt(shift);
+            out.writeInt(this.maxRowLength);
+            out.writeInt(bucketCount);
+            out.writeLong(count);
+            out.writeInt(header.length);
+            out.write(header);
+
+            //bucket table
+            for (int i = 0; i < count; ) {
+                int first = i;
+                long bucket = keys[order[i]] >>> (shift << 1);
+                do {
+                    i++;
+                } while (i < count && keys[order[i]] >>> (shift << 1) == bucket);
+
+                out.writeInt(this.xs[order[first]] >> shift);
+                out.writeInt(this.zs[order[first]] >> shift);
+                out.writeLong(first);
+                out.writeInt(i - first);
+            }
+
+            //entry table
+            for (int i = 0; i < count; i++) {
+                int j = order[i];
+                out.writeInt(this.xs[j]);
+                out.writeInt(this.zs[j]);
+                out.writeLong(this.offsets[j]);
+                out.writeInt(this.lengths[j]);
+            }
+            out.flush();
+
+            //row data
+            long base = channel.position();
+            for (long pos = 0L; pos < this.rowsLength; ) {
+                pos += channel.transferFrom(rows, base + pos, this.rowsLength - pos);
+            }
+        }
+    }
+}
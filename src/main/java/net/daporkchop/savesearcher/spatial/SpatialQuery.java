@@ -0,0 +1,123 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.spatial;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import net.daporkchop.lib.common.system.PlatformInfo;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * The {@code query} subcommand, which prints the rows in a spatial index which are inside of a box or within a given radius of a point.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class SpatialQuery {
+    public static void printHelp() {
+        logger.info("QUERY")
+                .info("query --index=<path> --box=<minX>,<minZ>,<maxX>,<maxZ>   Print all rows in the given spatial index (.ssi file written by the csv_spatial format) which")
+                .info("      (--output=<path>)                                    are inside of the given box. Coordinates are inclusive, and use the same units as the x and z")
+                .info("                                                             columns of the indexed module.")
+                .info("query --index=<path> --radius=<x>,<z>,<radius>            Print all rows in the given spatial index which are within the given distance of a point.")
+                .info("      (--output=<path>)                                    Rows are written as CSV to the given file, or to stdout if no output path is given.");
+    }
+
+    public static void main(@NonNull String... args) throws IOException {
+        File indexFile = null;
+        File outputFile = null;
+        int[] box = null;
+        int[] radius = null;
+        for (String s : args) {
+            if (s.isEmpty()) {
+                continue;
+            }
+            String[] split = s.split("=");
+            switch (split[0]) {
+                case "--index":
+                    indexFile = new File(split[1]);
+                    continue;
+                case "--output":
+                    outputFile = new File(split[1]);
+                    continue;
+                case "--box":
+                    box = parseInts(split[1], 4);
+                    continue;
+                case "--radius":
+                    radius = parseInts(split[1], 3);
+                    continue;
+            }
+            logger.error("Invalid query argument: %s", s);
+            System.exit(1);
+        }
+
+        if (indexFile == null) {
+            logger.error("Index path not set!");
+            System.exit(1);
+        } else if ((box == null) == (radius == null)) {
+            logger.error("Exactly one of --box and --radius must be given!");
+            System.exit(1);
+        }
+
+        byte[] lineEnding = PlatformInfo.OPERATING_SYSTEM.lineEnding().getBytes(StandardCharsets.UTF_8);
+        long start = System.nanoTime();
+        long count;
+        try (SpatialIndexReader reader = new SpatialIndexReader(indexFile);
+             OutputStream out = new BufferedOutputStream(outputFile != null ? new FileOutputStream(outputFile) : new FileOutputStream(FileDescriptor.out), 1 << 16)) {
+            WritableByteChannel channel = Channels.newChannel(out);
+            out.write(reader.header().getBytes(StandardCharsets.UTF_8));
+            out.write(lineEnding);
+
+            SpatialIndexReader.Visitor visitor = (x, z, row) -> {
+                while (row.hasRemaining()) {
+                    channel.write(row);
+                }
+                out.write(lineEnding);
+            };
+            count = box != null
+                    ? reader.queryBox(Math.min(box[0], box[2]), Math.min(box[1], box[3]), Math.max(box[0], box[2]), Math.max(box[1], box[3]), visitor)
+                    : reader.queryRadius(radius[0], radius[1], radius[2], visitor);
+        }
+
+        if (outputFile != null) { //don't mix log output with rows written to stdout
+            logger.success("Found %d rows in %.2fms.", count, (System.nanoTime() - start) / 1_000_000.0d);
+        }
+    }
+
+    private static int[] parseInts(@NonNull String s, int count) {
+        int[] values = Arrays.stream(s.split(",")).mapToInt(Integer::parseInt).toArray();
+        if (values.length != count) {
+            throw new IllegalArgumentException(String.format("Expected %d comma-separated values, but found %d: %s", count, values.length, s));
+        }
+        return values;
+    }
+}
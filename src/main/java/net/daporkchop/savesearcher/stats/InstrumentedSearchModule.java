@@ -0,0 +1,111 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.stats;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.daporkchop.lib.minecraft.region.util.NeighboringChunkProcessor;
+import net.daporkchop.lib.minecraft.util.BlockAccess;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.World;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.output.OutputHandle;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Wraps a {@link SearchModule}, recording the time spent and memory allocated while processing each chunk.
+ *
+ * @author DaPorkchop_
+ * @see ScanStats#instrument(SearchModule)
+ */
+@RequiredArgsConstructor
+class InstrumentedSearchModule implements SearchModule {
+    @NonNull
+    protected final SearchModule delegate;
+    @NonNull
+    protected final ScanStats.ProcessorStats stats;
+
+    @Override
+    public void handle(long current, long estimatedTotal, @NonNull Chunk chunk) {
+        long allocatedBytes = ScanStats.allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            this.delegate.handle(current, estimatedTotal, chunk);
+        } finally {
+            this.stats.record(System.nanoTime() - start, ScanStats.allocatedBytes() - allocatedBytes);
+        }
+    }
+
+    @Override
+    public void init(@NonNull World world, @NonNull OutputHandle handle) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.delegate.close();
+    }
+
+    @Override
+    public Class<?> dataType() {
+        return this.delegate.dataType();
+    }
+
+    @Override
+    public ChunkRequirements requirements() {
+        return this.delegate.requirements();
+    }
+
+    @Override
+    public List<? extends SearchModule> children() {
+        return this.delegate.children();
+    }
+
+    @Override
+    public String toString() {
+        return this.delegate.toString();
+    }
+
+    /**
+     * Wraps a {@link SearchModule} which is also a {@link NeighboringChunkProcessor}.
+     *
+     * @author DaPorkchop_
+     */
+    static final class Neighboring extends InstrumentedSearchModule implements NeighboringChunkProcessor {
+        public Neighboring(@NonNull SearchModule delegate, @NonNull ScanStats.ProcessorStats stats) {
+            super(delegate, stats);
+        }
+
+        @Override
+        public void handle(long current, long estimatedTotal, @NonNull Chunk chunk, @NonNull BlockAccess access) {
+            long allocatedBytes = ScanStats.allocatedBytes();
+            long start = System.nanoTime();
+            try {
+                ((NeighboringChunkProcessor) this.delegate).handle(current, estimatedTotal, chunk, access);
+            } finally {
+                this.stats.record(System.nanoTime() - start, ScanStats.allocatedBytes() - allocatedBytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.stats;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.common.misc.file.PFiles;
+import net.daporkchop.lib.minecraft.region.util.NeighboringChunkProcessor;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.module.merging.AbstractMergedSearchModule;
+import net.daporkchop.savesearcher.output.OutputHandle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * Collects timing and counters for every module over the course of a scan.
+ * <p>
+ * Time, chunk counts and allocated bytes are tracked per chunk processor (i.e. after merging). The time spent in each of the modules which a
+ * merged processor runs is also tracked, so that whatever remains is the overhead shared by all of them. Output rows are tracked for each of the
+ * original modules.
+ * <p>
+ * Measuring is not free, so none of this should be set up unless statistics have been requested.
+ *
+ * @author DaPorkchop_
+ */
+public final class ScanStats {
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN;
+
+    static {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+            THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) bean;
+        } else {
+            THREAD_MX_BEAN = null;
+        }
+    }
+
+    /**
+     * @return the total number of bytes allocated by the current thread so far, or {@code 0L} if the JVM doesn't support measuring this
+     */
+    static long allocatedBytes() {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0L;
+    }
+
+    private final List<ProcessorStats> processors = new ArrayList<>();
+    private final Map<SearchModule, LongAdder> rows = new IdentityHashMap<>();
+
+    /**
+     * Wraps the given {@link OutputHandle} such that all rows given to it are counted towards the given module.
+     *
+     * @param module the module
+     * @param handle the module's {@link OutputHandle}
+     * @return the wrapped {@link OutputHandle}
+     */
+    public synchronized OutputHandle countRows(@NonNull SearchModule module, @NonNull OutputHandle handle) {
+        LongAdder rows = this.rows.computeIfAbsent(module, m -> new LongAdder());
+        return new OutputHandle() {
+            @Override
+            public void init(@NonNull SearchModule module) {
+                handle.init(module);
+            }
+
+            @Override
+            public void close() throws IOException {
+                handle.close();
+            }
+
+            @Override
+            public void accept(@NonNull Object data) {
+                handle.accept(data);
+                rows.increment();
+            }
+        };
+    }
+
+    /**
+     * Wraps the given module such that the time spent in it is measured.
+     * <p>
+     * The returned module should be added to the scanner in place of the original one. If the module is a merged one, the time spent in each of the
+     * modules it was merged from is measured as well.
+     *
+     * @param module the (possibly merged) module
+     * @return the wrapped module
+     */
+    public synchronized SearchModule instrument(@NonNull SearchModule module) {
+        ProcessorStats stats = new ProcessorStats(module, module instanceof AbstractMergedSearchModule ? ((AbstractMergedSearchModule) module).measureChildren() : null);
+        this.processors.add(stats);
+        return module instanceof NeighboringChunkProcessor
+                ? new InstrumentedSearchModule.Neighboring(module, stats)
+                : new InstrumentedSearchModule(module, stats);
+    }
+
+    private long totalNanos() {
+        long total = 0L;
+        for (ProcessorStats stats : this.processors) {
+            total += stats.nanos.sum();
+        }
+        return total;
+    }
+
+    private long rows(@NonNull SearchModule module) {
+        long total = 0L;
+        for (SearchModule child : module.children()) {
+            LongAdder rows = this.rows.get(child);
+            total += rows != null ? rows.sum() : 0L;
+        }
+        return total;
+    }
+
+    /**
+     * Prints a breakdown of the time spent in each module to the log.
+     */
+    public synchronized void print() {
+        long totalNanos = Math.max(this.totalNanos(), 1L);
+
+        logger.info("Module breakdown:")
+                .info("  %-60s %12s %7s %12s %14s %12s", "Module", "Time", "Share", "Chunks", "Rows", "Allocated");
+        for (ProcessorStats stats : this.processors) {
+            long nanos = stats.nanos.sum();
+
+            logger.info("  %-60s %10.2fs %6.2f%% %12d %14d %10dMiB",
+                    stats.childNanos == null ? stats.processor : String.format("Merged (%d modules)", stats.childNanos.size()),
+                    nanos / 1_000_000_000.0d, nanos * 100.0d / totalNanos, stats.chunks.sum(), this.rows(stats.processor), stats.allocatedBytes.sum() >> 20L);
+            if (stats.childNanos != null) {
+                long sharedNanos = nanos;
+                for (Map.Entry<SearchModule, LongAdder> entry : stats.childNanos) {
+                    long childNanos = entry.getValue().sum();
+                    sharedNanos -= childNanos;
+                    logger.info("    %-58s %10.2fs %6.2f%% %12s %14d",
+                            entry.getKey(), childNanos / 1_000_000_000.0d, childNanos * 100.0d / totalNanos, "", this.rows(entry.getKey()));
+                }
+                logger.info("    %-58s %10.2fs %6.2f%%", "(shared)", sharedNanos / 1_000_000_000.0d, sharedNanos * 100.0d / totalNanos);
+            }
+        }
+    }
+
+    /**
+     * @return a JSON representation of the collected statistics
+     */
+    public synchronized JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("totalNanos", this.totalNanos());
+        root.addProperty("allocationTracking", THREAD_MX_BEAN != null);
+
+        JsonArray processors = new JsonArray();
+        for (ProcessorStats stats : this.processors) {
+            JsonObject processor = new JsonObject();
+            processor.addProperty("name", stats.processor.toString());
+            processor.addProperty("nanos", stats.nanos.sum());
+            processor.addProperty("chunks", stats.chunks.sum());
+            processor.addProperty("allocatedBytes", stats.allocatedBytes.sum());
+
+            JsonArray modules = new JsonArray();
+            if (stats.childNanos != null) {
+                long sharedNanos = stats.nanos.sum();
+                for (Map.Entry<SearchModule, LongAdder> entry : stats.childNanos) {
+                    JsonObject module = new JsonObject();
+                    module.addProperty("name", entry.getKey().toString());
+                    module.addProperty("nanos", entry.getValue().sum());
+                    module.addProperty("rows", this.rows(entry.getKey()));
+                    modules.add(module);
+                    sharedNanos -= entry.getValue().sum();
+                }
+                processor.addProperty("sharedNanos", sharedNanos);
+            } else {
+                JsonObject module = new JsonObject();
+                module.addProperty("name", stats.processor.toString());
+                module.addProperty("nanos", stats.nanos.sum());
+                module.addProperty("rows", this.rows(stats.processor));
+                modules.add(module);
+            }
+            processor.add("modules", modules);
+            processors.add(processor);
+        }
+        root.add("processors", processors);
+        return root;
+    }
+
+    /**
+     * Writes a JSON representation of the collected statistics to the given file.
+     *
+     * @param file the file to write to
+     */
+    public void writeJson(@NonNull File file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(PFiles.ensureFileExists(file).toPath(), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(this.toJson(), writer);
+        }
+    }
+
+    /**
+     * The counters for a single chunk processor.
+     *
+     * @author DaPorkchop_
+     */
+    @RequiredArgsConstructor
+    @Getter
+    @Accessors(fluent = true)
+    static final class ProcessorStats {
+        @NonNull
+        protected final SearchModule processor;
+        //the time spent in each of the processor's children, or null if it isn't a merged processor
+        protected final List<Map.Entry<SearchModule, LongAdder>> childNanos;
+
+        protected final LongAdder nanos = new LongAdder();
+        protected final LongAdder chunks = new LongAdder();
+        protected final LongAdder allocatedBytes = new LongAdder();
+
+        void record(long nanos, long allocatedBytes) {
+            this.nanos.add(nanos);
+            this.chunks.increment();
+            this.allocatedBytes.add(allocatedBytes);
+        }
+    }
+}
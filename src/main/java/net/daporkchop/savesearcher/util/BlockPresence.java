@@ -0,0 +1,101 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.util;
+
+import lombok.NonNull;
+import net.daporkchop.lib.minecraft.world.Section;
+
+/**
+ * A summary of which block IDs occur anywhere in a single {@link Section}.
+ * <p>
+ * The summary is filled in while a section is packed by {@link SectionBlocks}, so it comes for free with the copy: once a section has been copied,
+ * any number of modules may check it to skip searching the packed blocks for IDs which don't occur. It doesn't save having to read the section
+ * in the first place.
+ *
+ * @author DaPorkchop_
+ */
+public final class BlockPresence {
+    /**
+     * The number of distinct block IDs tracked by a summary.
+     */
+    public static final int MAX_ID = 4096;
+
+    private final long[] bits = new long[MAX_ID >>> 6];
+
+    BlockPresence() {
+    }
+
+    void clear() {
+        final long[] bits = this.bits;
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = 0L;
+        }
+    }
+
+    void add(int id) {
+        this.bits[id >>> 6] |= 1L << id;
+    }
+
+    /**
+     * Checks whether or not the given block ID is present in the section.
+     *
+     * @param id the block ID
+     * @return whether or not the given block ID is present in the section
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id < MAX_ID && (this.bits[id >>> 6] & (1L << id)) != 0L;
+    }
+
+    /**
+     * Checks whether or not any of the given block IDs are present in the section.
+     *
+     * @param ids the block IDs
+     * @return whether or not any of the given block IDs are present in the section
+     */
+    public boolean containsAny(@NonNull int... ids) {
+        for (int id : ids) {
+            if (this.contains(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether or not the section consists entirely of the given block ID.
+     *
+     * @param id the block ID
+     * @return whether or not the given block ID is the only one present in the section
+     */
+    public boolean containsOnly(int id) {
+        if (id < 0 || id >= MAX_ID) {
+            return false;
+        }
+
+        final long[] bits = this.bits;
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i] != (i == id >>> 6 ? 1L << id : 0L)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
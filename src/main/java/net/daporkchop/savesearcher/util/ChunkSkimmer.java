@@ -0,0 +1,351 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.util;
+
+import lombok.NonNull;
+import net.daporkchop.savesearcher.io.RegionReadAhead;
+import net.daporkchop.savesearcher.io.SectorRuns;
+import net.daporkchop.savesearcher.module.ChunkRequirements;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static net.daporkchop.lib.logging.Logging.*;
+
+/**
+ * Removes chunks which contain none of the data required by the active modules from the set of chunks to visit, so that they never have to be fully
+ * decoded.
+ * <p>
+ * Chunks are read in the order in which they are stored in the region file, with nearby chunks being read together (see {@link SectorRuns}), so that
+ * skimming a region is one mostly sequential pass over the file. Each chunk's NBT is then read as a stream: only the section Y coordinates and the
+ * lengths of the entity and tile entity lists are looked at, every other tag is skipped over without being decoded, and reading stops as soon as any
+ * required data is found. This is only worthwhile if every module is {@link ChunkRequirements#sparse() sparse} and only needs data which many chunks
+ * don't have, see {@link #isApplicable(ChunkRequirements)}.
+ *
+ * @author DaPorkchop_
+ */
+public final class ChunkSkimmer {
+    //the maximum number of sectors to read at once. this is also the initial size of each thread's buffer
+    private static final int MAX_RUN_SECTORS = 256;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+
+    //the size of the payload of each fixed-size tag type, or -1 for variable-size types
+    private static final int[] PAYLOAD_SIZES = { 0, 1, 2, 4, 8, 4, 8, -1, -1, -1, -1, -1, -1 };
+
+    private static final byte[] NAME_LEVEL = "Level".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAME_SECTIONS = "Sections".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAME_Y = "Y".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAME_ENTITIES = "Entities".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAME_TILE_ENTITIES = "TileEntities".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Checks whether or not skimming chunks is worthwhile for modules with the given combined requirements.
+     * <p>
+     * Biomes and light are present in every chunk, and almost every chunk has at least one section, so in those cases skimming would only add
+     * overhead.
+     *
+     * @param requirements the combined requirements of all modules
+     */
+    public static boolean isApplicable(@NonNull ChunkRequirements requirements) {
+        return requirements.sparse() && !requirements.biomes() && !requirements.light() && requirements.sections() != ChunkRequirements.ALL_SECTIONS;
+    }
+
+    private final ChunkRequirements requirements;
+    private final ThreadLocal<Reader> reader = ThreadLocal.withInitial(Reader::new);
+
+    private final LongAdder skimmed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public ChunkSkimmer(@NonNull ChunkRequirements requirements) {
+        if (!isApplicable(requirements)) {
+            throw new IllegalArgumentException(String.format("Skimming is not applicable to requirements: %s", requirements));
+        }
+        this.requirements = requirements;
+    }
+
+    /**
+     * Clears all chunks which don't contain any required data from the given mask.
+     * <p>
+     * Chunks which can't be read for any reason are conservatively left in the mask, so that the error is reported when the chunk is loaded normally.
+     *
+     * @param regionFile the region file
+     * @param mask       the mask of chunks to visit, indexed by {@code x * 32 + z}
+     */
+    public void mask(@NonNull File regionFile, @NonNull BitSet mask) {
+        if (mask.isEmpty() || !regionFile.isFile()) {
+            return;
+        }
+
+        Reader reader = this.reader.get();
+        try (FileChannel channel = new RandomAccessFile(regionFile, "r").getChannel()) {
+            int[] locations = reader.locations;
+            if (!RegionHeader.readLocations(channel, locations)) { //incomplete header
+                return;
+            }
+
+            //read chunks in the order in which they're stored on disk, one run of nearby chunks at a time
+            SectorRuns runs = SectorRuns.of(locations, mask, RegionReadAhead.MAX_GAP_SECTORS, MAX_RUN_SECTORS);
+            for (int run = 0; run < runs.count(); run++) {
+                long runOffset = runs.offset(run);
+                int runLength = reader.read(channel, runOffset, (int) runs.length(run));
+
+                for (int chunk = runs.firstChunk(run), end = runs.firstChunk(run + 1); chunk < end; chunk++) {
+                    this.skimmed.increment();
+                    int offset = (int) (runs.chunkOffset(chunk) - runOffset);
+                    if (!reader.skim(offset, Math.min(runs.chunkLength(chunk), runLength - offset), this.requirements)) {
+                        mask.clear(runs.chunk(chunk));
+                        this.skipped.increment();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void printStats() {
+        long skimmed = this.skimmed.sum();
+        long skipped = this.skipped.sum();
+        logger.info("Chunk skimming (%s): skipped %d/%d chunks (%.2f%%) without any required data",
+                this.requirements, skipped, skimmed, skimmed == 0L ? 0.0d : skipped * 100.0d / skimmed);
+    }
+
+    /**
+     * Per-thread state for reading chunks.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Reader {
+        private final int[] locations = new int[RegionHeader.CHUNKS];
+        private final Inflater inflater = new Inflater();
+        private final byte[] name = new byte[Short.MAX_VALUE * 2 + 1];
+        private byte[] buffer = new byte[RegionHeader.SECTOR_SIZE * MAX_RUN_SECTORS];
+        private int nameLength;
+
+        /**
+         * Reads a run of sectors into the buffer.
+         *
+         * @return the number of bytes read, which may be less than requested if the end of the file was reached
+         */
+        public int read(@NonNull FileChannel channel, long offset, int size) throws IOException {
+            if (this.buffer.length < size) {
+                this.buffer = new byte[size];
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(this.buffer, 0, size);
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+            }
+            return buffer.position();
+        }
+
+        /**
+         * Skims a single chunk which has already been read into the buffer.
+         *
+         * @param offset the offset of the chunk in the buffer
+         * @param size   the number of bytes available for the chunk
+         * @return whether or not the chunk contains any of the required data, or could not be skimmed
+         */
+        public boolean skim(int offset, int size, @NonNull ChunkRequirements requirements) {
+            if (size < 5) {
+                return true;
+            }
+
+            int length = ((this.buffer[offset] & 0xFF) << 24) | ((this.buffer[offset + 1] & 0xFF) << 16) | ((this.buffer[offset + 2] & 0xFF) << 8) | (this.buffer[offset + 3] & 0xFF);
+            if (length < 1 || length > size - 4) { //invalid length
+                return true;
+            }
+
+            int compression = this.buffer[offset + 4];
+            if (compression < 1 || compression > 3) { //unknown compression, or the chunk is stored in an external file
+                return true;
+            }
+
+            try (DataInputStream in = new DataInputStream(this.decompress(new ByteArrayInputStream(this.buffer, offset + 5, length - 1), compression))) {
+                return this.skimRoot(in, requirements);
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+        private InputStream decompress(@NonNull InputStream in, int compression) throws IOException {
+            switch (compression) {
+                case 1:
+                    return new GZIPInputStream(in);
+                case 2:
+                    this.inflater.reset();
+                    return new InflaterInputStream(in, this.inflater);
+                default:
+                    return in;
+            }
+        }
+
+        private boolean skimRoot(@NonNull DataInputStream in, @NonNull ChunkRequirements requirements) throws IOException {
+            if (in.readUnsignedByte() != TAG_COMPOUND) {
+                return true;
+            }
+            skipFully(in, in.readUnsignedShort());
+            return this.skimCompound(in, requirements);
+        }
+
+        private boolean skimCompound(@NonNull DataInputStream in, @NonNull ChunkRequirements requirements) throws IOException {
+            for (int type; (type = in.readUnsignedByte()) != TAG_END; ) {
+                this.readName(in);
+                if (type == TAG_COMPOUND && this.nameIs(NAME_LEVEL)) {
+                    return this.skimCompound(in, requirements);
+                } else if (type == TAG_LIST && this.nameIs(NAME_SECTIONS) && requirements.sections() != 0) {
+                    if (this.skimSections(in, requirements)) {
+                        return true;
+                    }
+                } else if (type == TAG_LIST && ((this.nameIs(NAME_ENTITIES) && requirements.entities())
+                                                || (this.nameIs(NAME_TILE_ENTITIES) && requirements.tileEntities()))) {
+                    in.readUnsignedByte(); //element type
+                    if (in.readInt() > 0) {
+                        return true;
+                    }
+                } else {
+                    skip(in, type);
+                }
+            }
+            return false;
+        }
+
+        private boolean skimSections(@NonNull DataInputStream in, @NonNull ChunkRequirements requirements) throws IOException {
+            int elementType = in.readUnsignedByte();
+            int count = in.readInt();
+            if (elementType != TAG_COMPOUND) {
+                skipList(in, elementType, count);
+                return false;
+            }
+
+            for (int i = 0; i < count; i++) {
+                for (int type; (type = in.readUnsignedByte()) != TAG_END; ) {
+                    this.readName(in);
+                    if (type == TAG_BYTE && this.nameIs(NAME_Y)) {
+                        int sectionY = in.readByte();
+                        if (sectionY >= 0 && sectionY < 16 && requirements.needsSection(sectionY)) {
+                            return true;
+                        }
+                    } else {
+                        skip(in, type);
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void readName(@NonNull DataInputStream in) throws IOException {
+            this.nameLength = in.readUnsignedShort();
+            in.readFully(this.name, 0, this.nameLength);
+        }
+
+        private boolean nameIs(@NonNull byte[] name) {
+            if (this.nameLength != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (this.name[i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void skip(@NonNull DataInputStream in, int type) throws IOException {
+            switch (type) {
+                case TAG_BYTE_ARRAY:
+                    skipFully(in, in.readInt());
+                    break;
+                case TAG_STRING:
+                    skipFully(in, in.readUnsignedShort());
+                    break;
+                case TAG_LIST:
+                    skipList(in, in.readUnsignedByte(), in.readInt());
+                    break;
+                case TAG_COMPOUND:
+                    for (int childType; (childType = in.readUnsignedByte()) != TAG_END; ) {
+                        skipFully(in, in.readUnsignedShort());
+                        skip(in, childType);
+                    }
+                    break;
+                case TAG_INT_ARRAY:
+                    skipFully(in, in.readInt() * 4L);
+                    break;
+                case TAG_LONG_ARRAY:
+                    skipFully(in, in.readInt() * 8L);
+                    break;
+                default:
+                    if (type <= 0 || type >= PAYLOAD_SIZES.length) {
+                        throw new IOException("Invalid tag type: " + type);
+                    }
+                    skipFully(in, PAYLOAD_SIZES[type]);
+            }
+        }
+
+        private static void skipList(@NonNull DataInputStream in, int elementType, int count) throws IOException {
+            if (count <= 0) {
+                return;
+            } else if (elementType > 0 && elementType < PAYLOAD_SIZES.length && PAYLOAD_SIZES[elementType] >= 0) { //fixed-size elements can be skipped in one go
+                skipFully(in, (long) PAYLOAD_SIZES[elementType] * count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    skip(in, elementType);
+                }
+            }
+        }
+
+        private static void skipFully(@NonNull InputStream in, long count) throws IOException {
+            if (count < 0L) {
+                throw new IOException("Negative length: " + count);
+            }
+            while (count > 0L) {
+                long skipped = in.skip(count);
+                if (skipped <= 0L) {
+                    if (in.read() < 0) {
+                        throw new EOFException();
+                    }
+                    skipped = 1L;
+                }
+                count -= skipped;
+            }
+        }
+    }
+}
@@ -19,12 +19,6 @@
 
 package net.daporkchop.savesearcher.util;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.internal.Streams;
-import com.google.gson.stream.JsonWriter;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 import net.daporkchop.lib.common.pool.handle.Handle;
@@ -43,72 +37,158 @@ import net.daporkchop.lib.nbt.tag.notch.LongTag;
 import net.daporkchop.lib.nbt.tag.notch.ShortTag;
 import net.daporkchop.lib.nbt.tag.notch.StringTag;
 
-import java.io.IOException;
+import java.util.Map;
 
 /**
  * @author DaPorkchop_
  */
 @UtilityClass
 public class NBTHelper {
+    private final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
     public String toJson(@NonNull Tag nbt) {
         try (Handle<StringBuilder> handle = PorkUtil.STRINGBUILDER_POOL.get()) {
             StringBuilder builder = handle.get();
             builder.setLength(0);
-
-            try (JsonWriter writer = new JsonWriter(Streams.writerForAppendable(builder))) {
-                writer.setLenient(true);
-                Streams.write(toJson0(nbt), writer);
-            } catch (IOException e) {
-                throw new AssertionError(e); //impossible
-            }
-
+            appendJson(builder, nbt);
             return builder.toString();
         }
     }
 
-    private JsonElement toJson0(Tag nbt) {
+    /**
+     * Appends the JSON representation of the given NBT tag to a {@link StringBuilder}.
+     * <p>
+     * The output is identical to what Gson would produce for the equivalent JSON tree (without pretty-printing or HTML escaping), but is written
+     * directly without building an intermediate tree. Numeric arrays are written in bulk.
+     *
+     * @param builder the {@link StringBuilder} to append to
+     * @param nbt     the NBT tag
+     * @return the {@link StringBuilder}
+     */
+    public StringBuilder appendJson(@NonNull StringBuilder builder, @NonNull Tag nbt) {
         if (nbt instanceof CompoundTag) {
-            JsonObject object = new JsonObject();
-            ((CompoundTag) nbt).forEach((name, tag) -> object.add(name, toJson0(tag)));
-            return object;
+            builder.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Tag> entry : ((CompoundTag) nbt).getValue().entrySet()) {
+                if (first) {
+                    first = false;
+                } else {
+                    builder.append(',');
+                }
+                appendString(builder, entry.getKey()).append(':');
+                appendJson(builder, entry.getValue());
+            }
+            return builder.append('}');
         } else if (nbt instanceof ListTag) {
-            JsonArray array = new JsonArray();
-            ((ListTag<? extends Tag>) nbt).forEach(tag -> array.add(toJson0(tag)));
-            return array;
+            builder.append('[');
+            boolean first = true;
+            for (Tag tag : ((ListTag<? extends Tag>) nbt).getValue()) {
+                if (first) {
+                    first = false;
+                } else {
+                    builder.append(',');
+                }
+                appendJson(builder, tag);
+            }
+            return builder.append(']');
         } else if (nbt instanceof ByteTag) {
-            return new JsonPrimitive(((ByteTag) nbt).getValue());
+            return builder.append(((ByteTag) nbt).getValue());
         } else if (nbt instanceof DoubleTag) {
-            return new JsonPrimitive(((DoubleTag) nbt).getValue());
+            return builder.append(((DoubleTag) nbt).getValue());
         } else if (nbt instanceof FloatTag) {
-            return new JsonPrimitive(((FloatTag) nbt).getValue());
+            return builder.append(((FloatTag) nbt).getValue());
         } else if (nbt instanceof IntTag) {
-            return new JsonPrimitive(((IntTag) nbt).getValue());
+            return builder.append(((IntTag) nbt).getValue());
         } else if (nbt instanceof LongTag) {
-            return new JsonPrimitive(((LongTag) nbt).getValue());
+            return builder.append(((LongTag) nbt).getValue());
         } else if (nbt instanceof ShortTag) {
-            return new JsonPrimitive(((ShortTag) nbt).getValue());
+            return builder.append(((ShortTag) nbt).getValue());
         } else if (nbt instanceof StringTag) {
-            return new JsonPrimitive(((StringTag) nbt).getValue());
+            return appendString(builder, ((StringTag) nbt).getValue());
         } else if (nbt instanceof ByteArrayTag) {
-            JsonArray array = new JsonArray();
-            for (byte b : ((ByteArrayTag) nbt).value()) {
-                array.add(b);
+            byte[] arr = ((ByteArrayTag) nbt).value();
+            builder.ensureCapacity(builder.length() + 2 + arr.length * 5);
+            builder.append('[');
+            for (int i = 0; i < arr.length; i++) {
+                if (i != 0) {
+                    builder.append(',');
+                }
+                builder.append(arr[i]);
             }
-            return array;
+            return builder.append(']');
         } else if (nbt instanceof IntArrayTag) {
-            JsonArray array = new JsonArray();
-            for (int i : ((IntArrayTag) nbt).value()) {
-                array.add(i);
+            int[] arr = ((IntArrayTag) nbt).value();
+            builder.ensureCapacity(builder.length() + 2 + arr.length * 12);
+            builder.append('[');
+            for (int i = 0; i < arr.length; i++) {
+                if (i != 0) {
+                    builder.append(',');
+                }
+                builder.append(arr[i]);
             }
-            return array;
+            return builder.append(']');
         } else if (nbt instanceof LongArrayTag) {
-            JsonArray array = new JsonArray();
-            for (long l : ((LongArrayTag) nbt).getValue()) {
-                array.add(l);
+            long[] arr = ((LongArrayTag) nbt).getValue();
+            builder.ensureCapacity(builder.length() + 2 + arr.length * 21);
+            builder.append('[');
+            for (int i = 0; i < arr.length; i++) {
+                if (i != 0) {
+                    builder.append(',');
+                }
+                builder.append(arr[i]);
             }
-            return array;
+            return builder.append(']');
         } else {
             throw new IllegalArgumentException(PorkUtil.className(nbt));
         }
     }
+
+    /**
+     * Appends a quoted JSON string, using the same escaping rules as Gson.
+     */
+    private StringBuilder appendString(@NonNull StringBuilder builder, String value) {
+        if (value == null) {
+            return builder.append("null");
+        }
+
+        builder.append('"');
+        int last = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+
+            builder.append(value, last, i);
+            last = i + 1;
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\b':
+                    builder.append("\\b");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                default:
+                    builder.append("\\u")
+                            .append(HEX_DIGITS[(c >>> 12) & 0xF]).append(HEX_DIGITS[(c >>> 8) & 0xF])
+                            .append(HEX_DIGITS[(c >>> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+            }
+        }
+        return builder.append(value, last, value.length()).append('"');
+    }
 }
@@ -0,0 +1,324 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import lombok.NonNull;
+import net.daporkchop.lib.compression.PDeflater;
+import net.daporkchop.lib.compression.zlib.Zlib;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * An {@link OutputStream} which writes gzip-compressed data, compressing blocks of input in parallel.
+ * <p>
+ * Similarly to pigz, the input is split into fixed-size blocks, each of which is compressed independently on a shared worker pool. Unlike pigz, every
+ * block is written as a separate gzip member rather than as part of a single deflate stream, which costs a few bytes per block but means that no
+ * block depends on any other. Concatenated gzip members are a valid gzip file, and are decompressed transparently by {@code gzip}, {@code zcat} and
+ * {@link java.util.zip.GZIPInputStream}.
+ * <p>
+ * The native deflater from {@link Zlib#PROVIDER} is used if available, otherwise this falls back to {@link Deflater}.
+ * <p>
+ * Instances of this class are not thread-safe.
+ *
+ * @author DaPorkchop_
+ */
+public final class ParallelGZIPOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "SaveSearcher gzip worker #" + this.counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final byte[] GZIP_HEADER = {
+            0x1F, (byte) 0x8B, //magic
+            Deflater.DEFLATED, //compression method
+            0, //flags
+            0, 0, 0, 0, //modification time
+            0, //extra flags
+            (byte) 0xFF //operating system (unknown)
+    };
+
+    private static final ThreadLocal<PDeflater> NATIVE_DEFLATER = Zlib.PROVIDER.isNative()
+            ? ThreadLocal.withInitial(() -> Zlib.PROVIDER.deflater(Zlib.LEVEL_DEFAULT, Zlib.STRATEGY_DEFAULT, Zlib.MODE_GZIP))
+            : null;
+    private static final ThreadLocal<Deflater> JAVA_DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    /**
+     * Compresses the input data of the given block into a single, complete gzip member, which is stored in the block's output buffer.
+     *
+     * @param block the block to compress
+     * @return the block
+     */
+    private static Block compress(@NonNull Block block) {
+        if (NATIVE_DEFLATER != null) {
+            compressNative(block);
+        } else {
+            compressJava(block);
+        }
+        return block;
+    }
+
+    private static void compressNative(@NonNull Block block) {
+        int length = block.inputLength;
+        ByteBuf src = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+        ByteBuf dst = null;
+        try {
+            src.writeBytes(block.input, 0, length);
+
+            int bound = toInt(Zlib.PROVIDER.compressBoundLong(length, Zlib.MODE_GZIP));
+            dst = PooledByteBufAllocator.DEFAULT.directBuffer(bound, bound);
+
+            PDeflater deflater = NATIVE_DEFLATER.get();
+            deflater.reset();
+            checkState(deflater.fullDeflate(src, dst), "compressed data exceeded bound!");
+
+            int size = dst.readableBytes();
+            if (block.output.length < size) {
+                block.output = new byte[size];
+            }
+            dst.readBytes(block.output, 0, size);
+            block.outputLength = size;
+        } finally {
+            src.release();
+            if (dst != null) {
+                dst.release();
+            }
+        }
+    }
+
+    private static void compressJava(@NonNull Block block) {
+        int length = block.inputLength;
+        Deflater deflater = JAVA_DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(block.input, 0, length);
+        deflater.finish();
+
+        byte[] out = block.output;
+        int bound = toInt(Zlib.PROVIDER.compressBoundLong(length, Zlib.MODE_GZIP));
+        if (out.length < bound) {
+            out = new byte[bound];
+        }
+        System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+        int size = GZIP_HEADER.length;
+        while (!deflater.finished()) {
+            if (size == out.length - 8) {
+                out = Arrays.copyOf(out, out.length << 1);
+            }
+            size += deflater.deflate(out, size, out.length - 8 - size);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(block.input, 0, length);
+        writeIntLE(out, size, (int) crc.getValue());
+        writeIntLE(out, size + 4, length);
+
+        block.output = out;
+        block.outputLength = size + 8;
+    }
+
+    private static void writeIntLE(@NonNull byte[] dst, int index, int value) {
+        dst[index] = (byte) value;
+        dst[index + 1] = (byte) (value >>> 8);
+        dst[index + 2] = (byte) (value >>> 16);
+        dst[index + 3] = (byte) (value >>> 24);
+    }
+
+    private static int toInt(long value) {
+        checkArg(value >= 0L && value <= Integer.MAX_VALUE, "value out of range: %d", value);
+        return (int) value;
+    }
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final int maxPending;
+    private final Queue<Future<Block>> pending = new ArrayDeque<>();
+    private final Queue<Block> freeBlocks = new ArrayDeque<>();
+
+    private Block block;
+    private byte[] buffer;
+    private int size;
+    private boolean anyBlocks;
+    private boolean closed;
+
+    public ParallelGZIPOutputStream(@NonNull OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE, THREADS << 1);
+    }
+
+    /**
+     * @param out        the {@link OutputStream} to write compressed data to
+     * @param blockSize  the number of bytes of input to compress in each block
+     * @param maxPending the maximum number of blocks which may be queued for compression at once. Once this is exceeded, writes will block until the
+     *                   oldest block has been compressed and written
+     */
+    public ParallelGZIPOutputStream(@NonNull OutputStream out, int blockSize, int maxPending) {
+        this.out = out;
+        this.blockSize = positive(blockSize, "blockSize");
+        this.maxPending = positive(maxPending, "maxPending");
+
+        this.block = new Block(blockSize);
+        this.buffer = this.block.input;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.ensureOpen();
+        this.buffer[this.size++] = (byte) b;
+        if (this.size == this.buffer.length) {
+            this.submitBlock();
+        }
+    }
+
+    @Override
+    public void write(@NonNull byte[] src, int off, int len) throws IOException {
+        this.ensureOpen();
+        if ((off | len | (off + len) | (src.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int count = Math.min(len, this.buffer.length - this.size);
+            System.arraycopy(src, off, this.buffer, this.size, count);
+            this.size += count;
+            off += count;
+            len -= count;
+
+            if (this.size == this.buffer.length) {
+                this.submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Compresses any buffered data as a (possibly short) block and waits for all pending blocks to be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.ensureOpen();
+        if (this.size != 0) {
+            this.submitBlock();
+        }
+        while (!this.pending.isEmpty()) {
+            this.writeOldestBlock();
+        }
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        try {
+            if (!this.anyBlocks && this.size == 0) { //write an empty member so that the output is still a valid gzip file
+                this.submitBlock();
+            }
+            this.flush();
+        } finally {
+            this.closed = true;
+            this.block = null;
+            this.buffer = null;
+            this.pending.forEach(future -> future.cancel(false));
+            this.pending.clear();
+            this.freeBlocks.clear();
+            this.out.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        Block block = this.block;
+        block.inputLength = this.size;
+        this.pending.add(EXECUTOR.submit(() -> compress(block)));
+        this.anyBlocks = true;
+
+        //blocks are only reused once they have been written, so there are never more than maxPending + 2 of them
+        Block next = this.freeBlocks.poll();
+        this.block = next != null ? next : new Block(this.blockSize);
+        this.buffer = this.block.input;
+        this.size = 0;
+
+        while (this.pending.size() > this.maxPending) {
+            this.writeOldestBlock();
+        }
+    }
+
+    private void writeOldestBlock() throws IOException {
+        try {
+            Block block = this.pending.poll().get();
+            this.out.write(block.output, 0, block.outputLength);
+            this.freeBlocks.add(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for compression", e);
+        } catch (ExecutionException e) {
+            throw new IOException("compression failed", e.getCause());
+        }
+    }
+
+    /**
+     * A block of input data, along with the gzip member that it was compressed into.
+     * <p>
+     * Both buffers are kept when the block is reused, so that the steady state doesn't allocate any new buffers for short blocks (e.g. when flushing
+     * after every region) or for the compressed data.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Block {
+        private final byte[] input;
+        private int inputLength;
+
+        private byte[] output = new byte[0];
+        private int outputLength;
+
+        public Block(int blockSize) {
+            this.input = new byte[blockSize];
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.util;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Helpers for reading the header of Anvil region files directly.
+ * <p>
+ * The header consists of 1024 chunk locations followed by 1024 chunk timestamps, indexed by {@code (x & 31) | (z & 31) << 5}.
+ *
+ * @author DaPorkchop_
+ */
+@UtilityClass
+public class RegionHeader {
+    public final int CHUNKS = 32 * 32;
+    public final int SIZE = CHUNKS * 8;
+    public final int SECTOR_SIZE = 4096;
+
+    /**
+     * Gets the directory containing the region files of the given dimension.
+     *
+     * @param worldFile the root directory of the save
+     * @param dim       the dimension id
+     */
+    public File regionDirectory(@NonNull File worldFile, int dim) {
+        return new File(dim == 0 ? worldFile : new File(worldFile, "DIM" + dim), "region");
+    }
+
+    /**
+     * Gets the region file with the given coordinates.
+     *
+     * @param regionDir the region directory
+     * @param regionX   the region's X coordinate
+     * @param regionZ   the region's Z coordinate
+     */
+    public File regionFile(@NonNull File regionDir, int regionX, int regionZ) {
+        return new File(regionDir, String.format("r.%d.%d.mca", regionX, regionZ));
+    }
+
+    /**
+     * Gets the header index of the chunk at the given position in the mask passed to
+     * {@link net.daporkchop.lib.minecraft.region.WorldScanner}'s {@code maskVisitableChunksInRegion}, which is indexed by {@code x * 32 + z}.
+     *
+     * @param maskIndex the index in the mask
+     * @return the index in the region header
+     */
+    public int fromMaskIndex(int maskIndex) {
+        return (maskIndex >> 5) | (maskIndex & 31) << 5;
+    }
+
+    /**
+     * Reads the chunk locations from the header of an open region file.
+     * <p>
+     * Each location is the offset of the chunk's first sector in the file (in units of {@link #SECTOR_SIZE}) shifted left by {@code 8}, ORed with the
+     * number of sectors occupied by the chunk. Absent chunks have a location of {@code 0}.
+     *
+     * @param channel   the region file
+     * @param locations an array of length {@link #CHUNKS} to store the location of each chunk in
+     * @return whether or not the file contains a complete header
+     */
+    public boolean readLocations(@NonNull FileChannel channel, @NonNull int[] locations) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CHUNKS << 2);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+        }
+        if (header.hasRemaining()) {
+            Arrays.fill(locations, 0);
+            return false;
+        }
+
+        header.flip();
+        header.asIntBuffer().get(locations, 0, CHUNKS);
+        return true;
+    }
+
+    /**
+     * Reads the chunk timestamps from the header of the given region file.
+     *
+     * @param file       the region file
+     * @param timestamps an array of length {@link #CHUNKS} to store the timestamp of each chunk in. Timestamps of absent chunks are set to {@code 0}
+     * @param present    a {@link BitSet} to store the set of chunks which are present in
+     * @return whether or not the file exists and contains a complete header
+     */
+    public boolean readTimestamps(@NonNull File file, @NonNull int[] timestamps, @NonNull BitSet present) throws IOException {
+        present.clear();
+        Arrays.fill(timestamps, 0);
+        if (!file.isFile() || file.length() < SIZE) {
+            return false;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(SIZE);
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+        }
+        if (header.hasRemaining()) {
+            return false;
+        }
+
+        for (int i = 0; i < CHUNKS; i++) {
+            if (header.getInt(i << 2) != 0) {
+                present.set(i);
+                timestamps[i] = header.getInt((CHUNKS << 2) + (i << 2));
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package net.daporkchop.savesearcher.util;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+import net.daporkchop.lib.math.vector.i.Vec2i;
+import net.daporkchop.lib.minecraft.region.WorldScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static net.daporkchop.lib.common.util.PValidation.*;
+
+/**
+ * Controls the order in which regions are scanned and the threads which scan them.
+ * <p>
+ * {@link WorldScanner} processes regions using a parallel stream over the collection returned by {@code getRegionPositions}. When run inside of this
+ * scheduler's {@link ForkJoinPool}, the stream's tasks execute on the pool's threads instead of the common pool. The collection returned by
+ * {@link #schedule(Collection)} is sorted largest-first, and its {@link Spliterator} hands regions out one at a time from a shared cursor rather than
+ * splitting the collection into fixed halves up front, so every worker always picks up the largest remaining region and no worker is left with a
+ * long tail of big regions while the others sit idle.
+ * <p>
+ * When neighboring chunk processors are in use, regions are grouped into 2x2 clusters which are scheduled consecutively, so that neighboring regions
+ * are scanned at roughly the same time. Chunks along the edge of a region look into the adjacent region, so keeping the two close together means
+ * that the adjacent region's chunk borders are more likely to still be in the
+ * {@link net.daporkchop.savesearcher.neighbor.NeighborChunkCache}, and that its region file is more likely to still be in the OS page cache when it
+ * has to be decoded through the scanner's {@code BlockAccess} instead.
+ *
+ * @author DaPorkchop_
+ */
+@Getter
+@Accessors(fluent = true)
+public final class RegionScheduler {
+    private final int threads;
+    private final File regionDir;
+    private final boolean clusterNeighbors;
+
+    /**
+     * @param threads          the number of threads to scan with
+     * @param regionDir        the directory containing the region files, used to determine the size of each region
+     * @param clusterNeighbors whether or not neighboring regions should be kept together
+     */
+    public RegionScheduler(int threads, @NonNull File regionDir, boolean clusterNeighbors) {
+        this.threads = positive(threads, "threads");
+        this.regionDir = regionDir;
+        this.clusterNeighbors = clusterNeighbors;
+    }
+
+    /**
+     * Orders the given regions for scanning.
+     *
+     * @param regions the positions of the regions to scan
+     * @return a collection containing the same regions, which should be returned from {@code getRegionPositions}
+     */
+    public Collection<Vec2i> schedule(@NonNull Collection<Vec2i> regions) {
+        Map<Vec2i, Long> sizes = new HashMap<>(regions.size());
+        for (Vec2i region : regions) {
+            sizes.put(region, RegionHeader.regionFile(this.regionDir, region.getX(), region.getY()).length());
+        }
+
+        List<Vec2i> ordered = new ArrayList<>(regions.size());
+        if (this.clusterNeighbors) {
+            Map<Vec2i, List<Vec2i>> clusters = new HashMap<>();
+            Map<Vec2i, Long> clusterSizes = new HashMap<>();
+            for (Vec2i region : regions) {
+                Vec2i cluster = new Vec2i(region.getX() >> 1, region.getY() >> 1);
+                clusters.computeIfAbsent(cluster, c -> new ArrayList<>(4)).add(region);
+                clusterSizes.merge(cluster, sizes.get(region), Long::sum);
+            }
+
+            List<Vec2i> clusterOrder = new ArrayList<>(clusters.keySet());
+            clusterOrder.sort(Comparator.comparing((Vec2i cluster) -> clusterSizes.get(cluster)).reversed());
+            for (Vec2i cluster : clusterOrder) {
+                List<Vec2i> members = clusters.get(cluster);
+                members.sort(Comparator.comparing((Vec2i region) -> sizes.get(region)).reversed());
+                ordered.addAll(members);
+            }
+        } else {
+            ordered.addAll(regions);
+            ordered.sort(Comparator.comparing((Vec2i region) -> sizes.get(region)).reversed());
+        }
+        return new RegionQueue(ordered.toArray(new Vec2i[0]), this.threads);
+    }
+
+    /**
+     * Runs the given {@link WorldScanner} on this scheduler's threads.
+     *
+     * @param scanner the {@link WorldScanner} to run
+     */
+    public void run(@NonNull WorldScanner scanner) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            pool.submit(() -> scanner.run(true)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * An immutable collection of regions whose {@link Spliterator}s dispense regions from a shared cursor.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class RegionQueue extends AbstractCollection<Vec2i> {
+        private final Vec2i[] regions;
+        private final int parallelism;
+
+        public RegionQueue(@NonNull Vec2i[] regions, int parallelism) {
+            this.regions = regions;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        public Iterator<Vec2i> iterator() {
+            return Arrays.asList(this.regions).iterator();
+        }
+
+        @Override
+        public int size() {
+            return this.regions.length;
+        }
+
+        @Override
+        public Spliterator<Vec2i> spliterator() {
+            //every traversal gets its own cursor, so the collection may be streamed more than once
+            return new QueueSpliterator(this.regions, new AtomicInteger(), new AtomicInteger(this.parallelism - 1));
+        }
+    }
+
+    /**
+     * A {@link Spliterator} which shares its cursor with all spliterators split from it. It splits at most once per worker thread, after which each
+     * leaf task keeps taking the next region from the shared cursor until none remain.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class QueueSpliterator implements Spliterator<Vec2i> {
+        private final Vec2i[] regions;
+        private final AtomicInteger cursor;
+        private final AtomicInteger splits;
+
+        public QueueSpliterator(@NonNull Vec2i[] regions, @NonNull AtomicInteger cursor, @NonNull AtomicInteger splits) {
+            this.regions = regions;
+            this.cursor = cursor;
+            this.splits = splits;
+        }
+
+        @Override
+        public boolean tryAdvance(@NonNull Consumer<? super Vec2i> action) {
+            int i = this.cursor.getAndIncrement();
+            if (i >= this.regions.length) {
+                return false;
+            }
+            action.accept(this.regions[i]);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Vec2i> trySplit() {
+            if (this.estimateSize() > 1L && this.splits.getAndDecrement() > 0) {
+                return new QueueSpliterator(this.regions, this.cursor, this.splits);
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Math.max(this.regions.length - this.cursor.get(), 0);
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.util;
+
+import lombok.NonNull;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.lib.minecraft.world.Section;
+
+/**
+ * Access to the block IDs and metadata values in a single {@link Section}, laid out for bulk scanning.
+ * <p>
+ * Instances start out reading from the section directly, exactly like a plain per-voxel loop would: {@link #nextIndexOf(int, int, int)} only reads a
+ * block's meta once its ID matches, and {@link #containsOnly(int)} stops at the first mismatch. This is the cheapest way for a single module to look
+ * at a section once.
+ * <p>
+ * If the same section is going to be read by several modules, it should be {@link #pack() packed} first. This copies every block into a {@code long[]}
+ * as a 16-bit state ({@code id << 4 | meta}), four blocks per element, in the usual Anvil order ({@code y << 8 | z << 4 | x}), and builds a
+ * {@link BlockPresence} summary along the way. Searches for a given ID (or ID+meta pair) then compare 8 bytes at a time using SWAR tricks, and
+ * sections which don't contain an ID at all are rejected without being searched. The copy costs two accessor calls for every block though, so it
+ * only pays off once it is shared.
+ * <p>
+ * Anvil sections store 12-bit block IDs, so an ID and meta value always fit into a single state.
+ *
+ * @author DaPorkchop_
+ */
+public final class SectionBlocks {
+    public static final int BLOCKS = 16 * 16 * 16;
+
+    private static final long LANES_LOW = 0x0001000100010001L;
+    private static final long LANES_LOW_BITS = 0x7FFF7FFF7FFF7FFFL;
+    private static final long LANES_ID_MASK = 0xFFF0FFF0FFF0FFF0L;
+
+    private static final ThreadLocal<SectionBlocks> CACHE = ThreadLocal.withInitial(SectionBlocks::new);
+
+    /**
+     * Gets the blocks of the given section.
+     * <p>
+     * The returned instance is owned by the calling thread, and is only valid until the next call to this method with a different section. Any number
+     * of modules may request the same section, and if one of them {@link #pack() packs} it the others will see the packed copy.
+     *
+     * @param chunk   the chunk which the section belongs to
+     * @param section the section
+     * @return the blocks of the section
+     */
+    public static SectionBlocks of(@NonNull Chunk chunk, @NonNull Section section) {
+        SectionBlocks blocks = CACHE.get();
+        if (blocks.sectionSource.section != section || blocks.chunkX != chunk.getX() || blocks.chunkZ != chunk.getZ()) {
+            blocks.sectionSource.section = section;
+            blocks.chunkX = chunk.getX();
+            blocks.chunkZ = chunk.getZ();
+            blocks.source = blocks.sectionSource;
+            blocks.packed = false;
+        }
+        return blocks;
+    }
+
+    /**
+     * Gets the index of the block at the given position in a section.
+     *
+     * @param x the X coordinate of the block, relative to the section
+     * @param y the Y coordinate of the block, relative to the section
+     * @param z the Z coordinate of the block, relative to the section
+     * @return the block's index
+     */
+    public static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    private static int state(int id, int meta) {
+        return ((id & 0xFFF) << 4) | (meta & 0xF);
+    }
+
+    private final long[] states = new long[BLOCKS >>> 2];
+    private final BlockPresence presence = new BlockPresence();
+    private boolean packed;
+
+    private final SectionSource sectionSource = new SectionSource();
+    private Source source;
+
+    //identity of the section that is currently bound
+    private int chunkX;
+    private int chunkZ;
+
+    /**
+     * Makes this instance read from the given {@link Source} instead of a section.
+     * <p>
+     * This is only meant for instances which aren't obtained through {@link #of(Chunk, Section)}, such as in tests and benchmarks.
+     *
+     * @param source the {@link Source} to read blocks from
+     * @return this instance
+     */
+    public SectionBlocks bind(@NonNull Source source) {
+        this.sectionSource.section = null;
+        this.source = source;
+        this.packed = false;
+        return this;
+    }
+
+    /**
+     * @return whether or not the blocks have been copied by {@link #pack()}
+     */
+    public boolean packed() {
+        return this.packed;
+    }
+
+    /**
+     * Copies all blocks from the section, unless this has already been done.
+     * <p>
+     * This should only be done if the blocks are going to be read more than once, see the class documentation.
+     *
+     * @return this instance
+     */
+    public SectionBlocks pack() {
+        if (!this.packed) {
+            final Source source = this.source;
+            final long[] states = this.states;
+            this.presence.clear();
+            for (int i = 0, y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x += 4) {
+                        states[i++] = (long) this.copy(source, x, y, z)
+                                      | (long) this.copy(source, x + 1, y, z) << 16L
+                                      | (long) this.copy(source, x + 2, y, z) << 32L
+                                      | (long) this.copy(source, x + 3, y, z) << 48L;
+                    }
+                }
+            }
+            this.packed = true;
+        }
+        return this;
+    }
+
+    private int copy(@NonNull Source source, int x, int y, int z) {
+        int id = source.getBlockId(x, y, z) & 0xFFF;
+        this.presence.add(id);
+        return state(id, source.getBlockMeta(x, y, z));
+    }
+
+    /**
+     * Checks whether or not the given block ID may occur in this section.
+     * <p>
+     * This is only able to rule anything out once the blocks have been {@link #pack() packed}, otherwise it always returns {@code true}.
+     *
+     * @param id the block ID
+     */
+    public boolean mayContain(int id) {
+        return !this.packed || this.presence.contains(id);
+    }
+
+    /**
+     * Checks whether or not any of the given block IDs may occur in this section.
+     * <p>
+     * This is only able to rule anything out once the blocks have been {@link #pack() packed}, otherwise it always returns {@code true}.
+     *
+     * @param ids the block IDs
+     */
+    public boolean mayContainAny(@NonNull int... ids) {
+        return !this.packed || this.presence.containsAny(ids);
+    }
+
+    /**
+     * Checks whether or not this section consists entirely of the given block ID.
+     *
+     * @param id the block ID
+     */
+    public boolean containsOnly(int id) {
+        if (this.packed) {
+            return this.presence.containsOnly(id);
+        }
+
+        final Source source = this.source;
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    if (source.getBlockId(x, y, z) != id) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the state ({@code id << 4 | meta}) of the block at the given index.
+     *
+     * @param index the block's index
+     * @return the block's state
+     */
+    public int state(int index) {
+        if (this.packed) {
+            return (int) (this.states[index >>> 2] >>> ((index & 3) << 4)) & 0xFFFF;
+        } else {
+            return state(this.getBlockId(index), this.getBlockMeta(index));
+        }
+    }
+
+    /**
+     * Gets the ID of the block at the given index.
+     *
+     * @param index the block's index
+     * @return the block's ID
+     */
+    public int getBlockId(int index) {
+        if (this.packed) {
+            return (int) (this.states[index >>> 2] >>> (((index & 3) << 4) + 4)) & 0xFFF;
+        } else {
+            return this.source.getBlockId(index & 0xF, index >>> 8, (index >>> 4) & 0xF) & 0xFFF;
+        }
+    }
+
+    /**
+     * Gets the meta of the block at the given index.
+     *
+     * @param index the block's index
+     * @return the block's meta
+     */
+    public int getBlockMeta(int index) {
+        if (this.packed) {
+            return (int) (this.states[index >>> 2] >>> ((index & 3) << 4)) & 0xF;
+        } else {
+            return this.source.getBlockMeta(index & 0xF, index >>> 8, (index >>> 4) & 0xF) & 0xF;
+        }
+    }
+
+    /**
+     * Finds the next block with the given ID and meta.
+     *
+     * @param id        the block ID to search for
+     * @param meta      the block meta to search for, or {@code -1} to match any meta
+     * @param fromIndex the index to begin searching at (inclusive)
+     * @return the index of the next matching block, or {@code -1} if none could be found
+     */
+    public int nextIndexOf(int id, int meta, int fromIndex) {
+        if (fromIndex >= BLOCKS || (id & ~0xFFF) != 0) {
+            return -1;
+        } else if (!this.packed) {
+            for (int i = fromIndex; i < BLOCKS; i++) {
+                if (this.getBlockId(i) == id && (meta < 0 || this.getBlockMeta(i) == meta)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        final long[] states = this.states;
+        final long mask = meta < 0 ? LANES_ID_MASK : -1L;
+        final long pattern = state(id, meta) * LANES_LOW & mask;
+
+        int i = fromIndex >>> 2;
+        long matches = matches(states[i], mask, pattern) & (-1L << ((fromIndex & 3) << 4));
+        while (true) {
+            if (matches != 0L) {
+                return (i << 2) | (Long.numberOfTrailingZeros(matches) >>> 4);
+            } else if (++i == states.length) {
+                return -1;
+            }
+            matches = matches(states[i], mask, pattern);
+        }
+    }
+
+    /**
+     * Counts the number of blocks with the given ID and meta.
+     *
+     * @param id   the block ID to search for
+     * @param meta the block meta to search for, or {@code -1} to match any meta
+     * @return the number of matching blocks
+     */
+    public int count(int id, int meta) {
+        if ((id & ~0xFFF) != 0) {
+            return 0;
+        } else if (!this.packed) {
+            int count = 0;
+            for (int i = 0; i < BLOCKS; i++) {
+                if (this.getBlockId(i) == id && (meta < 0 || this.getBlockMeta(i) == meta)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        final long[] states = this.states;
+        final long mask = meta < 0 ? LANES_ID_MASK : -1L;
+        final long pattern = state(id, meta) * LANES_LOW & mask;
+
+        int count = 0;
+        for (long word : states) {
+            count += Long.bitCount(matches(word, mask, pattern));
+        }
+        return count;
+    }
+
+    /**
+     * Adds the number of occurrences of every state in this section to a histogram.
+     * <p>
+     * Whenever the count of a state is incremented from {@code 0}, the state is also appended to {@code touched}, so that the caller can find (and
+     * later reset) the non-zero entries without scanning the whole histogram.
+     * <p>
+     * This needs to read every block anyway, so it {@link #pack() packs} the section first.
+     *
+     * @param counts       the histogram, indexed by state ({@code id << 4 | meta}). Must have a length of at least {@code 65536}
+     * @param touched      the list of states with a non-zero count. Must have a length of at least {@code 65536}
+     * @param touchedCount the number of states currently in {@code touched}
+     * @return the new number of states in {@code touched}
+     */
+    public int countStates(@NonNull int[] counts, @NonNull int[] touched, int touchedCount) {
+        for (long word : this.pack().states) {
+            for (int shift = 0; shift < 64; shift += 16) {
+                int state = (int) (word >>> shift) & 0xFFFF;
+                if (counts[state]++ == 0) {
+                    touched[touchedCount++] = state;
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    /**
+     * Compares all four 16-bit lanes of the given word against a pattern at once.
+     *
+     * @return a word with the highest bit of each matching lane set
+     */
+    private static long matches(long word, long mask, long pattern) {
+        long x = (word & mask) ^ pattern; //matching lanes are now zero
+        return ~(((x & LANES_LOW_BITS) + LANES_LOW_BITS) | x | LANES_LOW_BITS);
+    }
+
+    /**
+     * Something which blocks can be read from, using coordinates relative to a section.
+     *
+     * @author DaPorkchop_
+     */
+    public interface Source {
+        int getBlockId(int x, int y, int z);
+
+        int getBlockMeta(int x, int y, int z);
+    }
+
+    /**
+     * Reads blocks from a {@link Section}.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class SectionSource implements Source {
+        private Section section;
+
+        @Override
+        public int getBlockId(int x, int y, int z) {
+            return this.section.getBlockId(x, y, z);
+        }
+
+        @Override
+        public int getBlockMeta(int x, int y, int z) {
+            return this.section.getBlockMeta(x, y, z);
+        }
+    }
+}
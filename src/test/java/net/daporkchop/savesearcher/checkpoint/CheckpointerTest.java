@@ -0,0 +1,165 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.checkpoint;
+
+import net.daporkchop.savesearcher.module.PositionDataXZ;
+import net.daporkchop.savesearcher.module.SearchModule;
+import net.daporkchop.savesearcher.module.impl.EmptyChunksModule;
+import net.daporkchop.savesearcher.output.FlushableOutputHandle;
+import net.daporkchop.savesearcher.output.OutputHandle;
+import net.daporkchop.savesearcher.output.csv.CSVOutputHandle;
+import net.daporkchop.savesearcher.output.csv.CompressedCSVOutputHandle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Interrupts a checkpointed scan by cutting off its journal, resumes it, and checks that the output contains every row exactly once.
+ *
+ * @author DaPorkchop_
+ */
+public class CheckpointerTest {
+    private static final String CONFIG = "test";
+    private static final int REGIONS = 8;
+    private static final int ROWS_PER_REGION = 10;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testResumeCSV() throws IOException {
+        for (int keptRegions = 0; keptRegions <= REGIONS; keptRegions += 3) {
+            this.testResume(parent -> new CSVOutputHandle(parent, true), ".csv", keptRegions);
+        }
+    }
+
+    @Test
+    public void testResumeCompressedCSV() throws IOException {
+        for (int keptRegions = 0; keptRegions <= REGIONS; keptRegions += 3) {
+            this.testResume(parent -> new CompressedCSVOutputHandle(parent, true), ".csv.gz", keptRegions);
+        }
+    }
+
+    private void testResume(Function<File, FlushableOutputHandle> factory, String suffix, int keptRegions) throws IOException {
+        File dir = this.folder.newFolder();
+        SearchModule module = new EmptyChunksModule(new String[0]);
+
+        //complete every region, then cut the journal off after the given number of regions and halfway through the next record
+        try (Checkpointer checkpointer = Checkpointer.create(dir, CONFIG)) {
+            OutputHandle handle = checkpointer.wrap(factory.apply(dir));
+            handle.init(module);
+            checkpointer.start();
+            for (int i = 0; i < REGIONS; i++) {
+                emitRegion(checkpointer, handle, i);
+            }
+            handle.close();
+        }
+        cutJournal(new File(dir, CheckpointJournal.FILE_NAME), keptRegions);
+
+        try (Checkpointer checkpointer = Checkpointer.resume(dir, CONFIG)) {
+            assertEquals(keptRegions, checkpointer.completedRegionCount());
+
+            OutputHandle handle = checkpointer.wrap(factory.apply(dir));
+            handle.init(module);
+            checkpointer.start();
+            for (int i = 0; i < REGIONS; i++) {
+                if (!checkpointer.isCompleted(regionX(i), regionZ(i))) {
+                    emitRegion(checkpointer, handle, i);
+                }
+            }
+            checkpointer.finish();
+            handle.close();
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < REGIONS; i++) {
+            for (int j = 0; j < ROWS_PER_REGION; j++) {
+                expected.add(row(i, j));
+            }
+        }
+        List<String> actual = readLines(new File(dir, CSVOutputHandle.fileName(module, suffix)), suffix.endsWith(".gz"));
+        assertEquals("x,z", actual.remove(0));
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    private static void emitRegion(Checkpointer checkpointer, OutputHandle handle, int i) {
+        checkpointer.beginRegionMask(regionX(i), regionZ(i));
+        for (int j = 0; j < ROWS_PER_REGION; j++) {
+            handle.accept(new PositionDataXZ((regionX(i) << 5) + j, (regionZ(i) << 5) + j));
+        }
+        checkpointer.regionMasked(regionX(i), regionZ(i), 0);
+    }
+
+    private static String row(int i, int j) {
+        return ((regionX(i) << 5) + j) + "," + ((regionZ(i) << 5) + j);
+    }
+
+    private static int regionX(int i) {
+        return i - (REGIONS >> 1);
+    }
+
+    private static int regionZ(int i) {
+        return i % 3 - 1;
+    }
+
+    private static void cutJournal(File file, int keptRegions) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        StringBuilder builder = new StringBuilder();
+        int regions = 0;
+        for (String line : lines) {
+            if (line.startsWith("region\t") && regions++ == keptRegions) {
+                builder.append(line, 0, line.length() >> 1);
+                break;
+            }
+            builder.append(line).append('\n');
+        }
+        Files.write(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> readLines(File file, boolean gzipped) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = gzipped ? new GZIPInputStream(new FileInputStream(file)) : new FileInputStream(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.output.columnar;
+
+import lombok.NonNull;
+import net.daporkchop.lib.minecraft.world.Chunk;
+import net.daporkchop.savesearcher.module.AbstractSearchModule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes rows using {@link ColumnarOutputHandle} and checks that {@link ColumnarReader} reads back exactly the same values.
+ *
+ * @author DaPorkchop_
+ */
+public class ColumnarTest {
+    private static final int[] INTS = { 0, Integer.MIN_VALUE, Integer.MAX_VALUE, -1, Integer.MIN_VALUE, 1, Integer.MAX_VALUE, -1000000 };
+    private static final long[] LONGS = { 0L, Long.MIN_VALUE, Long.MAX_VALUE, -1L, Long.MIN_VALUE, 1L, Long.MAX_VALUE, Integer.MIN_VALUE };
+    private static final float[] FLOATS = { 0.0f, -0.0f, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.MIN_VALUE, Float.MAX_VALUE };
+    private static final double[] DOUBLES = { 0.0d, -0.0d, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMultipleRowGroups() throws IOException {
+        this.roundTrip(ColumnarOutputHandle.DEFAULT_ROW_GROUP_SIZE, (ColumnarOutputHandle.DEFAULT_ROW_GROUP_SIZE << 1) + 1234);
+    }
+
+    @Test
+    public void testSmallRowGroups() throws IOException {
+        this.roundTrip(1, 20);
+        this.roundTrip(7, 7 * 5);
+        this.roundTrip(7, 7 * 5 + 3);
+        this.roundTrip(1000, 999);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        this.roundTrip(16, 0);
+    }
+
+    private void roundTrip(int rowGroupSize, int count) throws IOException {
+        SplittableRandom random = new SplittableRandom(rowGroupSize * 31L + count);
+        Row[] rows = new Row[count];
+        for (int r = 0; r < count; r++) {
+            rows[r] = new Row(r, rowGroupSize, random);
+        }
+
+        File dir = this.folder.newFolder();
+        TestModule module = new TestModule();
+        ColumnarOutputHandle handle = new ColumnarOutputHandle(dir, rowGroupSize);
+        handle.init(module);
+        for (Row row : rows) {
+            handle.accept(row);
+        }
+        handle.close();
+
+        try (ColumnarReader reader = new ColumnarReader(new File(dir, module + ".columnar"))) {
+            assertEquals(rowGroupSize, reader.rowGroupSize());
+
+            int index = checkColumn(reader, "index", ColumnType.INT);
+            int i = checkColumn(reader, "i", ColumnType.INT);
+            int l = checkColumn(reader, "l", ColumnType.LONG);
+            int b = checkColumn(reader, "b", ColumnType.BOOLEAN);
+            int by = checkColumn(reader, "by", ColumnType.INT);
+            int sh = checkColumn(reader, "sh", ColumnType.INT);
+            int c = checkColumn(reader, "c", ColumnType.INT);
+            int f = checkColumn(reader, "f", ColumnType.FLOAT);
+            int d = checkColumn(reader, "d", ColumnType.DOUBLE);
+            int s = checkColumn(reader, "s", ColumnType.STRING);
+            int boxed = checkColumn(reader, "boxed", ColumnType.STRING);
+
+            int offset = 0;
+            while (reader.next()) {
+                int rowCount = reader.rowCount();
+                assertEquals(Math.min(rowGroupSize, count - offset), rowCount);
+
+                int[] indices = reader.intColumn(index);
+                int[] is = reader.intColumn(i);
+                long[] ls = reader.longColumn(l);
+                boolean[] bs = reader.booleanColumn(b);
+                int[] bys = reader.intColumn(by);
+                int[] shs = reader.intColumn(sh);
+                int[] cs = reader.intColumn(c);
+                float[] fs = reader.floatColumn(f);
+                double[] ds = reader.doubleColumn(d);
+                String[] ss = reader.stringColumn(s);
+                String[] boxeds = reader.stringColumn(boxed);
+                for (int k = 0; k < rowCount; k++) {
+                    Row row = rows[offset + k];
+                    assertEquals(row.index, indices[k]);
+                    assertEquals(row.i, is[k]);
+                    assertEquals(row.l, ls[k]);
+                    assertEquals(row.b, bs[k]);
+                    assertEquals(row.by, bys[k]);
+                    assertEquals(row.sh, shs[k]);
+                    assertEquals(row.c, cs[k]);
+                    assertEquals(Float.floatToIntBits(row.f), Float.floatToIntBits(fs[k]));
+                    assertEquals(Double.doubleToLongBits(row.d), Double.doubleToLongBits(ds[k]));
+                    assertEquals(row.s, ss[k]);
+                    assertEquals(row.boxed == null ? null : row.boxed.toString(), boxeds[k]);
+                }
+                offset += rowCount;
+            }
+            assertEquals(count, offset);
+            assertFalse(reader.next());
+        }
+    }
+
+    private static int checkColumn(ColumnarReader reader, String name, ColumnType type) {
+        int column = reader.columnIndex(name);
+        assertEquals(type, reader.columns().get(column).type());
+        return column;
+    }
+
+    /**
+     * A row containing a field of every type that can be stored in a column.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Row {
+        private final int index;
+        private final int i;
+        private final long l;
+        private final boolean b;
+        private final byte by;
+        private final short sh;
+        private final char c;
+        private final float f;
+        private final double d;
+        private final String s;
+        private final Integer boxed;
+
+        public Row(int r, int rowGroupSize, SplittableRandom random) {
+            this.index = r;
+
+            //alternate between the extreme values and random ones, in order to get both large positive and negative deltas
+            this.i = (r & 1) == 0 ? INTS[(r >> 1) % INTS.length] : random.nextInt();
+            this.l = (r & 1) == 0 ? LONGS[(r >> 1) % LONGS.length] : random.nextLong();
+            this.b = random.nextBoolean();
+            this.by = (byte) random.nextInt();
+            this.sh = (short) random.nextInt();
+            this.c = (char) random.nextInt();
+            this.f = r % 3 == 0 ? FLOATS[(r / 3) % FLOATS.length] : Float.intBitsToFloat(random.nextInt());
+            this.d = r % 3 == 0 ? DOUBLES[(r / 3) % DOUBLES.length] : Double.longBitsToDouble(random.nextLong());
+
+            //each row group gets its own set of strings, so that values can only be decoded correctly if the dictionaries are kept separate
+            this.s = r % 5 == 0 ? null : "group " + r / rowGroupSize + " value " + random.nextInt(r % 7 == 0 ? 1000 : 10) + " \u00e9\u4e2d";
+            this.boxed = r % 4 == 0 ? null : random.nextInt(20) - 10;
+        }
+    }
+
+    /**
+     * @author DaPorkchop_
+     */
+    private static final class TestModule extends AbstractSearchModule<Row> {
+        @Override
+        protected void processChunk(@NonNull Chunk chunk) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return "Columnar Test";
+        }
+    }
+}
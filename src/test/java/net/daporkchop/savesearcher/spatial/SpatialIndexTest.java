@@ -0,0 +1,209 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.spatial;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the ordering of {@link SpatialIndex#sortKey(int, int, int)}, and compares the results of queries on a spatial index against a brute-force
+ * search over all of its rows.
+ *
+ * @author DaPorkchop_
+ */
+public class SpatialIndexTest {
+    //coordinates on and around bucket boundaries in all four quadrants
+    private static final int[] EDGES = {
+            Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1025, -1024, -1023, -513, -512, -511, -17, -16, -15, -1,
+            0, 1, 15, 16, 17, 511, 512, 513, 1023, 1024, 1025, Integer.MAX_VALUE - 1, Integer.MAX_VALUE
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSortKey() {
+        SplittableRandom random = new SplittableRandom(1234L);
+        for (int bucketShift : new int[]{ 1, 4, SpatialIndex.DEFAULT_BUCKET_SHIFT, 16 }) {
+            for (int i = 0; i < 100000; i++) {
+                int x0 = randomCoordinate(random);
+                int z0 = randomCoordinate(random);
+                int x1 = randomCoordinate(random);
+                int z1 = randomCoordinate(random);
+                long key0 = SpatialIndex.sortKey(x0, z0, bucketShift);
+                long key1 = SpatialIndex.sortKey(x1, z1, bucketShift);
+
+                int bucketOrder = x0 >> bucketShift != x1 >> bucketShift
+                        ? Integer.compare(x0 >> bucketShift, x1 >> bucketShift)
+                        : Integer.compare(z0 >> bucketShift, z1 >> bucketShift);
+                if (bucketOrder != 0) { //positions in different buckets must be sorted by bucket X, then bucket Z
+                    assertEquals(bucketOrder, Integer.signum(Long.compareUnsigned(key0, key1)));
+                } else { //the bucket is stored in the key's high bits
+                    assertEquals(key0 >>> (bucketShift << 1), key1 >>> (bucketShift << 1));
+                }
+                assertEquals(x0 == x1 && z0 == z1, key0 == key1);
+            }
+        }
+    }
+
+    @Test
+    public void testQueries() throws IOException {
+        for (int bucketShift : new int[]{ 4, SpatialIndex.DEFAULT_BUCKET_SHIFT }) {
+            SplittableRandom random = new SplittableRandom(bucketShift);
+            List<Entry> entries = new ArrayList<>();
+            for (int x : EDGES) {
+                for (int z : EDGES) {
+                    entries.add(new Entry(x, z, entries.size()));
+                }
+            }
+            for (int i = 0; i < 20000; i++) {
+                entries.add(new Entry(random.nextInt(-3000, 3000), random.nextInt(-3000, 3000), entries.size()));
+            }
+            for (int i = 0; i < 100; i++) { //several rows at the same position
+                Entry entry = entries.get(random.nextInt(entries.size()));
+                entries.add(new Entry(entry.x, entry.z, entries.size()));
+            }
+            Collections.shuffle(entries, new Random(bucketShift));
+
+            File file = new File(this.folder.newFolder(), "test" + SpatialIndex.EXTENSION);
+            try (SpatialIndexWriter writer = new SpatialIndexWriter(file, "x,z,i", bucketShift)) {
+                for (Entry entry : entries) {
+                    writer.add(entry.x, entry.z, entry.row());
+                }
+            }
+
+            try (SpatialIndexReader reader = new SpatialIndexReader(file)) {
+                assertEquals("x,z,i", reader.header());
+                assertEquals(entries.size(), reader.entryCount());
+
+                checkBox(reader, entries, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+                checkBox(reader, entries, 0, 0, 0, 0);
+                checkBox(reader, entries, -1, -1, 0, 0);
+                checkBox(reader, entries, -512, -512, 511, 511);
+                checkBox(reader, entries, -513, 512, -512, 513);
+                checkBox(reader, entries, Integer.MIN_VALUE, 0, -1, Integer.MAX_VALUE);
+                checkBox(reader, entries, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE);
+                for (int i = 0; i < 200; i++) {
+                    int x0 = random.nextInt(-3500, 3500);
+                    int z0 = random.nextInt(-3500, 3500);
+                    int x1 = random.nextInt(-3500, 3500);
+                    int z1 = random.nextInt(-3500, 3500);
+                    checkBox(reader, entries, Math.min(x0, x1), Math.min(z0, z1), Math.max(x0, x1), Math.max(z0, z1));
+                }
+
+                checkRadius(reader, entries, 0, 0, 0);
+                checkRadius(reader, entries, 0, 0, 512);
+                checkRadius(reader, entries, -512, 512, 1);
+                checkRadius(reader, entries, Integer.MIN_VALUE, Integer.MAX_VALUE, 1);
+                for (int i = 0; i < 200; i++) {
+                    checkRadius(reader, entries, random.nextInt(-3500, 3500), random.nextInt(-3500, 3500), random.nextInt(2000));
+                }
+            }
+        }
+    }
+
+    private static int randomCoordinate(SplittableRandom random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return EDGES[random.nextInt(EDGES.length)];
+            case 1:
+                return random.nextInt(-2048, 2048);
+            default:
+                return random.nextInt();
+        }
+    }
+
+    private static void checkBox(SpatialIndexReader reader, List<Entry> entries, int minX, int minZ, int maxX, int maxZ) throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.x >= minX && entry.x <= maxX && entry.z >= minZ && entry.z <= maxZ) {
+                expected.add(entry.row());
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+        long count = reader.queryBox(minX, minZ, maxX, maxZ, (x, z, row) -> actual.add(checkRow(x, z, row)));
+        assertEquals(actual.size(), count);
+        assertSameRows(expected, actual);
+    }
+
+    private static void checkRadius(SpatialIndexReader reader, List<Entry> entries, int centerX, int centerZ, int radius) throws IOException {
+        List<String> expected = new ArrayList<>();
+        for (Entry entry : entries) {
+            long dx = (long) entry.x - centerX;
+            long dz = (long) entry.z - centerZ;
+            if (Math.abs(dx) <= radius && Math.abs(dz) <= radius && dx * dx + dz * dz <= (long) radius * radius) {
+                expected.add(entry.row());
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+        long count = reader.queryRadius(centerX, centerZ, radius, (x, z, row) -> actual.add(checkRow(x, z, row)));
+        assertEquals(actual.size(), count);
+        assertSameRows(expected, actual);
+    }
+
+    private static String checkRow(int x, int z, ByteBuffer buffer) {
+        String row = StandardCharsets.UTF_8.decode(buffer).toString();
+        assertTrue(row, row.startsWith(x + "," + z + ','));
+        return row;
+    }
+
+    private static void assertSameRows(List<String> expected, List<String> actual) {
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * A row in the index.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class Entry {
+        private final int x;
+        private final int z;
+        private final int id;
+
+        public Entry(int x, int z, int id) {
+            this.x = x;
+            this.z = z;
+            this.id = id;
+        }
+
+        public String row() {
+            return this.x + "," + this.z + ',' + this.id;
+        }
+    }
+}
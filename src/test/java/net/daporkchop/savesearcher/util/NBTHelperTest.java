@@ -0,0 +1,264 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonWriter;
+import net.daporkchop.lib.nbt.tag.Tag;
+import net.daporkchop.lib.nbt.tag.notch.ByteArrayTag;
+import net.daporkchop.lib.nbt.tag.notch.ByteTag;
+import net.daporkchop.lib.nbt.tag.notch.CompoundTag;
+import net.daporkchop.lib.nbt.tag.notch.DoubleTag;
+import net.daporkchop.lib.nbt.tag.notch.FloatTag;
+import net.daporkchop.lib.nbt.tag.notch.IntArrayTag;
+import net.daporkchop.lib.nbt.tag.notch.IntTag;
+import net.daporkchop.lib.nbt.tag.notch.ListTag;
+import net.daporkchop.lib.nbt.tag.notch.LongArrayTag;
+import net.daporkchop.lib.nbt.tag.notch.LongTag;
+import net.daporkchop.lib.nbt.tag.notch.ShortTag;
+import net.daporkchop.lib.nbt.tag.notch.StringTag;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the output of {@link NBTHelper#toJson(Tag)} against serializing the equivalent Gson tree, which is how NBT was converted to JSON before.
+ *
+ * @author DaPorkchop_
+ */
+public class NBTHelperTest {
+    private static final String[] STRINGS = {
+            "",
+            "minecraft:chest",
+            "quote\" backslash\\ slash/",
+            "tab\t backspace\b newline\n return\r formfeed\f",
+            "\u0000\u0001\u001f\u007f\u0080",
+            "line separator\u2028 paragraph separator\u2029",
+            "<html> & 'apostrophes' =",
+            "\u00e9\u4e2d\ud83d\ude00",
+            "{\"text\":\"Hello, world!\"}"
+    };
+
+    @Test
+    public void testScalars() {
+        for (byte b : new byte[]{ 0, 1, -1, Byte.MIN_VALUE, Byte.MAX_VALUE }) {
+            check(new ByteTag("", b));
+        }
+        for (short s : new short[]{ 0, 1, -1, Short.MIN_VALUE, Short.MAX_VALUE }) {
+            check(new ShortTag("", s));
+        }
+        for (int i : new int[]{ 0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE }) {
+            check(new IntTag("", i));
+        }
+        for (long l : new long[]{ 0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE }) {
+            check(new LongTag("", l));
+        }
+        for (float f : new float[]{ 0.0f, -0.0f, 1.0f, -1.5f, 1.0E-5f, 1.0E10f, Float.MIN_VALUE, Float.MAX_VALUE,
+                Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY }) {
+            check(new FloatTag("", f));
+        }
+        for (double d : new double[]{ 0.0d, -0.0d, 1.0d, -1.5d, 1.0E-5d, 1.0E10d, 0.1d, Double.MIN_VALUE, Double.MAX_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY }) {
+            check(new DoubleTag("", d));
+        }
+    }
+
+    @Test
+    public void testStrings() {
+        for (String s : STRINGS) {
+            check(new StringTag("", s));
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (char c = 0; c < 0x100; c++) {
+            builder.append(c);
+        }
+        check(new StringTag("", builder.toString()));
+    }
+
+    @Test
+    public void testArrays() {
+        check(new ByteArrayTag("", new byte[0]));
+        check(new ByteArrayTag("", new byte[]{ 0, 1, -1, Byte.MIN_VALUE, Byte.MAX_VALUE }));
+        check(new IntArrayTag("", new int[0]));
+        check(new IntArrayTag("", new int[]{ 0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE }));
+        check(new LongArrayTag("", new long[0]));
+        check(new LongArrayTag("", new long[]{ 0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE }));
+    }
+
+    @Test
+    public void testContainers() {
+        check(compound());
+        check(list());
+        check(list(compound()));
+        check(list(list(), list()));
+        check(compound("", compound(), "a", list()));
+        check(compound("nested", compound("nested", compound("nested", list(list(compound()))))));
+
+        Map<String, Tag> map = new LinkedHashMap<>();
+        for (String s : STRINGS) {
+            map.put(s, new StringTag(s, s));
+        }
+        check(new CompoundTag("", map));
+    }
+
+    @Test
+    public void testRandom() {
+        SplittableRandom random = new SplittableRandom(1234L);
+        for (int i = 0; i < 256; i++) {
+            check(randomTag(random, 0));
+        }
+    }
+
+    private static void check(Tag nbt) {
+        assertEquals(gsonJson(nbt), NBTHelper.toJson(nbt));
+    }
+
+    private static CompoundTag compound(Object... entries) {
+        Map<String, Tag> map = new LinkedHashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], (Tag) entries[i + 1]);
+        }
+        return new CompoundTag("", map);
+    }
+
+    private static ListTag<Tag> list(Tag... elements) {
+        return new ListTag<>("", new ArrayList<>(Arrays.asList(elements)));
+    }
+
+    private static Tag randomTag(SplittableRandom random, int depth) {
+        switch (random.nextInt(depth < 4 ? 13 : 11)) {
+            case 0:
+                return new ByteTag("", (byte) random.nextInt());
+            case 1:
+                return new ShortTag("", (short) random.nextInt());
+            case 2:
+                return new IntTag("", random.nextInt());
+            case 3:
+                return new LongTag("", random.nextLong());
+            case 4:
+                return new FloatTag("", Float.intBitsToFloat(random.nextInt()));
+            case 5:
+                return new DoubleTag("", Double.longBitsToDouble(random.nextLong()));
+            case 6:
+                return new StringTag("", STRINGS[random.nextInt(STRINGS.length)]);
+            case 7: {
+                byte[] arr = new byte[random.nextInt(8)];
+                for (int i = 0; i < arr.length; i++) {
+                    arr[i] = (byte) random.nextInt();
+                }
+                return new ByteArrayTag("", arr);
+            }
+            case 8:
+                return new IntArrayTag("", random.ints(random.nextInt(8)).toArray());
+            case 9:
+                return new LongArrayTag("", random.longs(random.nextInt(8)).toArray());
+            case 10:
+                return new StringTag("", Integer.toString(random.nextInt()));
+            case 11: {
+                Map<String, Tag> map = new LinkedHashMap<>();
+                for (int i = random.nextInt(5); i > 0; i--) {
+                    map.put(STRINGS[random.nextInt(STRINGS.length)] + i, randomTag(random, depth + 1));
+                }
+                return new CompoundTag("", map);
+            }
+            default: {
+                List<Tag> list = new ArrayList<>();
+                for (int i = random.nextInt(5); i > 0; i--) {
+                    list.add(randomTag(random, depth + 1));
+                }
+                return new ListTag<>("", list);
+            }
+        }
+    }
+
+    /**
+     * Converts an NBT tag to JSON by building a Gson tree and serializing it, exactly as {@link NBTHelper} used to.
+     */
+    private static String gsonJson(Tag nbt) {
+        StringBuilder builder = new StringBuilder();
+        try (JsonWriter writer = new JsonWriter(Streams.writerForAppendable(builder))) {
+            writer.setLenient(true);
+            Streams.write(gsonTree(nbt), writer);
+        } catch (IOException e) {
+            throw new AssertionError(e); //impossible
+        }
+        return builder.toString();
+    }
+
+    private static JsonElement gsonTree(Tag nbt) {
+        if (nbt instanceof CompoundTag) {
+            JsonObject object = new JsonObject();
+            ((CompoundTag) nbt).forEach((name, tag) -> object.add(name, gsonTree(tag)));
+            return object;
+        } else if (nbt instanceof ListTag) {
+            JsonArray array = new JsonArray();
+            ((ListTag<? extends Tag>) nbt).forEach(tag -> array.add(gsonTree(tag)));
+            return array;
+        } else if (nbt instanceof ByteTag) {
+            return new JsonPrimitive(((ByteTag) nbt).getValue());
+        } else if (nbt instanceof DoubleTag) {
+            return new JsonPrimitive(((DoubleTag) nbt).getValue());
+        } else if (nbt instanceof FloatTag) {
+            return new JsonPrimitive(((FloatTag) nbt).getValue());
+        } else if (nbt instanceof IntTag) {
+            return new JsonPrimitive(((IntTag) nbt).getValue());
+        } else if (nbt instanceof LongTag) {
+            return new JsonPrimitive(((LongTag) nbt).getValue());
+        } else if (nbt instanceof ShortTag) {
+            return new JsonPrimitive(((ShortTag) nbt).getValue());
+        } else if (nbt instanceof StringTag) {
+            return new JsonPrimitive(((StringTag) nbt).getValue());
+        } else if (nbt instanceof ByteArrayTag) {
+            JsonArray array = new JsonArray();
+            for (byte b : ((ByteArrayTag) nbt).value()) {
+                array.add(b);
+            }
+            return array;
+        } else if (nbt instanceof IntArrayTag) {
+            JsonArray array = new JsonArray();
+            for (int i : ((IntArrayTag) nbt).value()) {
+                array.add(i);
+            }
+            return array;
+        } else if (nbt instanceof LongArrayTag) {
+            JsonArray array = new JsonArray();
+            for (long l : ((LongArrayTag) nbt).getValue()) {
+                array.add(l);
+            }
+            return array;
+        } else {
+            throw new IllegalArgumentException(nbt.getClass().getName());
+        }
+    }
+}
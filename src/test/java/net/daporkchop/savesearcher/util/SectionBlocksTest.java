@@ -0,0 +1,183 @@
+/*
+ * Adapted from The MIT License (MIT)
+ *
+ * Copyright (c) 2018-2023 DaPorkchop_
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software
+ * is furnished to do so, subject to the following conditions:
+ *
+ * Any persons and/or organizations using this software must include the above copyright notice and this permission notice,
+ * provide sufficient credit to the original authors of the project (IE: DaPorkchop_), as well as provide a link to the original project.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package net.daporkchop.savesearcher.util;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the searches in {@link SectionBlocks} against a naive scan, both reading from the source directly and after packing.
+ *
+ * @author DaPorkchop_
+ */
+public class SectionBlocksTest {
+    private static final int[] IDS = { 0, 1, 56, 0xFF, 0x100, 0xFFF };
+
+    @Test
+    public void testNextIndexOf() {
+        for (long seed = 0L; seed < 4L; seed++) {
+            TestSource source = new TestSource(seed);
+            for (boolean packed : new boolean[]{ false, true }) {
+                SectionBlocks blocks = blocks(source, packed);
+                for (int id : IDS) {
+                    for (int meta = -1; meta < 16; meta++) {
+                        for (int fromIndex = 0; fromIndex < SectionBlocks.BLOCKS; fromIndex += fromIndex < 8 ? 1 : 127) {
+                            assertEquals(source.nextIndexOf(id, meta, fromIndex), blocks.nextIndexOf(id, meta, fromIndex));
+                        }
+                    }
+                }
+                assertEquals(-1, blocks.nextIndexOf(0, -1, SectionBlocks.BLOCKS));
+                assertEquals(-1, blocks.nextIndexOf(0x1000, -1, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testNextIndexOfIteratesAllMatches() {
+        TestSource source = new TestSource(1234L);
+        for (boolean packed : new boolean[]{ false, true }) {
+            SectionBlocks blocks = blocks(source, packed);
+            for (int id : IDS) {
+                for (int meta = -1; meta < 16; meta++) {
+                    int found = 0;
+                    for (int i = blocks.nextIndexOf(id, meta, 0); i >= 0; i = blocks.nextIndexOf(id, meta, i + 1)) {
+                        assertTrue(source.matches(i, id, meta));
+                        found++;
+                    }
+                    assertEquals(source.count(id, meta), found);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCount() {
+        for (long seed = 0L; seed < 16L; seed++) {
+            TestSource source = new TestSource(seed);
+            for (boolean packed : new boolean[]{ false, true }) {
+                SectionBlocks blocks = blocks(source, packed);
+                for (int id : IDS) {
+                    for (int meta = -1; meta < 16; meta++) {
+                        assertEquals(source.count(id, meta), blocks.count(id, meta));
+                    }
+                }
+                assertEquals(0, blocks.count(0x1000, -1));
+            }
+        }
+    }
+
+    @Test
+    public void testCountStates() {
+        for (long seed = 0L; seed < 16L; seed++) {
+            TestSource source = new TestSource(seed);
+            SectionBlocks blocks = blocks(source, false);
+
+            int[] counts = new int[1 << 16];
+            int[] touched = new int[1 << 16];
+            int touchedCount = blocks.countStates(counts, touched, 0);
+            assertTrue(blocks.packed());
+
+            int[] expected = new int[1 << 16];
+            for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+                expected[source.ids[i] << 4 | source.metas[i]]++;
+            }
+            assertArrayEquals(expected, counts);
+
+            int total = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                assertNotEquals(0, counts[touched[i]]);
+                total += counts[touched[i]];
+            }
+            assertEquals(SectionBlocks.BLOCKS, total);
+        }
+    }
+
+    @Test
+    public void testMayContain() {
+        TestSource source = new TestSource(42L);
+        SectionBlocks blocks = blocks(source, false);
+        assertTrue(blocks.mayContain(0x123));
+
+        blocks.pack();
+        for (int id : IDS) {
+            assertEquals(source.count(id, -1) != 0, blocks.mayContain(id));
+        }
+    }
+
+    private static SectionBlocks blocks(TestSource source, boolean packed) {
+        SectionBlocks blocks = new SectionBlocks().bind(source);
+        return packed ? blocks.pack() : blocks;
+    }
+
+    /**
+     * A randomly filled section, which mostly consists of the IDs in {@link #IDS}.
+     *
+     * @author DaPorkchop_
+     */
+    private static final class TestSource implements SectionBlocks.Source {
+        private final int[] ids = new int[SectionBlocks.BLOCKS];
+        private final int[] metas = new int[SectionBlocks.BLOCKS];
+
+        public TestSource(long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+                this.ids[i] = random.nextInt(8) == 0 ? random.nextInt(0x1000) : IDS[random.nextInt(IDS.length)];
+                this.metas[i] = random.nextInt(16);
+            }
+        }
+
+        @Override
+        public int getBlockId(int x, int y, int z) {
+            return this.ids[SectionBlocks.index(x, y, z)];
+        }
+
+        @Override
+        public int getBlockMeta(int x, int y, int z) {
+            return this.metas[SectionBlocks.index(x, y, z)];
+        }
+
+        public boolean matches(int index, int id, int meta) {
+            return this.ids[index] == id && (meta < 0 || this.metas[index] == meta);
+        }
+
+        public int nextIndexOf(int id, int meta, int fromIndex) {
+            for (int i = fromIndex; i < SectionBlocks.BLOCKS; i++) {
+                if (this.matches(i, id, meta)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public int count(int id, int meta) {
+            int count = 0;
+            for (int i = 0; i < SectionBlocks.BLOCKS; i++) {
+                if (this.matches(i, id, meta)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}